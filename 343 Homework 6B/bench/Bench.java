@@ -0,0 +1,158 @@
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.Locale;
+
+/**
+ * A small benchmark harness. A workload is run in batches of operations: first until the
+ * JIT has had time to compile it, then for a number of measured iterations, each long
+ * enough to swamp the timer. Every iteration records the time and the bytes allocated by
+ * the running thread, and the harness reports the mean time and allocation per
+ * operation over the measured iterations.
+ *
+ * The allocation counter is the one HotSpot keeps for every thread. On a JVM without it
+ * the allocation columns read n/a.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class Bench {
+
+	/** A piece of work to measure. */
+	public interface Workload {
+
+		/**
+		 * Perform the passed number of operations.
+		 *
+		 * @param ops the number of operations
+		 * @return a value derived from the work, so the JIT cannot drop it
+		 */
+		long run(int ops);
+	}
+
+	/** The time each warm-up and measured iteration should take. */
+	private static final long ITERATION_NANOS = 200000000L;
+
+	/** Values returned by the workloads, kept so their work is never dead code. */
+	public static volatile long sink;
+
+	/** The thread bean, or null if allocations cannot be measured. */
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+	/** The HotSpot method returning the bytes a thread has allocated, or null. */
+	private static final Method ALLOCATED_BYTES = allocatedBytesMethod();
+
+	/** The number of warm-up iterations. */
+	private final int myWarmups;
+
+	/** The number of measured iterations. */
+	private final int myIterations;
+
+	/** Where the results are printed. */
+	private final PrintStream myOut;
+
+	/**
+	 * Initialize a new Bench.
+	 *
+	 * @param warmups the number of warm-up iterations
+	 * @param iterations the number of measured iterations
+	 * @param out where to print the results
+	 */
+	public Bench(int warmups, int iterations, PrintStream out) {
+		myWarmups = warmups;
+		myIterations = iterations;
+		myOut = out;
+	}
+
+	/**
+	 * Print the header of the result table.
+	 */
+	public void printHeader() {
+		myOut.println(String.format(Locale.ROOT, "%-34s %-28s %14s %14s %14s %12s",
+				"benchmark", "parameters", "ns/op", "ops/s", "bytes/op", "MB/s alloc"));
+	}
+
+	/**
+	 * Measure a workload and print one line of results.
+	 *
+	 * @param name the name of the benchmark
+	 * @param parameters a description of its parameters
+	 * @param workload the work to measure
+	 */
+	public void measure(String name, String parameters, Workload workload) {
+		int batch = calibrate(workload);
+		for (int i = 0; i < myWarmups; i++) {
+			sink += workload.run(batch);
+		}
+		long nanos = 0;
+		long bytes = 0;
+		for (int i = 0; i < myIterations; i++) {
+			long allocated = allocatedBytes();
+			long begin = System.nanoTime();
+			sink += workload.run(batch);
+			nanos += System.nanoTime() - begin;
+			bytes += allocatedBytes() - allocated;
+		}
+		long ops = (long) batch * myIterations;
+		double nsPerOp = (double) nanos / ops;
+		String bytesPerOp = "n/a";
+		String allocationRate = "n/a";
+		if (ALLOCATED_BYTES != null) {
+			bytesPerOp = String.format(Locale.ROOT, "%.1f", (double) bytes / ops);
+			allocationRate = String.format(Locale.ROOT, "%.1f", bytes * 1e3 / Math.max(1, nanos));
+		}
+		myOut.println(String.format(Locale.ROOT, "%-34s %-28s %14.1f %14.1f %14s %12s",
+				name, parameters, nsPerOp, 1e9 / nsPerOp, bytesPerOp, allocationRate));
+	}
+
+	/**
+	 * Return a batch size that makes one run of the workload take about one iteration.
+	 */
+	private static int calibrate(Workload workload) {
+		int batch = 1;
+		while (true) {
+			long begin = System.nanoTime();
+			sink += workload.run(batch);
+			long elapsed = System.nanoTime() - begin;
+			if (elapsed >= ITERATION_NANOS / 4 || batch >= 1 << 30) {
+				long scaled = batch * ITERATION_NANOS / Math.max(1, elapsed);
+				return (int) Math.max(1, Math.min(scaled, 1 << 30));
+			}
+			batch *= 2;
+		}
+	}
+
+	/**
+	 * Return the bytes allocated by the current thread so far, or 0 if unknown.
+	 */
+	private static long allocatedBytes() {
+		if (ALLOCATED_BYTES == null) {
+			return 0;
+		}
+		try {
+			return (Long) ALLOCATED_BYTES.invoke(THREADS, Thread.currentThread().getId());
+		} catch (Exception e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Find the HotSpot method that counts the bytes allocated by a thread.
+	 */
+	private static Method allocatedBytesMethod() {
+		try {
+			Class<?> hotspot = Class.forName("com.sun.management.ThreadMXBean");
+			if (!hotspot.isInstance(THREADS)) {
+				return null;
+			}
+			Method method = hotspot.getMethod("getThreadAllocatedBytes", long.class);
+			hotspot.getMethod("setThreadAllocatedMemoryEnabled", boolean.class)
+					.invoke(THREADS, true);
+			method.invoke(THREADS, Thread.currentThread().getId());
+			return method;
+		} catch (Exception e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,73 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Random connected graphs for the benchmarks.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class BenchGraphs {
+
+	/**
+	 * Return a random connected graph. Vertex i is first joined to a random earlier
+	 * vertex, which makes a spanning tree, and the remaining edges join random pairs of
+	 * distinct vertices.
+	 *
+	 * @param n the number of vertices, at least 2
+	 * @param degree the average degree
+	 * @param maxWeight the largest edge weight; weights are uniform in [1, maxWeight]
+	 * @param seed the seed of the random numbers
+	 * @return the graph
+	 */
+	public static CompactGraph random(int n, int degree, int maxWeight, long seed) {
+		Random random = new Random(seed);
+		int m = Math.max(n - 1, (int) ((long) n * degree / 2));
+		Vertex[] vertices = new Vertex[n];
+		for (int v = 0; v < n; v++) {
+			vertices[v] = new Vertex(null, "v" + v);
+		}
+		int[] from = new int[m];
+		int[] to = new int[m];
+		int[] weight = new int[m];
+		for (int i = 0; i < m; i++) {
+			if (i < n - 1) {
+				from[i] = i + 1;
+				to[i] = random.nextInt(i + 1);
+			} else {
+				from[i] = random.nextInt(n);
+				to[i] = (from[i] + 1 + random.nextInt(n - 1)) % n;
+			}
+			weight[i] = 1 + random.nextInt(maxWeight);
+		}
+		return new CompactGraph(vertices, n, from, to, weight, m);
+	}
+
+	/**
+	 * Write a graph without self-loops in the text format read by GraphInput, one
+	 * "a b weight" line per edge.
+	 *
+	 * @param G the graph
+	 * @param file the file to write
+	 */
+	public static void writeText(IndexedGraph G, File file) throws IOException {
+		BufferedWriter out = new BufferedWriter(new FileWriter(file), 1 << 16);
+		try {
+			for (int u = 0; u < G.vertexCount(); u++) {
+				for (int e = G.firstEdge(u); e < G.endEdge(u); e++) {
+					// each edge is stored twice; write it from its smaller end
+					if (u < G.target(e)) {
+						out.write(G.getVertex(u).getName() + " " + G.getVertex(G.target(e)).getName()
+								+ " " + G.weight(e));
+						out.newLine();
+					}
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+}
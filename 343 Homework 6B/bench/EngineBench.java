@@ -0,0 +1,104 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmarks of the shortest path engines, each answering queries between random
+ * vertices of the same graph. A full run settles every vertex from the source; a point
+ * run finds the path to one target. Building an engine is not part of the measurement,
+ * except for the preprocessing benchmarks, which measure nothing else.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class EngineBench {
+
+	/** The number of queries cycled through by every benchmark. */
+	private static final int QUERIES = 1024;
+
+	/**
+	 * Run every engine benchmark on one graph.
+	 *
+	 * @param bench the harness
+	 * @param G the graph
+	 * @param parameters a description of the graph
+	 */
+	public static void run(Bench bench, final CompactGraph G, String parameters) {
+		Random random = new Random(343);
+		final Vertex[] sources = new Vertex[QUERIES];
+		final Vertex[] targets = new Vertex[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			sources[i] = G.getVertex(random.nextInt(G.vertexCount()));
+			targets[i] = G.getVertex(random.nextInt(G.vertexCount()));
+		}
+		List<String> names = new ArrayList<String>();
+		List<Algorithm> engines = new ArrayList<Algorithm>();
+		names.add("MinHeapImplementation");
+		engines.add(new MinHeapImplementation(G));
+		if (G.maxWeight() <= ArrayImplementation.MAX_BUCKETS) {
+			names.add("ArrayImplementation");
+			engines.add(new ArrayImplementation(G));
+		}
+		names.add("RadixHeapImplementation");
+		engines.add(new RadixHeapImplementation(G));
+		names.add("DeltaSteppingImplementation");
+		engines.add(new DeltaSteppingImplementation(G));
+		names.add("LandmarkImplementation");
+		engines.add(new LandmarkImplementation(G, LandmarkImplementation.DEFAULT_LANDMARKS,
+				LandmarkImplementation.Selection.FARTHEST));
+		names.add("ContractionHierarchy");
+		engines.add(new ContractionHierarchy(G));
+
+		for (int i = 0; i < engines.size(); i++) {
+			final Algorithm engine = engines.get(i);
+			bench.measure(names.get(i) + " full", parameters, new Bench.Workload() {
+				private int myNext;
+
+				public long run(int ops) {
+					long total = 0;
+					for (int op = 0; op < ops; op++) {
+						int q = myNext++ & (QUERIES - 1);
+						engine.runAlgorithm(sources[q]);
+						total += engine.getDistance(targets[q]);
+					}
+					return total;
+				}
+			});
+		}
+		for (int i = 0; i < engines.size(); i++) {
+			final Algorithm engine = engines.get(i);
+			bench.measure(names.get(i) + " point", parameters, new Bench.Workload() {
+				private int myNext;
+
+				public long run(int ops) {
+					long total = 0;
+					for (int op = 0; op < ops; op++) {
+						int q = myNext++ & (QUERIES - 1);
+						engine.runAlgorithm(sources[q], targets[q]);
+						total += engine.getDistance(targets[q]);
+					}
+					return total;
+				}
+			});
+		}
+		bench.measure("ContractionHierarchy preprocess", parameters, new Bench.Workload() {
+			public long run(int ops) {
+				long total = 0;
+				for (int op = 0; op < ops; op++) {
+					total += new ContractionHierarchy(G).getVertices().size();
+				}
+				return total;
+			}
+		});
+		bench.measure("LandmarkImplementation preprocess", parameters, new Bench.Workload() {
+			public long run(int ops) {
+				long total = 0;
+				for (int op = 0; op < ops; op++) {
+					total += new LandmarkImplementation(G, LandmarkImplementation.DEFAULT_LANDMARKS,
+							LandmarkImplementation.Selection.FARTHEST).getVertices().size();
+				}
+				return total;
+			}
+		});
+	}
+}
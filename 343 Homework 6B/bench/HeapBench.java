@@ -0,0 +1,149 @@
+import java.util.Random;
+
+/**
+ * Benchmarks of the heaps: BinaryHeap of DijkstraHeapNodes, which the original engines
+ * use, and IndexedMinHeap of ids, which replaced it. One operation is one insert, one
+ * deleteMin or one decrease-key on a heap of at most the given size with random keys.
+ * The deleteMin and decrease-key benchmarks refill the heap with a linear time buildHeap
+ * once every size operations, which adds a constant to each operation.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class HeapBench {
+
+	/**
+	 * Run every heap benchmark with heaps of one size.
+	 *
+	 * @param bench the harness
+	 * @param size the number of entries in a full heap
+	 * @param maxKey the largest key
+	 */
+	public static void run(Bench bench, final int size, int maxKey) {
+		String parameters = "size=" + size + " keys<=" + maxKey;
+		Random random = new Random(343);
+		final int[] ids = new int[size];
+		final int[] keys = new int[size];
+		final long[] longKeys = new long[size];
+		final int[] lowered = new int[size];
+		for (int i = 0; i < size; i++) {
+			ids[i] = i;
+			keys[i] = random.nextInt(maxKey) + 1;
+			longKeys[i] = keys[i];
+			lowered[i] = random.nextInt(keys[i]);
+		}
+		final Vertex vertex = new Vertex(null, "v");
+		final DijkstraHeapNode[] nodes = new DijkstraHeapNode[size];
+		for (int i = 0; i < size; i++) {
+			nodes[i] = new DijkstraHeapNode(vertex, keys[i], i);
+		}
+
+		bench.measure("BinaryHeap insert", parameters, new Bench.Workload() {
+			private final BinaryHeap myHeap = new BinaryHeap(size);
+			private int myCount;
+
+			public long run(int ops) {
+				for (int op = 0; op < ops; op++) {
+					if (myCount == size) {
+						myHeap.makeEmpty();
+						myCount = 0;
+					}
+					nodes[myCount].setDistance(keys[myCount]);
+					myHeap.insert(nodes[myCount++]);
+				}
+				return myCount;
+			}
+		});
+		bench.measure("BinaryHeap deleteMin", parameters, new Bench.Workload() {
+			private BinaryHeap myHeap = new BinaryHeap(size);
+
+			public long run(int ops) {
+				long total = 0;
+				try {
+					for (int op = 0; op < ops; op++) {
+						if (myHeap.isEmpty()) {
+							for (int i = 0; i < size; i++) {
+								nodes[i].setDistance(keys[i]);
+							}
+							myHeap = BinaryHeap.buildHeap(nodes);
+						}
+						total += myHeap.deleteMin().getDistance();
+					}
+				} catch (EmptyHeapException e) {
+					e.printStackTrace();
+				}
+				return total;
+			}
+		});
+		bench.measure("BinaryHeap percolateUp", parameters, new Bench.Workload() {
+			private BinaryHeap myHeap;
+			private int myNext = size;
+
+			public long run(int ops) {
+				for (int op = 0; op < ops; op++) {
+					if (myNext == size) {
+						for (int i = 0; i < size; i++) {
+							nodes[i].setDistance(keys[i]);
+						}
+						myHeap = BinaryHeap.buildHeap(nodes);
+						myNext = 0;
+					}
+					nodes[myNext].setDistance(lowered[myNext]);
+					myHeap.percolateUp(nodes[myNext++]);
+				}
+				return myNext;
+			}
+		});
+
+		bench.measure("IndexedMinHeap insert", parameters, new Bench.Workload() {
+			private final IndexedMinHeap myHeap = new IndexedMinHeap(size);
+			private int myCount;
+
+			public long run(int ops) {
+				for (int op = 0; op < ops; op++) {
+					if (myCount == size) {
+						myHeap.clear();
+						myCount = 0;
+					}
+					myHeap.insert(myCount, keys[myCount]);
+					myCount++;
+				}
+				return myCount;
+			}
+		});
+		bench.measure("IndexedMinHeap deleteMin", parameters, new Bench.Workload() {
+			private final IndexedMinHeap myHeap = new IndexedMinHeap(size);
+
+			public long run(int ops) {
+				long total = 0;
+				try {
+					for (int op = 0; op < ops; op++) {
+						if (myHeap.isEmpty()) {
+							myHeap.buildHeap(ids, longKeys, size);
+						}
+						total += myHeap.deleteMin();
+					}
+				} catch (EmptyHeapException e) {
+					e.printStackTrace();
+				}
+				return total;
+			}
+		});
+		bench.measure("IndexedMinHeap decreaseKey", parameters, new Bench.Workload() {
+			private final IndexedMinHeap myHeap = new IndexedMinHeap(size);
+			private int myNext = size;
+
+			public long run(int ops) {
+				for (int op = 0; op < ops; op++) {
+					if (myNext == size) {
+						myHeap.buildHeap(ids, longKeys, size);
+						myNext = 0;
+					}
+					myHeap.decreaseKey(myNext, lowered[myNext]);
+					myNext++;
+				}
+				return myNext;
+			}
+		});
+	}
+}
@@ -0,0 +1,86 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Benchmarks of loading a graph: the original GraphInput text reader, the parallel text
+ * loader and the binary snapshot. One operation is one load of the whole file, and the
+ * parameters include the file size so throughput in bytes can be worked out.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class LoadBench {
+
+	/**
+	 * Run every load benchmark on files holding one graph.
+	 *
+	 * @param bench the harness
+	 * @param G the graph to write and load
+	 * @param parameters a description of the graph
+	 */
+	public static void run(Bench bench, CompactGraph G, String parameters) throws IOException {
+		final File text = File.createTempFile("bench", ".txt");
+		final File snapshot = File.createTempFile("bench", ".csr");
+		text.deleteOnExit();
+		snapshot.deleteOnExit();
+		BenchGraphs.writeText(G, text);
+		GraphSnapshot.write(G, snapshot);
+		String textParameters = parameters + " " + text.length() / 1024 + "KB";
+		String snapshotParameters = parameters + " " + snapshot.length() / 1024 + "KB";
+
+		// the loaders report their progress on System.out, which would flood the table, so
+		// the harness must print somewhere else
+		PrintStream out = System.out;
+		PrintStream quiet = new PrintStream(new OutputStream() {
+			public void write(int b) {
+			}
+
+			public void write(byte[] b, int offset, int length) {
+			}
+		});
+		System.setOut(quiet);
+		try {
+			bench.measure("GraphInput.LoadCompactGraph", textParameters, new Bench.Workload() {
+				public long run(int ops) {
+					long total = 0;
+					for (int op = 0; op < ops; op++) {
+						total += GraphInput.LoadCompactGraph(text.getPath()).arcCount();
+					}
+					return total;
+				}
+			});
+			bench.measure("ParallelGraphLoader", textParameters, new Bench.Workload() {
+				public long run(int ops) {
+					long total = 0;
+					try {
+						for (int op = 0; op < ops; op++) {
+							total += ParallelGraphLoader.loadCompactGraph(text.getPath()).arcCount();
+						}
+					} catch (IOException e) {
+						e.printStackTrace();
+					}
+					return total;
+				}
+			});
+			bench.measure("GraphSnapshot.read", snapshotParameters, new Bench.Workload() {
+				public long run(int ops) {
+					long total = 0;
+					try {
+						for (int op = 0; op < ops; op++) {
+							total += GraphSnapshot.read(snapshot).arcCount();
+						}
+					} catch (IOException e) {
+						e.printStackTrace();
+					}
+					return total;
+				}
+			});
+		} finally {
+			System.setOut(out);
+		}
+		text.delete();
+		snapshot.delete();
+	}
+}
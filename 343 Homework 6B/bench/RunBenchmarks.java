@@ -0,0 +1,92 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Runs the benchmarks over every combination of graph size, average degree and largest
+ * weight. Usage:
+ *
+ * java RunBenchmarks [-n 1000,10000] [-d 4,8] [-w 10,1000] [-only engines,heap,load]
+ * [-warmup 3] [-iterations 5]
+ *
+ * The heap benchmarks use the graph size as the heap size and the largest weight as the
+ * largest key, so they run once per size and weight. Every graph is random and
+ * connected, and the same parameters always give the same graph.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class RunBenchmarks {
+
+	/**
+	 * Code to run the benchmarks.
+	 *
+	 * @param args the options described above
+	 */
+	public static void main(String[] args) throws IOException {
+		int[] sizes = {1000, 10000};
+		int[] degrees = {4, 8};
+		int[] weights = {10, 1000};
+		Set<String> only = new HashSet<String>(Arrays.asList("engines", "heap", "load"));
+		int warmups = 3;
+		int iterations = 5;
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			if (args[i].equals("-n")) {
+				sizes = parseList(args[i + 1]);
+			} else if (args[i].equals("-d")) {
+				degrees = parseList(args[i + 1]);
+			} else if (args[i].equals("-w")) {
+				weights = parseList(args[i + 1]);
+			} else if (args[i].equals("-only")) {
+				only = new HashSet<String>(Arrays.asList(args[i + 1].split(",")));
+			} else if (args[i].equals("-warmup")) {
+				warmups = Integer.parseInt(args[i + 1]);
+			} else if (args[i].equals("-iterations")) {
+				iterations = Integer.parseInt(args[i + 1]);
+			} else {
+				System.err.println("Unknown option " + args[i]);
+				return;
+			}
+		}
+
+		// capture System.out now, since the load benchmarks silence it while they run
+		PrintStream out = System.out;
+		Bench bench = new Bench(warmups, iterations, out);
+		bench.printHeader();
+		for (int n : sizes) {
+			for (int w : weights) {
+				if (only.contains("heap")) {
+					HeapBench.run(bench, n, w);
+				}
+				for (int d : degrees) {
+					if (!only.contains("engines") && !only.contains("load")) {
+						continue;
+					}
+					CompactGraph G = BenchGraphs.random(n, d, w, 343L * n + 31L * d + w);
+					String parameters = "n=" + n + " d=" + d + " w<=" + w;
+					if (only.contains("engines")) {
+						EngineBench.run(bench, G, parameters);
+					}
+					if (only.contains("load")) {
+						LoadBench.run(bench, G, parameters);
+					}
+				}
+			}
+		}
+		out.println("sink " + Bench.sink);
+	}
+
+	/**
+	 * Return the integers in a comma separated list.
+	 */
+	private static int[] parseList(String list) {
+		String[] parts = list.split(",");
+		int[] values = new int[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			values[i] = Integer.parseInt(parts[i].trim());
+		}
+		return values;
+	}
+}
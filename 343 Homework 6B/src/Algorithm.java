@@ -6,5 +6,32 @@
  */
 public interface Algorithm {
 	public void runAlgorithm(Vertex v);
+	
+	/**
+	 * Find the shortest path from source to target only. Afterwards getDistance and
+	 * getPath are only meaningful for target.
+	 * 
+	 * @param source the starting vertex
+	 * @param target the ending vertex
+	 */
+	public void runAlgorithm(Vertex source, Vertex target);
+	
+	/**
+	 * Return the distance to the passed vertex found by the last run.
+	 * 
+	 * @param v a vertex
+	 * @return the distance to v, or Integer.MAX_VALUE if no path to v is known
+	 */
+	public int getDistance(Vertex v);
+	
 	public String getPath(Vertex v, Vertex u);
+	
+	/**
+	 * Return the path found by the last run from the starting vertex to the last vertex.
+	 * 
+	 * @param first the starting vertex
+	 * @param last the ending vertex
+	 * @return the vertex ids and distances along the path, or null if no path is known
+	 */
+	public PathResult getPathResult(Vertex first, Vertex last);
 }
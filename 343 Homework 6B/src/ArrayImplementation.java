@@ -1,178 +1,292 @@
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.Set;
 
 /**
- * This class implements Kijkstra's algorithm using an array of linked lists
- * 
+ * This class implements Dijkstra's algorithm using an array of buckets (Dial's algorithm).
+ *
+ * A vertex with tentative distance d is kept in bucket d mod (C + 1), where C is the
+ * largest edge weight. Every tentative distance lies within C of the distance being
+ * settled, so C + 1 buckets used as a circular array never mix two distances. Each bucket
+ * is a doubly linked list threaded through per-vertex arrays, so moving a vertex to a
+ * new bucket after a decrease-key takes constant time.
+ *
  * @author Jonah Howard
  * @author Jacob Tillett
  *
  */
 
 public class ArrayImplementation implements Algorithm {
+	/** The largest edge weight for which a graph is given a bucket array. */
+	public static final int MAX_BUCKETS = 1 << 20;
+	/** Marks the end of a bucket list */
+	private static final int NONE = -1;
 	/**	The graph being used  */
-	private SimpleGraph myG;
-	/** The list of vertices in the graph */
-	private LinkedList myVertices;
-	/** The list of edges in the graph */ 
-	private LinkedList myEdges;
+	private IndexedGraph myG;
 	/** The starting vertex */
 	private Vertex start;
-	/** The ending vertex */
-	private Vertex end;
-	/** The array used for finding the shortest path */
-	private LinkedList[] myLabels;
-	/** Maps each vertex to its corresponding Dijkstras node */
-	private Map<Vertex, DijkstraHeapNode> myNodes;
-	
-		
+	/** The first vertex of each bucket, or NONE */
+	private int[] myBuckets;
+	/** The next vertex in the same bucket, or NONE */
+	private int[] myNext;
+	/** The previous vertex in the same bucket, or NONE */
+	private int[] myPrevious;
+	/** The tentative distance of each vertex */
+	private int[] myDistances;
+	/** The vertex before each vertex on its shortest path, or NONE */
+	private int[] myPred;
+	/** The target of the last point-to-point query, or NONE after a full run */
+	private int myTarget;
+	/** The counters of the last run */
+	private final SearchStats myStats = new SearchStats();
+
+
 	/**
 	 * Initialize the ArrayImplementation
 	 * @param G The graph coming in.
 	 */
 	public ArrayImplementation(SimpleGraph G) {
+		this(new CompactGraph(G));
+	}
+
+	/**
+	 * Initialize the ArrayImplementation to run directly on an IndexedGraph.
+	 * @param G The graph coming in.
+	 */
+	public ArrayImplementation(IndexedGraph G) {
+		if (G.maxWeight() > MAX_BUCKETS) {
+			throw new IllegalArgumentException("Edge weight " + G.maxWeight()
+					+ " is too large for a bucket array; use RadixHeapImplementation");
+		}
 		myG = G;
-		myVertices = G.vertexList;
-		myEdges = G.edgeList;
-		double maxEdge = 0;
-		double temp = 0;
-		Iterator iter = G.edges();
-		while(iter.hasNext()) {
-			
-			temp = (double) ((Edge)iter.next()).getData();
-			if(temp > maxEdge) {
-				maxEdge = temp;
-			}
+		int n = G.vertexCount();
+		myBuckets = new int[G.maxWeight() + 1];
+		myNext = new int[n];
+		myPrevious = new int[n];
+		myDistances = new int[n];
+		myPred = new int[n];
+		myTarget = NONE;
+	}
+
+	/**
+	 * Return the array based engine that suits the passed graph: a bucket array when the
+	 * edge weights are small enough, and a radix heap otherwise.
+	 *
+	 * @param G the graph to evaluate
+	 * @return the engine
+	 */
+	public static Algorithm forGraph(IndexedGraph G) {
+		if (G.maxWeight() <= MAX_BUCKETS) {
+			return new ArrayImplementation(G);
 		}
-		myLabels =  new LinkedList[(int) (maxEdge * G.vertexList.size())];
+		return new RadixHeapImplementation(G);
 	}
 
 	/**
 	 * Runs the algorithm with the passed vertex as the starting point city.
-	 * 
+	 *
 	 * @param s the starting city vertex
 	 */
 	public void runAlgorithm(Vertex s) {
-		
-		//create the lists at each label
-		
-		myNodes = new HashMap<Vertex, DijkstraHeapNode>();
-		for(int i = 0; i < myLabels.length; i++) {
-			myLabels[i] = new LinkedList();
-		}
 		start = s;
-		Iterator iter = myG.vertices();
-		//fill array
-		while(iter.hasNext()) {
-			Vertex v = (Vertex) iter.next();
-			DijkstraHeapNode node = new DijkstraHeapNode(v, myLabels.length - 1);
-			if(v == start) {
-				
-				myLabels[0].add(node);
-				node.setDistance(0);
-				node.setPrev(null);
-			} else {
-				myLabels[myLabels.length - 1].add(node);
-				
-			}
-			myNodes.put(v, node);
-			node.setKnown(false);
-			v.setData(node);
-			
+		myTarget = NONE;
+		run(myG.getId(s), NONE);
+	}
+
+	/**
+	 * Run Dial's algorithm from source, stopping once target has been settled.
+	 *
+	 * @param source the id of the starting vertex
+	 * @param target the id of the vertex to stop at, or NONE to settle every reachable vertex
+	 */
+	private void run(int source, int target) {
+		Arrays.fill(myBuckets, NONE);
+		Arrays.fill(myDistances, Integer.MAX_VALUE);
+		Arrays.fill(myPred, NONE);
+		int width = myBuckets.length;
+		myDistances[source] = 0;
+		link(source, 0);
+		int queued = 1;
+		if (SearchMetrics.ENABLED) {
+			myStats.reset();
+			myStats.highWater = 1;
 		}
-		
-		for(int i = 0; i < myLabels.length; i++) {
-			if(!myLabels[i].isEmpty()) {
-				Iterator itr = myLabels[i].iterator();
-				while(itr.hasNext()) {
-					DijkstraHeapNode u = (DijkstraHeapNode) itr.next();
-					u.setKnown(true);
-					Iterator neighbors = myG.incidentEdges(u.getVertex());
-				
-					while(neighbors.hasNext()) {
-						Edge e = ((Edge) neighbors.next());
-						DijkstraHeapNode node = (DijkstraHeapNode) myG.opposite(u.getVertex(), e).getData();
-						
-						if(!node.isKnown()) {
-							int distance = u.getDistance() +((int) (double) e.getData());
-							int vDistance = node.getDistance();
-							if (distance < vDistance) {
-								node.setDistance(distance);
-								node.setPrev(u);
-								myLabels[vDistance].remove(node);
-								myLabels[distance].add(node);
+		// current walks the distances in order; current % width is its bucket
+		for (int current = 0; queued > 0; current++) {
+			int bucket = current % width;
+			if (SearchMetrics.ENABLED) {
+				myStats.bucketScans++;
+			}
+			while (myBuckets[bucket] != NONE) {
+				int u = myBuckets[bucket];
+				unlink(u, bucket);
+				queued--;
+				if (SearchMetrics.ENABLED) {
+					myStats.settled++;
+				}
+				if (u == target) {
+					// leaving nothing queued ends the outer loop too
+					queued = 0;
+					break;
+				}
+				if (SearchMetrics.ENABLED) {
+					myStats.relaxed += myG.endEdge(u) - myG.firstEdge(u);
+				}
+				for (int e = myG.firstEdge(u); e < myG.endEdge(u); e++) {
+					int v = myG.target(e);
+					int distance = QueryContext.extend(current, myG.weight(e));
+					// settled vertices never pass this test since weights are not negative
+					if (distance < myDistances[v]) {
+						if (myDistances[v] == Integer.MAX_VALUE) {
+							queued++;
+							if (SearchMetrics.ENABLED && queued > myStats.highWater) {
+								myStats.highWater = queued;
+							}
+						} else {
+							unlink(v, myDistances[v] % width);
+							if (SearchMetrics.ENABLED) {
+								myStats.decreaseKeys++;
 							}
 						}
+						myDistances[v] = distance;
+						myPred[v] = u;
+						link(v, distance % width);
 					}
 				}
 			}
 		}
-		
+		if (SearchMetrics.ENABLED) {
+			SearchMetrics.record("ArrayImplementation", myStats);
+		}
+	}
+
+	/**
+	 * Add a vertex to the front of a bucket.
+	 */
+	private void link(int v, int bucket) {
+		int head = myBuckets[bucket];
+		myNext[v] = head;
+		myPrevious[v] = NONE;
+		if (head != NONE) {
+			myPrevious[head] = v;
+		}
+		myBuckets[bucket] = v;
+	}
+
+	/**
+	 * Remove a vertex from its bucket.
+	 */
+	private void unlink(int v, int bucket) {
+		if (myPrevious[v] == NONE) {
+			myBuckets[bucket] = myNext[v];
+		} else {
+			myNext[myPrevious[v]] = myNext[v];
+		}
+		if (myNext[v] != NONE) {
+			myPrevious[myNext[v]] = myPrevious[v];
+		}
+	}
+
+	/**
+	 * Finds the shortest path from source to target, stopping the bucket scan as soon as
+	 * target is settled.
+	 *
+	 * @param source the starting city vertex
+	 * @param target the ending city vertex
+	 */
+	public void runAlgorithm(Vertex source, Vertex target) {
+		start = source;
+		myTarget = myG.getId(target);
+		run(myG.getId(source), myTarget);
+	}
+
+	/**
+	 * Return the counters of the last run. They are only kept when SearchMetrics.ENABLED
+	 * is set; the run also adds them to the ArrayImplementation totals.
+	 *
+	 * @return the counters
+	 */
+	public SearchStats getStats() {
+		return myStats;
+	}
+
+	/**
+	 * Return the distance to the passed vertex found by the last run.
+	 *
+	 * @param v a vertex
+	 * @return the distance to v, or Integer.MAX_VALUE if no path to v is known
+	 */
+	public int getDistance(Vertex v) {
+		int id = myG.getId(v);
+		if (myTarget != NONE && id != myTarget) {
+			return Integer.MAX_VALUE;
+		}
+		return myDistances[id];
 	}
 
 	/**
 	 * Return the shortest path description starting from the starting vertex and ending at
 	 * the last vertex.
-	 * 
-	 * @param first
-	 * @param last
+	 *
+	 * @param first the starting vertex
+	 * @param last the ending vertex
 	 * @return the path
 	 */
 	public String getPath(Vertex first, Vertex last) {
-		
-		StringBuilder b = new StringBuilder();
-		DijkstraHeapNode current = myNodes.get(last);
-		DijkstraHeapNode previous = myNodes.get(last).getPrev();
-		b.append("End => " + current.toString() + "<br>");
-		// Check that the path contains at least two nodes
-		if (current.getPrev() != null) {
-			current = current.getPrev();
-			previous = previous.getPrev();
+		return PathFormat.HTML.format(getPathResult(first, last));
+	}
+
+	/**
+	 * Return the shortest path from the starting vertex to the last vertex.
+	 *
+	 * @param first the starting vertex
+	 * @param last the ending vertex
+	 * @return the path, or null if there is none
+	 */
+	public PathResult getPathResult(Vertex first, Vertex last) {
+		int id = myG.getId(last);
+		if (myTarget != NONE && id != myTarget) {
+			return null;
 		}
-		while (current.getPrev() != null) {
-			b.insert(0, " => " + current.toString() + "<br>");
-			current = previous;
-			previous = current.getPrev();
+		int[] path = predecessorPath(id);
+		if (path == null) {
+			return null;
 		}
-		b.insert(0, "Start => " + current.toString() + "<br>");
-		b.insert(0, "<html>");
-		b.append("</html>");
-		return b.toString();
-		
-	
+		return PathResult.of(myG, path);
 	}
-	
+
+	/**
+	 * Return the vertex ids from the source to v, or null if v was not reached.
+	 */
+	private int[] predecessorPath(int v) {
+		if (myDistances[v] == Integer.MAX_VALUE) {
+			return null;
+		}
+		int hops = 0;
+		for (int u = v; myPred[u] != NONE; u = myPred[u]) {
+			hops++;
+		}
+		int[] path = new int[hops + 1];
+		for (int u = v; hops >= 0; u = myPred[u]) {
+			path[hops--] = u;
+		}
+		return path;
+	}
+
 	/**
 	 * Reruns the algorithm with the passed node as the starting city.
-	 * 
+	 *
 	 * @param node the new starting node
 	 */
 	public void reRunAlgorithm(DijkstraHeapNode node) {
 		runAlgorithm(node.getVertex());
 	}
-	
+
 	/**
 	 * Return a set of all the vertices.
-	 * 
+	 *
 	 * @return a set of all the vertices
 	 */
 	public Set<Vertex> getVertices() {
-		return myNodes.keySet();
-	}
-	
-	/**
-	 * Returns the DijkstraHeapNode corresponding to the passed vertex.
-	 * 
-	 * @param v the vertex being searched for
-	 * @return the DijkstraHeapNode corresponding to v
-	 */
-	public DijkstraHeapNode getCorrespondingNode(Vertex v) {
-		return myNodes.get(v);
+		return myG.getVertices();
 	}
-	
-
-
 }
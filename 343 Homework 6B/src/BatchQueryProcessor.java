@@ -0,0 +1,374 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Answers large batches of (source, target) queries by searching once per source.
+ *
+ * The queries are read in windows of a fixed size. Within a window they are grouped by
+ * source with a counting sort, and each group is answered by one Dijkstra run from its
+ * source that stops as soon as all of the group's targets are settled. The groups are
+ * spread over a fork-join pool, and once a window is finished its results are handed out
+ * in the order the queries came in. Only one window is held in memory at a time, so a
+ * batch of any length can be streamed through.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class BatchQueryProcessor {
+
+	/** Receives the result of every query, in input order. */
+	public interface ResultListener {
+
+		/**
+		 * Called once for each query, on the thread that called process.
+		 *
+		 * @param index the position of the query in the batch, counting from 0
+		 * @param source the id of the starting vertex
+		 * @param target the id of the ending vertex
+		 * @param distance the length of a shortest path, or Integer.MAX_VALUE if there is none
+		 * @param path the path, or null if there is none or paths were not asked for
+		 */
+		void result(long index, int source, int target, int distance, PathResult path);
+	}
+
+	/** The number of queries in a window when none is given. */
+	public static final int DEFAULT_WINDOW = 1 << 20;
+
+	/** The graph being searched. */
+	private final IndexedGraph myGraph;
+
+	/** The pool the groups run on. */
+	private final ForkJoinPool myPool;
+
+	/** The most queries held at once. */
+	private final int myWindow;
+
+	/** True to build a PathResult for every query. */
+	private final boolean myWithPaths;
+
+	/** The state of the searches that are not in use. */
+	private final ConcurrentLinkedQueue<Worker> myIdle;
+
+	/** The number of queries in the window with each source, then the start of each group. */
+	private final int[] myGroupStarts;
+
+	/** The source and target of each query of the current window. */
+	private final int[] mySources;
+	private final int[] myTargets;
+
+	/** The positions of the queries of the current window, grouped by source. */
+	private final int[] myOrder;
+
+	/** The distinct sources of the current window. */
+	private final int[] myGroupSources;
+
+	/** The answer to each query of the current window. */
+	private final int[] myDistances;
+
+	/** The path of each query of the current window, or null if paths are not wanted. */
+	private final PathResult[] myPaths;
+
+	/** The number of queries answered so far. */
+	private long myDone;
+
+	/** The number of searches run so far. */
+	private long mySearches;
+
+	/**
+	 * The scratch state of one search: a context and a mark for each target.
+	 */
+	private static class Worker {
+		final QueryContext myContext;
+		final boolean[] myIsTarget;
+
+		Worker(int n) {
+			myContext = new QueryContext(n);
+			myIsTarget = new boolean[n];
+		}
+	}
+
+	/**
+	 * Initialize a new BatchQueryProcessor that runs on the common pool.
+	 *
+	 * @param G the graph to search
+	 */
+	public BatchQueryProcessor(IndexedGraph G) {
+		this(G, ForkJoinPool.commonPool(), DEFAULT_WINDOW, false);
+	}
+
+	/**
+	 * Initialize a new BatchQueryProcessor.
+	 *
+	 * @param G the graph to search
+	 * @param pool the pool to run the groups on
+	 * @param window the most queries to hold in memory at once
+	 * @param withPaths true to report the path of every query as well as its length
+	 */
+	public BatchQueryProcessor(IndexedGraph G, ForkJoinPool pool, int window, boolean withPaths) {
+		if (window < 1) {
+			throw new IllegalArgumentException("The window must hold at least one query");
+		}
+		myGraph = G;
+		myPool = pool;
+		myWindow = window;
+		myWithPaths = withPaths;
+		myIdle = new ConcurrentLinkedQueue<Worker>();
+		myGroupStarts = new int[G.vertexCount() + 1];
+		mySources = new int[window];
+		myTargets = new int[window];
+		myOrder = new int[window];
+		myGroupSources = new int[Math.min(window, G.vertexCount())];
+		myDistances = new int[window];
+		myPaths = withPaths ? new PathResult[window] : null;
+	}
+
+	/**
+	 * Answer a batch of queries given as arrays of vertex ids.
+	 *
+	 * @param sources the id of the starting vertex of each query
+	 * @param targets the id of the ending vertex of each query
+	 * @param listener receives the results in the order of the queries
+	 */
+	public void process(int[] sources, int[] targets, ResultListener listener) {
+		if (sources.length != targets.length) {
+			throw new IllegalArgumentException("Expected as many targets as sources");
+		}
+		for (int i = 0; i < sources.length; ) {
+			int count = Math.min(myWindow, sources.length - i);
+			for (int j = 0; j < count; j++) {
+				mySources[j] = checkId(sources[i + j]);
+				myTargets[j] = checkId(targets[i + j]);
+			}
+			runWindow(count);
+			for (int j = 0; j < count; j++) {
+				listener.result(myDone++, mySources[j], myTargets[j], myDistances[j],
+						myPaths != null ? myPaths[j] : null);
+			}
+			if (myPaths != null) {
+				Arrays.fill(myPaths, 0, count, null);
+			}
+			i += count;
+		}
+	}
+
+	/**
+	 * Answer the queries in a text file with one "source target" pair of vertex names per
+	 * line, writing "source,target,distance" lines in the same order. A name that is not
+	 * in the graph gives the distance "unknown", and a pair with no path gives "none".
+	 *
+	 * @param in the queries
+	 * @param out where to write the answers
+	 * @return the number of queries answered
+	 */
+	public long processText(BufferedReader in, Writer out) throws IOException {
+		Map<String, Integer> ids = new HashMap<String, Integer>(2 * myGraph.vertexCount());
+		for (int v = 0; v < myGraph.vertexCount(); v++) {
+			ids.put(String.valueOf(myGraph.getVertex(v).getName()), v);
+		}
+		PrintWriter writer = new PrintWriter(out);
+		String[][] names = new String[myWindow][];
+		boolean[] known = new boolean[myWindow];
+		long total = 0;
+		String line = in.readLine();
+		while (line != null) {
+			int lines = 0;
+			int count = 0;
+			for (; line != null && lines < myWindow; line = in.readLine()) {
+				String[] pair = line.trim().split("\\s+");
+				if (pair.length < 2) {
+					continue;
+				}
+				Integer source = ids.get(pair[0]);
+				Integer target = ids.get(pair[1]);
+				names[lines] = pair;
+				known[lines] = source != null && target != null;
+				if (known[lines]) {
+					mySources[count] = source;
+					myTargets[count] = target;
+					count++;
+				}
+				lines++;
+			}
+			runWindow(count);
+			myDone += count;
+			for (int i = 0, query = 0; i < lines; i++) {
+				String answer = "unknown";
+				if (known[i]) {
+					int distance = myDistances[query++];
+					answer = distance == Integer.MAX_VALUE ? "none" : String.valueOf(distance);
+				}
+				writer.println(names[i][0] + "," + names[i][1] + "," + answer);
+			}
+			total += lines;
+		}
+		writer.flush();
+		return total;
+	}
+
+	/**
+	 * Answer the first count queries of the window arrays.
+	 */
+	private void runWindow(int count) {
+		// counting sort of the query positions by source
+		int n = myGraph.vertexCount();
+		int groups = 0;
+		for (int i = 0; i < count; i++) {
+			if (myGroupStarts[mySources[i] + 1]++ == 0) {
+				myGroupSources[groups++] = mySources[i];
+			}
+		}
+		for (int v = 0; v < n; v++) {
+			myGroupStarts[v + 1] += myGroupStarts[v];
+		}
+		for (int i = 0; i < count; i++) {
+			myOrder[myGroupStarts[mySources[i]]++] = i;
+		}
+		// each start has moved to the end of its group, which is the start of the next
+		for (int v = n; v > 0; v--) {
+			myGroupStarts[v] = myGroupStarts[v - 1];
+		}
+		myGroupStarts[0] = 0;
+		if (groups > 0) {
+			myPool.invoke(new GroupTask(0, groups));
+		}
+		mySearches += groups;
+		Arrays.fill(myGroupStarts, 0);
+	}
+
+	/**
+	 * Answers a range of the groups of the current window, splitting it in half until a
+	 * single group is left.
+	 */
+	private class GroupTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int myLow;
+		private final int myHigh;
+
+		GroupTask(int low, int high) {
+			myLow = low;
+			myHigh = high;
+		}
+
+		protected void compute() {
+			if (myHigh - myLow > 1) {
+				int middle = (myLow + myHigh) >>> 1;
+				invokeAll(new GroupTask(myLow, middle), new GroupTask(middle, myHigh));
+				return;
+			}
+			Worker worker = myIdle.poll();
+			if (worker == null) {
+				worker = new Worker(myGraph.vertexCount());
+			}
+			int source = myGroupSources[myLow];
+			int start = myGroupStarts[source];
+			int end = myGroupStarts[source + 1];
+			int distinct = 0;
+			for (int i = start; i < end; i++) {
+				int target = myTargets[myOrder[i]];
+				if (!worker.myIsTarget[target]) {
+					worker.myIsTarget[target] = true;
+					distinct++;
+				}
+			}
+			QueryContext context = worker.myContext;
+			MinHeapImplementation.search(myGraph, context, source, worker.myIsTarget, distinct);
+			for (int i = start; i < end; i++) {
+				int query = myOrder[i];
+				int target = myTargets[query];
+				worker.myIsTarget[target] = false;
+				myDistances[query] = context.distance(target);
+				if (myWithPaths) {
+					myPaths[query] = PathResult.of(myGraph, context.path(target));
+				}
+			}
+			myIdle.offer(worker);
+		}
+	}
+
+	/**
+	 * Throw an exception if an id is not a vertex of the graph.
+	 */
+	private int checkId(int id) {
+		if (id < 0 || id >= myGraph.vertexCount()) {
+			throw new IllegalArgumentException("No vertex with id " + id);
+		}
+		return id;
+	}
+
+	/**
+	 * Return the number of searches run so far. Comparing it with the number of queries
+	 * shows how much grouping saved.
+	 *
+	 * @return the number of searches
+	 */
+	public long getSearchCount() {
+		return mySearches;
+	}
+
+	/**
+	 * Code to compare a batch of skewed queries against answering each query on its own.
+	 */
+	public static void main(String[] args) throws IOException {
+		CompactGraph G = ParallelGraphLoader.loadCompactGraph(
+				args.length > 0 ? args[0] : "./testGraphs/path2.txt");
+		int queries = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+		int n = G.vertexCount();
+		Random random = new Random(343);
+		final int[] sources = new int[queries];
+		final int[] targets = new int[queries];
+		int hubs = Math.max(1, n / 100);
+		for (int i = 0; i < queries; i++) {
+			sources[i] = random.nextInt(10) < 9 ? random.nextInt(hubs) : random.nextInt(n);
+			targets[i] = random.nextInt(n);
+		}
+		final int[] expected = new int[queries];
+		BidirectionalDijkstra single = new BidirectionalDijkstra(G);
+		long begin = System.nanoTime();
+		for (int i = 0; i < queries; i++) {
+			expected[i] = single.search(sources[i], targets[i]);
+		}
+		System.out.println("One search per query took " + (System.nanoTime() - begin) / 1000000
+				+ " ms");
+		BatchQueryProcessor batch = new BatchQueryProcessor(G, ForkJoinPool.commonPool(),
+				Math.max(1, queries / 4), false);
+		final int[] mismatches = new int[2];
+		begin = System.nanoTime();
+		batch.process(sources, targets, new ResultListener() {
+			public void result(long index, int source, int target, int distance, PathResult path) {
+				if (index != mismatches[1]++ || distance != expected[(int) index]) {
+					mismatches[0]++;
+				}
+			}
+		});
+		System.out.println("Batch took " + (System.nanoTime() - begin) / 1000000 + " ms with "
+				+ batch.getSearchCount() + " searches, " + mismatches[0] + " mismatches");
+
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 5; i++) {
+			text.append(G.getVertex(sources[i]).getName()).append(' ')
+					.append(G.getVertex(targets[i]).getName()).append('\n');
+		}
+		text.append("nowhere ").append(G.getVertex(0).getName()).append('\n');
+		StringWriter out = new StringWriter();
+		new BatchQueryProcessor(G, ForkJoinPool.commonPool(), 4, true).processText(
+				new BufferedReader(new StringReader(text.toString())), out);
+		System.out.print(out);
+		if (args.length > 2) {
+			PrintWriter file = new PrintWriter(args[2] + ".out");
+			new BatchQueryProcessor(G).processText(new BufferedReader(new FileReader(args[2])), file);
+			file.close();
+		}
+	}
+}
@@ -0,0 +1,179 @@
+import java.util.Arrays;
+
+/**
+ * A point-to-point shortest path search that grows one Dijkstra tree from the source
+ * and one from the target at the same time. The search stops as soon as the smallest
+ * keys of the two heaps add up to at least the best path found through a vertex that
+ * both searches have reached, which proves that path is shortest.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class BidirectionalDijkstra {
+
+	/** The graph being searched. */
+	private final IndexedGraph myGraph;
+
+	/** The state of the search from the source. */
+	private final QueryContext myForward;
+
+	/** The state of the search from the target. */
+	private final QueryContext myBackward;
+
+	/** The length of the best path found so far, kept in a long since the lengths of
+	 * the two halves may add up to more than an int holds. */
+	private long myBest;
+
+	/** The vertex where the best forward and backward paths meet. */
+	private int myMeeting;
+
+	/** The combined counters of both searches. */
+	private final SearchStats myStats = new SearchStats();
+
+	/**
+	 * Initialize a new BidirectionalDijkstra for the passed graph.
+	 *
+	 * @param G the graph to search
+	 */
+	public BidirectionalDijkstra(IndexedGraph G) {
+		myGraph = G;
+		myForward = new QueryContext(G.vertexCount());
+		myBackward = new QueryContext(G.vertexCount());
+	}
+
+	/**
+	 * Find the length of the shortest path between the passed vertices.
+	 *
+	 * @param source the id of the starting vertex
+	 * @param target the id of the ending vertex
+	 * @return the length of the shortest path, or Integer.MAX_VALUE if there is none
+	 */
+	public int search(int source, int target) {
+		myForward.begin();
+		myBackward.begin();
+		myBest = Long.MAX_VALUE;
+		myMeeting = -1;
+		myForward.relax(source, 0, QueryContext.NONE);
+		myBackward.relax(target, 0, QueryContext.NONE);
+		if (source == target) {
+			myBest = 0;
+			myMeeting = source;
+			return 0;
+		}
+		IndexedMinHeap forwardHeap = myForward.getHeap();
+		IndexedMinHeap backwardHeap = myBackward.getHeap();
+		try {
+			while (!forwardHeap.isEmpty() && !backwardHeap.isEmpty()) {
+				long forwardKey = forwardHeap.minPriority();
+				long backwardKey = backwardHeap.minPriority();
+				if (forwardKey + backwardKey >= myBest) {
+					break;
+				}
+				// always advance the side whose frontier is closer
+				if (forwardKey <= backwardKey) {
+					expand(myForward, myBackward);
+				} else {
+					expand(myBackward, myForward);
+				}
+			}
+		} catch (EmptyHeapException e) {
+			e.printStackTrace();
+		}
+		return myMeeting < 0 ? Integer.MAX_VALUE : QueryContext.checkedLength(myBest);
+	}
+
+	/**
+	 * Settle the closest vertex of one search and relax its arcs.
+	 *
+	 * @param search the search being advanced
+	 * @param other the opposite search
+	 */
+	private void expand(QueryContext search, QueryContext other) throws EmptyHeapException {
+		int u = search.settleNext();
+		int du = search.distance(u);
+		search.scanned(myGraph.endEdge(u) - myGraph.firstEdge(u));
+		for (int e = myGraph.firstEdge(u); e < myGraph.endEdge(u); e++) {
+			int v = myGraph.target(e);
+			int distance = QueryContext.extend(du, myGraph.weight(e));
+			if (distance < search.distance(v)) {
+				search.relax(v, distance, u);
+			}
+			if (other.isReached(v)) {
+				long length = (long) search.distance(v) + other.distance(v);
+				if (length < myBest) {
+					myBest = length;
+					myMeeting = v;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return the ids of the vertices on the shortest path found by the last search, from
+	 * the source to the target.
+	 *
+	 * @return the path, or null if the target is unreachable
+	 */
+	public int[] getPath() {
+		if (myMeeting < 0) {
+			return null;
+		}
+		int[] forward = myForward.path(myMeeting);
+		int backwardHops = 0;
+		for (int v = myMeeting; myBackward.pred(v) != QueryContext.NONE; v = myBackward.pred(v)) {
+			backwardHops++;
+		}
+		int[] path = Arrays.copyOf(forward, forward.length + backwardHops);
+		int i = forward.length;
+		for (int v = myBackward.pred(myMeeting); v != QueryContext.NONE; v = myBackward.pred(v)) {
+			path[i++] = v;
+		}
+		return path;
+	}
+
+	/**
+	 * Return the number of vertices settled by the last search.
+	 *
+	 * @return the number of settled vertices
+	 */
+	public int getSettledCount() {
+		return myForward.getSettledCount() + myBackward.getSettledCount();
+	}
+
+	/**
+	 * Return the counters of the last search, the sum of its two halves. They are only
+	 * kept when SearchMetrics.ENABLED is set.
+	 *
+	 * @return the counters
+	 */
+	public SearchStats getStats() {
+		myStats.reset();
+		myStats.add(myForward.getStats());
+		myStats.add(myBackward.getStats());
+		return myStats;
+	}
+
+	/**
+	 * Code to compare the work done by a bidirectional search with a full run.
+	 */
+	public static void main(String[] args) {
+		CompactGraph G = GraphInput.LoadCompactGraph(
+				args.length > 0 ? args[0] : "./testGraphs/path2.txt");
+		BidirectionalDijkstra search = new BidirectionalDijkstra(G);
+		MinHeapImplementation full = new MinHeapImplementation(G);
+		long settled = 0;
+		for (int s = 0; s < G.vertexCount(); s++) {
+			full.runAlgorithm(G.getVertex(s));
+			for (int t = 0; t < G.vertexCount(); t++) {
+				int distance = search.search(s, t);
+				if (distance != full.getDistance(G.getVertex(t))) {
+					System.out.println("Mismatch from " + G.getVertex(s) + " to " + G.getVertex(t));
+				}
+				settled += search.getSettledCount();
+			}
+		}
+		long pairs = (long) G.vertexCount() * G.vertexCount();
+		System.out.println("Average settled per query: " + (double) settled / pairs
+				+ " of " + G.vertexCount() + " vertices");
+	}
+}
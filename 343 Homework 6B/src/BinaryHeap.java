@@ -12,6 +12,8 @@ public class BinaryHeap {
      */
     private DijkstraHeapNode[] elements;
     private int size;       // index of last element in the heap
+    // moves and high-water mark, kept when SearchMetrics.ENABLED is set
+    private final SearchStats stats = new SearchStats();
     
     // Constructor
     public BinaryHeap() {
@@ -44,6 +46,7 @@ public class BinaryHeap {
         BinaryHeap newHeap = new BinaryHeap(data.length);
         for (int i = 0; i < data.length; i++) {
             newHeap.elements[i+1] = data[i];
+            data[i].setIndex(i+1);
         }
         newHeap.size = data.length;
         for (int i = newHeap.size / 2; i > 0; i--) {
@@ -62,6 +65,39 @@ public class BinaryHeap {
     }
     
     
+    /**
+     * Return the object with minimum key without removing it.
+     * @return  the object with minimum key of the heap
+     */
+    public DijkstraHeapNode findMin() throws EmptyHeapException {
+        if (isEmpty()) {
+            throw new EmptyHeapException();
+        }
+        return elements[1];
+    }
+    
+    
+    /**
+     * Remove every object from the heap.
+     */
+    public void makeEmpty() {
+        for (int i = 1; i <= size; i++) {
+            elements[i] = null;
+        }
+        size = 0;
+    }
+    
+    
+    /**
+     * Return the counters of this heap: its moves and high-water mark. They are
+     * only kept when SearchMetrics.ENABLED is set.
+     * @return  the counters
+     */
+    public SearchStats getStats() {
+        return stats;
+    }
+    
+    
     /**
      * Insert an object into the heap.
      * @param key   a key
@@ -71,14 +107,13 @@ public class BinaryHeap {
         if (size >= elements.length - 1) {
             // not enough room -- create a new array and copy
             // the elements of the old array to the new
-            DijkstraHeapNode[] newElements = new DijkstraHeapNode[2*size];
-            for (int i = 0; i < elements.length; i++) {
-                newElements[i] = elements[i];
-            }
-            elements = newElements;
+            elements = java.util.Arrays.copyOf(elements, 2 * elements.length);
         }
         
         size++;
+        if (SearchMetrics.ENABLED && size > stats.highWater) {
+            stats.highWater = size;
+        }
         key.setIndex(size);
         elements[size] = key;
         percolateUp(key);
@@ -111,15 +146,20 @@ public class BinaryHeap {
     public void percolateUp(DijkstraHeapNode target) {
     	int index = target.getIndex();
         DijkstraHeapNode temp = elements[index];  // keep track of the item to be moved
+        int moves = 0;
         while (index > 1) {
             if (temp.compareTo(elements[index/2]) < 0) {
                 elements[index] = elements[index/2];
                 elements[index].setIndex(index);
                 index = index / 2;
+                moves++;
             } else {
                 break;
             }
         }
+        if (SearchMetrics.ENABLED) {
+            stats.upMoves += moves;
+        }
         temp.setIndex(index);
         target.setIndex(index);
         elements[index] = temp;
@@ -133,6 +173,7 @@ public class BinaryHeap {
     private void percolateDown(int index) {
         int child;
         DijkstraHeapNode temp = elements[index];
+        int moves = 0;
         
         while (2*index <= size) {
             child = 2 * index;
@@ -146,10 +187,14 @@ public class BinaryHeap {
                 elements[index] = elements[child];
                 elements[index].setIndex(index);
                 index = child;
+                moves++;
             } else {
                 break;
             }
         }
+        if (SearchMetrics.ENABLED) {
+            stats.downMoves += moves;
+        }
         elements[index] = temp;
         elements[index].setIndex(index);
     
@@ -0,0 +1,271 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable snapshot of an undirected graph stored in compressed sparse row form.
+ *
+ * Every vertex is mapped to a dense id in the range [0, vertexCount()). The arcs leaving
+ * vertex v are stored in targets[offsets[v]] .. targets[offsets[v + 1] - 1] with their
+ * weights at the same positions of weights. Each undirected edge is stored as two arcs,
+ * one in each direction.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class CompactGraph implements IndexedGraph {
+
+	/** The index of the first arc of each vertex; offsets[vertexCount()] is the arc count. */
+	private int[] myOffsets;
+
+	/** The head vertex id of each arc. */
+	private int[] myTargets;
+
+	/** The weight of each arc. */
+	private int[] myWeights;
+
+	/** The vertex corresponding to each id. */
+	private final Vertex[] myVertices;
+
+	/** Maps each vertex to its id. */
+	private final Map<Vertex, Integer> myIds;
+
+	/** The largest arc weight in the graph. */
+	private int myMaxWeight;
+
+	/**
+	 * Initialize a new CompactGraph from the passed SimpleGraph. Vertex ids follow the
+	 * vertex list order and edge weights are truncated to ints the same way the engines
+	 * have always read them.
+	 *
+	 * @param G the graph to copy
+	 */
+	public CompactGraph(SimpleGraph G) {
+		int n = G.numVertices();
+		int m = G.numEdges();
+		Vertex[] vertices = new Vertex[n];
+		Map<Vertex, Integer> ids = new IdentityHashMap<Vertex, Integer>(2 * n);
+		Iterator<?> iter = G.vertices();
+		while (iter.hasNext()) {
+			Vertex v = (Vertex) iter.next();
+			vertices[ids.size()] = v;
+			ids.put(v, ids.size());
+		}
+		int[] from = new int[m];
+		int[] to = new int[m];
+		int[] weight = new int[m];
+		iter = G.edges();
+		for (int i = 0; iter.hasNext(); i++) {
+			Edge e = (Edge) iter.next();
+			from[i] = ids.get(e.getFirstEndpoint());
+			to[i] = ids.get(e.getSecondEndpoint());
+			weight[i] = (int) (double) e.getData();
+		}
+		myVertices = vertices;
+		myIds = ids;
+		build(n, from, to, weight, m);
+	}
+
+	/**
+	 * Initialize a new CompactGraph from an edge list. Edge i joins from[i] and to[i]
+	 * with weight weight[i].
+	 *
+	 * @param vertices the vertex for each id; only the first n entries are used
+	 * @param n the number of vertices
+	 * @param from the first endpoint of each edge
+	 * @param to the second endpoint of each edge
+	 * @param weight the weight of each edge
+	 * @param m the number of edges
+	 */
+	CompactGraph(Vertex[] vertices, int n, int[] from, int[] to, int[] weight, int m) {
+		myVertices = vertices.length == n ? vertices : Arrays.copyOf(vertices, n);
+		myIds = new IdentityHashMap<Vertex, Integer>(2 * n);
+		for (int v = 0; v < n; v++) {
+			myIds.put(myVertices[v], v);
+		}
+		build(n, from, to, weight, m);
+	}
+
+	/**
+	 * Initialize a new CompactGraph that takes ownership of ready-made arc arrays.
+	 *
+	 * @param vertices the vertex for each id
+	 * @param offsets the index of the first arc of each vertex, followed by the arc count
+	 * @param targets the head vertex id of each arc
+	 * @param weights the weight of each arc
+	 * @param maxWeight the largest weight in weights
+	 */
+	CompactGraph(Vertex[] vertices, int[] offsets, int[] targets, int[] weights, int maxWeight) {
+		myVertices = vertices;
+		myIds = new IdentityHashMap<Vertex, Integer>(2 * vertices.length);
+		for (int v = 0; v < vertices.length; v++) {
+			myIds.put(vertices[v], v);
+		}
+		myOffsets = offsets;
+		myTargets = targets;
+		myWeights = weights;
+		myMaxWeight = maxWeight;
+	}
+
+	/**
+	 * Fill the arc arrays from an edge list using a counting sort on the tail vertex.
+	 *
+	 * @throws IllegalArgumentException if an edge has a negative weight
+	 */
+	private void build(int n, int[] from, int[] to, int[] weight, int m) {
+		// the engines assume a settled distance is final, which needs weights of at least 0
+		for (int i = 0; i < m; i++) {
+			if (weight[i] < 0) {
+				throw new IllegalArgumentException("Negative edge weight " + weight[i]
+						+ " on the edge from " + myVertices[from[i]].getName() + " to "
+						+ myVertices[to[i]].getName());
+			}
+		}
+		myOffsets = new int[n + 1];
+		myTargets = new int[2 * m];
+		myWeights = new int[2 * m];
+		// count the degree of each vertex, then turn the counts into start offsets
+		for (int i = 0; i < m; i++) {
+			myOffsets[from[i] + 1]++;
+			myOffsets[to[i] + 1]++;
+		}
+		for (int v = 0; v < n; v++) {
+			myOffsets[v + 1] += myOffsets[v];
+		}
+		int[] next = Arrays.copyOf(myOffsets, n);
+		int max = 0;
+		for (int i = 0; i < m; i++) {
+			int a = next[from[i]]++;
+			myTargets[a] = to[i];
+			myWeights[a] = weight[i];
+			int b = next[to[i]]++;
+			myTargets[b] = from[i];
+			myWeights[b] = weight[i];
+			if (weight[i] > max) {
+				max = weight[i];
+			}
+		}
+		myMaxWeight = max;
+	}
+
+	/**
+	 * Return the number of vertices in this graph.
+	 *
+	 * @return the number of vertices
+	 */
+	public int vertexCount() {
+		return myVertices.length;
+	}
+
+	/**
+	 * Return the number of arcs in this graph, which is twice the number of edges.
+	 *
+	 * @return the number of arcs
+	 */
+	public int arcCount() {
+		return myTargets.length;
+	}
+
+	/**
+	 * Return the index of the first arc leaving the passed vertex.
+	 *
+	 * @param v a vertex id
+	 * @return the first arc of v
+	 */
+	public int firstEdge(int v) {
+		return myOffsets[v];
+	}
+
+	/**
+	 * Return one past the index of the last arc leaving the passed vertex.
+	 *
+	 * @param v a vertex id
+	 * @return the end of the arc range of v
+	 */
+	public int endEdge(int v) {
+		return myOffsets[v + 1];
+	}
+
+	/**
+	 * Return the vertex id at the head of the passed arc.
+	 *
+	 * @param e an arc index
+	 * @return the head of e
+	 */
+	public int target(int e) {
+		return myTargets[e];
+	}
+
+	/**
+	 * Return the weight of the passed arc.
+	 *
+	 * @param e an arc index
+	 * @return the weight of e
+	 */
+	public int weight(int e) {
+		return myWeights[e];
+	}
+
+	/**
+	 * Return the largest arc weight in this graph.
+	 *
+	 * @return the largest weight, or 0 if the graph has no edges
+	 */
+	public int maxWeight() {
+		return myMaxWeight;
+	}
+
+	/**
+	 * Return the version of this graph, which is always 0 since it never changes.
+	 *
+	 * @return 0
+	 */
+	public long getVersion() {
+		return 0;
+	}
+
+	/**
+	 * Return the vertex with the passed id.
+	 *
+	 * @param id a vertex id
+	 * @return the vertex
+	 */
+	public Vertex getVertex(int id) {
+		return myVertices[id];
+	}
+
+	/**
+	 * Return an arbitrary vertex of this graph.
+	 *
+	 * @return some vertex of this graph, or null if the graph is empty
+	 */
+	public Vertex aVertex() {
+		return myVertices.length > 0 ? myVertices[0] : null;
+	}
+
+	/**
+	 * Return the id of the passed vertex.
+	 *
+	 * @param v a vertex of this graph
+	 * @return the id of v, or -1 if v is not in this graph
+	 */
+	public int getId(Vertex v) {
+		Integer id = myIds.get(v);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Return a set of all the vertices in id order.
+	 *
+	 * @return a set of all the vertices
+	 */
+	public Set<Vertex> getVertices() {
+		Set<Vertex> result = new LinkedHashSet<Vertex>(2 * myVertices.length);
+		Collections.addAll(result, myVertices);
+		return result;
+	}
+}
@@ -0,0 +1,703 @@
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * This class answers shortest path queries with a contraction hierarchy.
+ *
+ * Preprocessing removes the vertices one at a time in order of importance. Whenever a
+ * removed vertex lies on the only shortest path between two of its remaining neighbors,
+ * a shortcut edge joining those neighbors is added. Afterwards every vertex keeps only
+ * the edges and shortcuts that lead to more important vertices. Because the graph is
+ * undirected, this upward graph serves both the search from the source and the search
+ * from the target, and a query only has to run two small upward searches that meet at
+ * the most important vertex of the shortest path.
+ *
+ * The hierarchy is never changed once it is built. Each instance keeps its own query
+ * state, so instances made with the sharing constructor can answer queries on separate
+ * threads while the preprocessing is only done once.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class ContractionHierarchy implements Algorithm {
+
+	/** The number of vertices a witness search may settle before it gives up. */
+	private static final int WITNESS_SETTLE_LIMIT = 500;
+
+	/** The original graph. */
+	private final IndexedGraph myGraph;
+
+	/** The position of each vertex in the contraction order. */
+	private final int[] myRank;
+
+	/** The index of the first upward arc of each vertex. */
+	private int[] myUpOffsets;
+
+	/** The head of each upward arc; it always has a higher rank than the tail. */
+	private int[] myUpTargets;
+
+	/** The weight of each upward arc. */
+	private int[] myUpWeights;
+
+	/** The vertex a shortcut arc skips over, or -1 for an original edge. */
+	private int[] myUpMiddles;
+
+	/** The number of shortcuts added during preprocessing. */
+	private int myShortcutCount;
+
+	/** The state of the upward search from the source. */
+	private final QueryContext myForward;
+
+	/** The state of the upward search from the target. */
+	private final QueryContext myBackward;
+
+	/** The vertex ids along the path found by the last query, or null. */
+	private int[] myPath;
+
+	/** The distance from the source to each vertex of myPath. */
+	private int[] myPathDistances;
+
+	/** The engine used for full single-source runs. */
+	private final MinHeapImplementation myFullSearch;
+
+	/** True if the last run was a full single-source run. */
+	private boolean myFullMode;
+
+	/**
+	 * Initialize a new ContractionHierarchy and preprocess the passed graph.
+	 *
+	 * @param G the graph to evaluate
+	 */
+	public ContractionHierarchy(SimpleGraph G) {
+		this(new CompactGraph(G));
+	}
+
+	/**
+	 * Initialize a new ContractionHierarchy and preprocess the passed graph.
+	 *
+	 * @param G the graph to evaluate
+	 */
+	public ContractionHierarchy(IndexedGraph G) {
+		myGraph = G;
+		myRank = new int[G.vertexCount()];
+		myForward = new QueryContext(G.vertexCount());
+		myBackward = new QueryContext(G.vertexCount());
+		myFullSearch = new MinHeapImplementation(G);
+		new Contractor().contract();
+	}
+
+	/**
+	 * Initialize a new ContractionHierarchy that shares the hierarchy of another one
+	 * instead of preprocessing the graph again. Only the query state is new, so the two
+	 * can answer queries on different threads.
+	 *
+	 * @param hierarchy a preprocessed hierarchy
+	 */
+	public ContractionHierarchy(ContractionHierarchy hierarchy) {
+		myGraph = hierarchy.myGraph;
+		myRank = hierarchy.myRank;
+		myUpOffsets = hierarchy.myUpOffsets;
+		myUpTargets = hierarchy.myUpTargets;
+		myUpWeights = hierarchy.myUpWeights;
+		myUpMiddles = hierarchy.myUpMiddles;
+		myShortcutCount = hierarchy.myShortcutCount;
+		myForward = new QueryContext(myGraph.vertexCount());
+		myBackward = new QueryContext(myGraph.vertexCount());
+		myFullSearch = new MinHeapImplementation(myGraph);
+	}
+
+	/**
+	 * Runs a full single-source search with the passed vertex as the starting city. The
+	 * hierarchy only speeds up point-to-point queries, so this uses the plain heap engine.
+	 *
+	 * @param s the starting city vertex
+	 */
+	public void runAlgorithm(Vertex s) {
+		myFullMode = true;
+		myFullSearch.runAlgorithm(s);
+	}
+
+	/**
+	 * Finds the shortest path from source to target with two upward searches.
+	 *
+	 * @param source the starting city vertex
+	 * @param target the ending city vertex
+	 */
+	public void runAlgorithm(Vertex source, Vertex target) {
+		myFullMode = false;
+		query(myGraph.getId(source), myGraph.getId(target));
+	}
+
+	/**
+	 * Return the distance to the passed vertex found by the last run.
+	 *
+	 * @param v a vertex
+	 * @return the distance to v, or Integer.MAX_VALUE if no path to v is known
+	 */
+	public int getDistance(Vertex v) {
+		if (myFullMode) {
+			return myFullSearch.getDistance(v);
+		}
+		int id = myGraph.getId(v);
+		if (myPath != null) {
+			for (int i = 0; i < myPath.length; i++) {
+				if (myPath[i] == id) {
+					return myPathDistances[i];
+				}
+			}
+		}
+		return Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Return the shortest path description starting from the starting vertex and ending at
+	 * the last vertex.
+	 *
+	 * @param first the starting vertex
+	 * @param last the ending vertex
+	 * @return the path
+	 */
+	public String getPath(Vertex first, Vertex last) {
+		return PathFormat.HTML.format(getPathResult(first, last));
+	}
+
+	/**
+	 * Return the shortest path from the starting vertex to the last vertex.
+	 *
+	 * @param first the starting vertex
+	 * @param last the ending vertex
+	 * @return the path, or null if there is none
+	 */
+	public PathResult getPathResult(Vertex first, Vertex last) {
+		if (myFullMode) {
+			return myFullSearch.getPathResult(first, last);
+		}
+		if (myPath == null || myPath[myPath.length - 1] != myGraph.getId(last)) {
+			return null;
+		}
+		return PathResult.of(myGraph, myPath);
+	}
+
+	/**
+	 * Return a set of all the vertices.
+	 *
+	 * @return a set of all the vertices
+	 */
+	public Set<Vertex> getVertices() {
+		return myGraph.getVertices();
+	}
+
+	/**
+	 * Return the number of shortcuts added during preprocessing.
+	 *
+	 * @return the number of shortcuts
+	 */
+	public int getShortcutCount() {
+		return myShortcutCount;
+	}
+
+	/**
+	 * Return the number of vertices settled by the last point-to-point query.
+	 *
+	 * @return the number of settled vertices
+	 */
+	public int getSettledCount() {
+		return myForward.getSettledCount() + myBackward.getSettledCount();
+	}
+
+	/**
+	 * Run the two upward searches and unpack the shortest path they find.
+	 *
+	 * @param source the id of the starting vertex
+	 * @param target the id of the ending vertex
+	 */
+	private void query(int source, int target) {
+		myForward.begin();
+		myBackward.begin();
+		myPath = null;
+		myPathDistances = null;
+
+		myForward.relax(source, 0, QueryContext.NONE);
+		myBackward.relax(target, 0, QueryContext.NONE);
+		IndexedMinHeap forwardHeap = myForward.getHeap();
+		IndexedMinHeap backwardHeap = myBackward.getHeap();
+		// the two halves of a path may add up to more than an int holds
+		long best = Long.MAX_VALUE;
+		int meeting = -1;
+		try {
+			// unlike plain bidirectional search, each side must continue until its own
+			// minimum reaches the best distance, since the upward paths are not monotone
+			while (!forwardHeap.isEmpty() || !backwardHeap.isEmpty()) {
+				boolean forward;
+				if (forwardHeap.isEmpty()) {
+					forward = false;
+				} else if (backwardHeap.isEmpty()) {
+					forward = true;
+				} else {
+					forward = forwardHeap.minPriority() <= backwardHeap.minPriority();
+				}
+				QueryContext search = forward ? myForward : myBackward;
+				QueryContext other = forward ? myBackward : myForward;
+				IndexedMinHeap heap = search.getHeap();
+				if (heap.minPriority() >= best) {
+					heap.clear();
+					continue;
+				}
+				int u = search.settleNext();
+				int du = search.distance(u);
+				if (other.isReached(u) && (long) du + other.distance(u) < best) {
+					best = (long) du + other.distance(u);
+					meeting = u;
+				}
+				if (isStalled(search, u, du)) {
+					continue;
+				}
+				search.scanned(myUpOffsets[u + 1] - myUpOffsets[u]);
+				for (int e = myUpOffsets[u]; e < myUpOffsets[u + 1]; e++) {
+					int v = myUpTargets[e];
+					int distance = QueryContext.extend(du, myUpWeights[e]);
+					// settled vertices never pass this test since weights are not negative
+					if (distance < search.distance(v)) {
+						search.relax(v, distance, u);
+					}
+				}
+			}
+		} catch (EmptyHeapException e) {
+			e.printStackTrace();
+		}
+		if (meeting >= 0) {
+			QueryContext.checkedLength(best);
+			unpack(meeting);
+		}
+	}
+
+	/**
+	 * Return true if a more important vertex already reached by this search proves that
+	 * the distance du of u is too large, so that expanding u is wasted work.
+	 */
+	private boolean isStalled(QueryContext search, int u, int du) {
+		for (int e = myUpOffsets[u]; e < myUpOffsets[u + 1]; e++) {
+			int w = myUpTargets[e];
+			if (search.isReached(w) && (long) search.distance(w) + myUpWeights[e] < du) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Turn the two upward paths through the meeting vertex into a path of original edges.
+	 */
+	private void unpack(int meeting) {
+		int[] path = new int[16];
+		int[] distances = new int[16];
+		int length = 0;
+		// the forward half, collected from the meeting vertex back to the source
+		int[] up = new int[16];
+		int ups = 0;
+		for (int v = meeting; v != QueryContext.NONE; v = myForward.pred(v)) {
+			if (ups == up.length) {
+				up = Arrays.copyOf(up, 2 * ups);
+			}
+			up[ups++] = v;
+		}
+		int[] stack = new int[16];
+		path[length++] = up[ups - 1];
+		for (int i = ups - 1; i > 0; i--) {
+			stack[0] = up[i - 1];
+			int top = 1;
+			int from = up[i];
+			// expand shortcuts depth first so that vertices come out in path order
+			while (top > 0) {
+				int to = stack[top - 1];
+				int middle = middleOf(from, to);
+				if (middle < 0) {
+					top--;
+					if (length == path.length) {
+						path = Arrays.copyOf(path, 2 * length);
+						distances = Arrays.copyOf(distances, 2 * length);
+					}
+					distances[length] = distances[length - 1] + weightBetween(from, to);
+					path[length++] = to;
+					from = to;
+				} else {
+					if (top == stack.length) {
+						stack = Arrays.copyOf(stack, 2 * top);
+					}
+					stack[top++] = middle;
+				}
+			}
+		}
+		// the backward half, from the meeting vertex on to the target
+		for (int v = meeting; myBackward.pred(v) != QueryContext.NONE; v = myBackward.pred(v)) {
+			stack[0] = myBackward.pred(v);
+			int top = 1;
+			int from = v;
+			while (top > 0) {
+				int to = stack[top - 1];
+				int middle = middleOf(from, to);
+				if (middle < 0) {
+					top--;
+					if (length == path.length) {
+						path = Arrays.copyOf(path, 2 * length);
+						distances = Arrays.copyOf(distances, 2 * length);
+					}
+					distances[length] = distances[length - 1] + weightBetween(from, to);
+					path[length++] = to;
+					from = to;
+				} else {
+					if (top == stack.length) {
+						stack = Arrays.copyOf(stack, 2 * top);
+					}
+					stack[top++] = middle;
+				}
+			}
+		}
+		myPath = Arrays.copyOf(path, length);
+		myPathDistances = Arrays.copyOf(distances, length);
+	}
+
+	/**
+	 * Return the index of the lightest upward arc joining u and v.
+	 */
+	private int arcBetween(int u, int v) {
+		int low = myRank[u] < myRank[v] ? u : v;
+		int high = low == u ? v : u;
+		int best = -1;
+		for (int e = myUpOffsets[low]; e < myUpOffsets[low + 1]; e++) {
+			if (myUpTargets[e] == high && (best < 0 || myUpWeights[e] < myUpWeights[best])) {
+				best = e;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Return the vertex skipped by the lightest arc joining u and v, or -1 if it is an
+	 * original edge.
+	 */
+	private int middleOf(int u, int v) {
+		return myUpMiddles[arcBetween(u, v)];
+	}
+
+	/**
+	 * Return the weight of the lightest arc joining u and v.
+	 */
+	private int weightBetween(int u, int v) {
+		return myUpWeights[arcBetween(u, v)];
+	}
+
+	/**
+	 * The state used while contracting the graph. It is thrown away once the upward
+	 * graph has been built.
+	 */
+	private class Contractor {
+
+		/** The neighbors of each vertex, including shortcuts. */
+		private final int[][] myAdjacent;
+
+		/** The weight of each entry of myAdjacent. */
+		private final int[][] myAdjacentWeights;
+
+		/** The middle vertex of each entry of myAdjacent, or -1 for an original edge. */
+		private final int[][] myAdjacentMiddles;
+
+		/** The number of entries used in each row of myAdjacent. */
+		private final int[] myDegree;
+
+		/** True once a vertex has been contracted. */
+		private final boolean[] myContracted;
+
+		/** The number of contracted neighbors of each vertex. */
+		private final int[] myDeletedNeighbors;
+
+		/** The witness search distance of each vertex, valid when its stamp matches. */
+		private final int[] myWitnessDistance;
+
+		/** The search in which each witness distance was set. */
+		private final int[] myWitnessStamp;
+
+		/** The search for which each vertex was marked as a target. */
+		private final int[] myTargetStamp;
+
+		/** The witness search node of each vertex, valid when its stamp matches. */
+		private final DijkstraHeapNode[] myWitnessNodes;
+
+		/** The number of the current witness search. */
+		private int myStamp;
+
+		/** Shortcuts found by the last simulation: tail, head, weight for each. */
+		private int[] myFound;
+
+		/** The number of shortcuts in myFound. */
+		private int myFoundCount;
+
+		/**
+		 * Copy the original graph into modifiable adjacency arrays.
+		 */
+		Contractor() {
+			int n = myGraph.vertexCount();
+			myAdjacent = new int[n][];
+			myAdjacentWeights = new int[n][];
+			myAdjacentMiddles = new int[n][];
+			myDegree = new int[n];
+			myContracted = new boolean[n];
+			myDeletedNeighbors = new int[n];
+			myWitnessDistance = new int[n];
+			myWitnessStamp = new int[n];
+			myTargetStamp = new int[n];
+			myWitnessNodes = new DijkstraHeapNode[n];
+			myFound = new int[48];
+			for (int v = 0; v < n; v++) {
+				int first = myGraph.firstEdge(v);
+				int degree = myGraph.endEdge(v) - first;
+				myAdjacent[v] = new int[Math.max(degree, 2)];
+				myAdjacentWeights[v] = new int[Math.max(degree, 2)];
+				myAdjacentMiddles[v] = new int[Math.max(degree, 2)];
+				for (int i = 0; i < degree; i++) {
+					myAdjacent[v][i] = myGraph.target(first + i);
+					myAdjacentWeights[v][i] = myGraph.weight(first + i);
+					myAdjacentMiddles[v][i] = -1;
+				}
+				myDegree[v] = degree;
+			}
+		}
+
+		/**
+		 * Contract every vertex in order of edge difference, then build the upward graph.
+		 */
+		void contract() {
+			int n = myGraph.vertexCount();
+			BinaryHeap queue = new BinaryHeap(n);
+			for (int v = 0; v < n; v++) {
+				queue.insert(new DijkstraHeapNode(myGraph.getVertex(v), priority(v), v));
+			}
+			int order = 0;
+			try {
+				while (!queue.isEmpty()) {
+					DijkstraHeapNode node = queue.deleteMin();
+					int v = node.getVertexId();
+					// priorities go stale as neighbors are contracted, so check again
+					// before contracting and put the vertex back if it got worse
+					int priority = priority(v);
+					if (!queue.isEmpty() && priority > queue.findMin().getDistance()) {
+						node.setDistance(priority);
+						queue.insert(node);
+						continue;
+					}
+					// priority() has just simulated v, so myFound holds its shortcuts
+					for (int i = 0; i < myFoundCount; i++) {
+						int u = myFound[3 * i];
+						int w = myFound[3 * i + 1];
+						int weight = myFound[3 * i + 2];
+						addArc(u, w, weight, v);
+						addArc(w, u, weight, v);
+						myShortcutCount++;
+					}
+					myContracted[v] = true;
+					myRank[v] = order++;
+					for (int i = 0; i < myDegree[v]; i++) {
+						myDeletedNeighbors[myAdjacent[v][i]]++;
+					}
+				}
+			} catch (EmptyHeapException e) {
+				e.printStackTrace();
+			}
+			buildUpwardGraph();
+		}
+
+		/**
+		 * Return the edge difference of a vertex: the shortcuts its contraction would add,
+		 * less the edges it would remove, plus its contracted neighbors so that
+		 * contraction spreads evenly over the graph.
+		 */
+		private int priority(int v) {
+			simulate(v);
+			int edges = 0;
+			for (int i = 0; i < myDegree[v]; i++) {
+				if (!myContracted[myAdjacent[v][i]]) {
+					edges++;
+				}
+			}
+			return myFoundCount - edges + myDeletedNeighbors[v];
+		}
+
+		/**
+		 * Find the shortcuts needed if v were contracted now and store them in myFound.
+		 */
+		private void simulate(int v) {
+			myFoundCount = 0;
+			int[] adjacent = myAdjacent[v];
+			int[] weights = myAdjacentWeights[v];
+			for (int i = 0; i < myDegree[v]; i++) {
+				int u = adjacent[i];
+				if (myContracted[u]) {
+					continue;
+				}
+				// the longest path through v that a witness would have to beat
+				myStamp++;
+				int limit = 0;
+				int targets = 0;
+				for (int j = i + 1; j < myDegree[v]; j++) {
+					int w = adjacent[j];
+					if (!myContracted[w] && w != u) {
+						limit = Math.max(limit, QueryContext.extend(weights[i], weights[j]));
+						if (myTargetStamp[w] != myStamp) {
+							myTargetStamp[w] = myStamp;
+							targets++;
+						}
+					}
+				}
+				if (targets == 0) {
+					continue;
+				}
+				witnessSearch(u, v, limit, targets);
+				for (int j = i + 1; j < myDegree[v]; j++) {
+					int w = adjacent[j];
+					if (myContracted[w] || w == u) {
+						continue;
+					}
+					int through = QueryContext.extend(weights[i], weights[j]);
+					if (myWitnessStamp[w] != myStamp || myWitnessDistance[w] > through) {
+						if (3 * myFoundCount + 3 > myFound.length) {
+							myFound = Arrays.copyOf(myFound, 2 * myFound.length);
+						}
+						myFound[3 * myFoundCount] = u;
+						myFound[3 * myFoundCount + 1] = w;
+						myFound[3 * myFoundCount + 2] = through;
+						myFoundCount++;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Run a Dijkstra search from u that avoids v and stops beyond limit, once all the
+		 * marked targets are settled or after settling WITNESS_SETTLE_LIMIT vertices.
+		 * Missing a witness only costs an unnecessary shortcut, never a wrong answer.
+		 */
+		private void witnessSearch(int u, int v, int limit, int targets) {
+			BinaryHeap heap = new BinaryHeap();
+			reach(heap, u, 0);
+			int settled = 0;
+			try {
+				while (!heap.isEmpty() && settled < WITNESS_SETTLE_LIMIT) {
+					DijkstraHeapNode x = heap.deleteMin();
+					if (x.getDistance() > limit) {
+						break;
+					}
+					x.setKnown(true);
+					settled++;
+					int id = x.getVertexId();
+					if (myTargetStamp[id] == myStamp && --targets == 0) {
+						break;
+					}
+					for (int i = 0; i < myDegree[id]; i++) {
+						int y = myAdjacent[id][i];
+						if (y == v || myContracted[y]) {
+							continue;
+						}
+						int distance = QueryContext.extend(x.getDistance(), myAdjacentWeights[id][i]);
+						if (myWitnessStamp[y] != myStamp) {
+							reach(heap, y, distance);
+						} else if (distance < myWitnessDistance[y]
+								&& !myWitnessNodes[y].isKnown()) {
+							myWitnessDistance[y] = distance;
+							myWitnessNodes[y].setDistance(distance);
+							heap.percolateUp(myWitnessNodes[y]);
+						}
+					}
+				}
+			} catch (EmptyHeapException e) {
+				e.printStackTrace();
+			}
+		}
+
+		/**
+		 * Record the first witness search distance to a vertex.
+		 */
+		private void reach(BinaryHeap heap, int y, int distance) {
+			myWitnessStamp[y] = myStamp;
+			myWitnessDistance[y] = distance;
+			myWitnessNodes[y] = new DijkstraHeapNode(null, distance, y);
+			heap.insert(myWitnessNodes[y]);
+		}
+
+		/**
+		 * Add an arc to the modifiable adjacency of u.
+		 */
+		private void addArc(int u, int w, int weight, int middle) {
+			if (myDegree[u] == myAdjacent[u].length) {
+				int capacity = 2 * myDegree[u];
+				myAdjacent[u] = Arrays.copyOf(myAdjacent[u], capacity);
+				myAdjacentWeights[u] = Arrays.copyOf(myAdjacentWeights[u], capacity);
+				myAdjacentMiddles[u] = Arrays.copyOf(myAdjacentMiddles[u], capacity);
+			}
+			myAdjacent[u][myDegree[u]] = w;
+			myAdjacentWeights[u][myDegree[u]] = weight;
+			myAdjacentMiddles[u][myDegree[u]] = middle;
+			myDegree[u]++;
+		}
+
+		/**
+		 * Keep the arcs of every vertex that lead to a higher ranked vertex.
+		 */
+		private void buildUpwardGraph() {
+			int n = myGraph.vertexCount();
+			myUpOffsets = new int[n + 1];
+			for (int v = 0; v < n; v++) {
+				int count = 0;
+				for (int i = 0; i < myDegree[v]; i++) {
+					if (myRank[myAdjacent[v][i]] > myRank[v]) {
+						count++;
+					}
+				}
+				myUpOffsets[v + 1] = myUpOffsets[v] + count;
+			}
+			myUpTargets = new int[myUpOffsets[n]];
+			myUpWeights = new int[myUpOffsets[n]];
+			myUpMiddles = new int[myUpOffsets[n]];
+			for (int v = 0; v < n; v++) {
+				int e = myUpOffsets[v];
+				for (int i = 0; i < myDegree[v]; i++) {
+					if (myRank[myAdjacent[v][i]] > myRank[v]) {
+						myUpTargets[e] = myAdjacent[v][i];
+						myUpWeights[e] = myAdjacentWeights[v][i];
+						myUpMiddles[e] = myAdjacentMiddles[v][i];
+						e++;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Code to check the hierarchy against the heap engine and time its queries.
+	 */
+	public static void main(String[] args) {
+		CompactGraph G = GraphInput.LoadCompactGraph(
+				args.length > 0 ? args[0] : "./testGraphs/path2.txt");
+		long begin = System.nanoTime();
+		ContractionHierarchy ch = new ContractionHierarchy(G);
+		System.out.println("Preprocessing took " + (System.nanoTime() - begin) / 1000000
+				+ " ms and added " + ch.getShortcutCount() + " shortcuts");
+		MinHeapImplementation full = new MinHeapImplementation(G);
+		int n = Math.min(G.vertexCount(), 100);
+		long queryTime = 0;
+		long settled = 0;
+		for (int s = 0; s < n; s++) {
+			full.runAlgorithm(G.getVertex(s));
+			for (int t = 0; t < n; t++) {
+				long before = System.nanoTime();
+				ch.runAlgorithm(G.getVertex(s), G.getVertex(t));
+				queryTime += System.nanoTime() - before;
+				settled += ch.getSettledCount();
+				if (ch.getDistance(G.getVertex(t)) != full.getDistance(G.getVertex(t))) {
+					System.out.println("Mismatch from " + G.getVertex(s) + " to " + G.getVertex(t));
+				}
+			}
+		}
+		System.out.println("Average query: " + queryTime / (n * n) / 1000.0 + " us, "
+				+ (double) settled / (n * n) + " vertices settled");
+	}
+}
@@ -0,0 +1,501 @@
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class implements the delta-stepping shortest path algorithm, which relaxes many
+ * edges at once across the cores of a fork-join pool.
+ *
+ * Tentative distances are grouped into buckets of width delta. The vertices of the first
+ * nonempty bucket are processed together: their light edges, of weight at most delta,
+ * are relaxed in parallel, which may put more vertices into the same bucket, and this is
+ * repeated until the bucket stays empty. Then the heavy edges of every vertex removed
+ * from the bucket are relaxed in parallel once. With delta = 1 this is Dial's algorithm;
+ * with larger delta there is more parallel work per step at the cost of some vertices
+ * being relaxed more than once.
+ *
+ * The distance and predecessor of each vertex are packed into one long and updated with
+ * compare-and-set, so a relaxation that lowers a distance also records its predecessor
+ * atomically. Only vertices whose distance was lowered are moved into buckets, which is
+ * done between the parallel steps. The buckets are used as a circular array.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class DeltaSteppingImplementation implements Algorithm {
+
+	/** The number of vertices below which a frontier is relaxed without forking. */
+	private static final int SEQUENTIAL_THRESHOLD = 256;
+
+	/** Marks a vertex with no predecessor. */
+	private static final int NONE = -1;
+
+	/** The label of a vertex that has not been reached. */
+	private static final long UNREACHED = pack(Integer.MAX_VALUE, NONE);
+
+	/** The graph being used. */
+	private final IndexedGraph myG;
+
+	/** The width of each bucket. */
+	private final int myDelta;
+
+	/** The pool the relaxations run on. */
+	private final ForkJoinPool myPool;
+
+	/** The distance of each vertex in the high half and its predecessor in the low half. */
+	private final AtomicLongArray myLabels;
+
+	/** The relaxation step in which each vertex was last added to myImproved. */
+	private final AtomicIntegerArray myImprovedStamps;
+
+	/** The vertices whose distance was lowered by the current relaxation step. */
+	private final int[] myImproved;
+
+	/** The number of entries in myImproved. */
+	private final AtomicInteger myImprovedCount;
+
+	/** The current relaxation step. */
+	private int myStep;
+
+	/** The vertices in each bucket, possibly with stale entries. */
+	private final int[][] myBucketItems;
+
+	/** The number of entries in each bucket. */
+	private final int[] myBucketSizes;
+
+	/** The number of entries in all buckets. */
+	private int myPending;
+
+	/** The distance at which each vertex last had its light edges relaxed, or -1. */
+	private final int[] myExpanded;
+
+	/** The vertices whose light edges are relaxed in the current step. */
+	private final int[] myFrontier;
+
+	/** The pass over a bucket in which each vertex was last put in myFrontier. */
+	private final int[] myFrontierStamps;
+
+	/** The current pass over a bucket. */
+	private int myPass;
+
+	/** The vertices removed from the current bucket. */
+	private final int[] myRemoved;
+
+	/** The bucket from which each vertex was last removed, plus one. */
+	private final int[] myRemovedStamps;
+
+	/** The target of the last point-to-point query, or NONE after a full run. */
+	private int myTarget;
+
+	/**
+	 * Initialize a new DeltaSteppingImplementation with a delta chosen from the graph.
+	 *
+	 * @param G the graph to evaluate
+	 */
+	public DeltaSteppingImplementation(IndexedGraph G) {
+		this(G, defaultDelta(G), ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Initialize a new DeltaSteppingImplementation.
+	 *
+	 * @param G the graph to evaluate
+	 * @param delta the width of each bucket, at least 1
+	 * @param pool the pool to run relaxations on
+	 */
+	public DeltaSteppingImplementation(IndexedGraph G, int delta, ForkJoinPool pool) {
+		if (delta < 1) {
+			throw new IllegalArgumentException("Delta must be positive, not " + delta);
+		}
+		long width = G.maxWeight() / delta + 2;
+		if (width > ArrayImplementation.MAX_BUCKETS) {
+			throw new IllegalArgumentException("Delta " + delta + " needs " + width
+					+ " buckets for edge weight " + G.maxWeight());
+		}
+		myG = G;
+		myDelta = delta;
+		myPool = pool;
+		int n = G.vertexCount();
+		myLabels = new AtomicLongArray(n);
+		myImprovedStamps = new AtomicIntegerArray(n);
+		myImproved = new int[n];
+		myImprovedCount = new AtomicInteger();
+		myBucketItems = new int[(int) width][];
+		for (int i = 0; i < myBucketItems.length; i++) {
+			myBucketItems[i] = new int[4];
+		}
+		myBucketSizes = new int[(int) width];
+		myExpanded = new int[n];
+		myFrontier = new int[n];
+		myFrontierStamps = new int[n];
+		myRemoved = new int[n];
+		myRemovedStamps = new int[n];
+		myTarget = NONE;
+	}
+
+	/**
+	 * Return the delta used when none is given: the largest edge weight divided by the
+	 * average degree, so a bucket holds about one edge's worth of distance per neighbor.
+	 *
+	 * @param G a graph
+	 * @return the delta, at least 1
+	 */
+	public static int defaultDelta(IndexedGraph G) {
+		if (G.arcCount() == 0) {
+			return 1;
+		}
+		long delta = (long) G.maxWeight() * G.vertexCount() / G.arcCount();
+		return (int) Math.max(1, Math.min(delta, Integer.MAX_VALUE));
+	}
+
+	/**
+	 * Return the width of each bucket.
+	 *
+	 * @return delta
+	 */
+	public int getDelta() {
+		return myDelta;
+	}
+
+	/**
+	 * Runs the algorithm with the passed vertex as the starting point city.
+	 *
+	 * @param s the starting city vertex
+	 */
+	public void runAlgorithm(Vertex s) {
+		myTarget = NONE;
+		run(myG.getId(s), NONE);
+	}
+
+	/**
+	 * Run delta-stepping from source, stopping once the bucket holding target has been
+	 * emptied, since every distance in a bucket is final once its light edges are done.
+	 *
+	 * @param source the id of the starting vertex
+	 * @param target the id of the vertex to stop at, or NONE to settle every reachable vertex
+	 */
+	private void run(int source, int target) {
+		int n = myG.vertexCount();
+		for (int v = 0; v < n; v++) {
+			myLabels.set(v, UNREACHED);
+			myImprovedStamps.set(v, 0);
+		}
+		Arrays.fill(myExpanded, -1);
+		Arrays.fill(myFrontierStamps, 0);
+		Arrays.fill(myRemovedStamps, 0);
+		Arrays.fill(myBucketSizes, 0);
+		myPending = 0;
+		myStep = 0;
+		myPass = 0;
+		myLabels.set(source, pack(0, NONE));
+		push(source);
+		int width = myBucketSizes.length;
+		// current walks the buckets in order; current % width is where it is stored
+		for (int current = 0; myPending > 0; current++) {
+			int slot = current % width;
+			int removedCount = 0;
+			while (myBucketSizes[slot] > 0) {
+				int size = myBucketSizes[slot];
+				myBucketSizes[slot] = 0;
+				myPending -= size;
+				myPass++;
+				int frontierCount = 0;
+				int[] items = myBucketItems[slot];
+				for (int i = 0; i < size; i++) {
+					int v = items[i];
+					int d = distanceOf(myLabels.get(v));
+					// an entry is stale if v has since moved to a lower bucket or been expanded
+					if (d / myDelta != current || myExpanded[v] == d || myFrontierStamps[v] == myPass) {
+						continue;
+					}
+					myFrontierStamps[v] = myPass;
+					myExpanded[v] = d;
+					myFrontier[frontierCount++] = v;
+					if (myRemovedStamps[v] != current + 1) {
+						myRemovedStamps[v] = current + 1;
+						myRemoved[removedCount++] = v;
+					}
+				}
+				relaxAll(myFrontier, frontierCount, true);
+			}
+			// heavy edges only reach later buckets, so they cannot lower target any more
+			if (target != NONE && distanceOf(myLabels.get(target)) / myDelta <= current) {
+				break;
+			}
+			relaxAll(myRemoved, removedCount, false);
+		}
+	}
+
+	/**
+	 * Relax the light or heavy edges of the passed vertices, in parallel if there are
+	 * enough of them, and then move every improved vertex to its bucket.
+	 */
+	private void relaxAll(int[] vertices, int count, boolean light) {
+		if (count == 0) {
+			return;
+		}
+		myStep++;
+		myImprovedCount.set(0);
+		if (count <= SEQUENTIAL_THRESHOLD) {
+			relaxRange(vertices, 0, count, light);
+		} else {
+			myPool.invoke(new RelaxTask(vertices, 0, count, light));
+		}
+		int improved = myImprovedCount.get();
+		for (int i = 0; i < improved; i++) {
+			push(myImproved[i]);
+		}
+	}
+
+	/**
+	 * Relax the light or heavy edges of vertices[low] to vertices[high - 1].
+	 */
+	private void relaxRange(int[] vertices, int low, int high, boolean light) {
+		for (int i = low; i < high; i++) {
+			int u = vertices[i];
+			long du = distanceOf(myLabels.get(u));
+			for (int e = myG.firstEdge(u); e < myG.endEdge(u); e++) {
+				int w = myG.weight(e);
+				if ((w <= myDelta) == light) {
+					relax(u, myG.target(e), du + w);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Lower the distance of v to the passed value through u, unless it is already as low.
+	 */
+	private void relax(int u, int v, long distance) {
+		long label = pack(QueryContext.checkedLength(distance), u);
+		while (true) {
+			long old = myLabels.get(v);
+			if (distanceOf(old) <= distance) {
+				return;
+			}
+			if (myLabels.compareAndSet(v, old, label)) {
+				if (myImprovedStamps.getAndSet(v, myStep) != myStep) {
+					myImproved[myImprovedCount.getAndIncrement()] = v;
+				}
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Add a vertex to the bucket of its current distance.
+	 */
+	private void push(int v) {
+		int slot = distanceOf(myLabels.get(v)) / myDelta % myBucketSizes.length;
+		int size = myBucketSizes[slot];
+		if (size == myBucketItems[slot].length) {
+			myBucketItems[slot] = Arrays.copyOf(myBucketItems[slot], 2 * size);
+		}
+		myBucketItems[slot][size] = v;
+		myBucketSizes[slot] = size + 1;
+		myPending++;
+	}
+
+	/**
+	 * Return a label holding the passed distance and predecessor.
+	 */
+	private static long pack(int distance, int pred) {
+		return ((long) distance << 32) | (pred & 0xffffffffL);
+	}
+
+	/**
+	 * Return the distance held in a label.
+	 */
+	private static int distanceOf(long label) {
+		return (int) (label >>> 32);
+	}
+
+	/**
+	 * Return the predecessor held in a label.
+	 */
+	private static int predOf(long label) {
+		return (int) label;
+	}
+
+	/**
+	 * Relaxes the edges of a range of vertices, splitting it in half until it is small.
+	 */
+	private class RelaxTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int[] myVertices;
+		private final int myLow;
+		private final int myHigh;
+		private final boolean myLight;
+
+		RelaxTask(int[] vertices, int low, int high, boolean light) {
+			myVertices = vertices;
+			myLow = low;
+			myHigh = high;
+			myLight = light;
+		}
+
+		protected void compute() {
+			if (myHigh - myLow <= SEQUENTIAL_THRESHOLD) {
+				relaxRange(myVertices, myLow, myHigh, myLight);
+				return;
+			}
+			int middle = (myLow + myHigh) >>> 1;
+			invokeAll(new RelaxTask(myVertices, myLow, middle, myLight),
+					new RelaxTask(myVertices, middle, myHigh, myLight));
+		}
+	}
+
+	/**
+	 * Finds the shortest path from source to target, stopping as soon as the bucket of
+	 * target has been emptied.
+	 *
+	 * @param source the starting city vertex
+	 * @param target the ending city vertex
+	 */
+	public void runAlgorithm(Vertex source, Vertex target) {
+		myTarget = myG.getId(target);
+		run(myG.getId(source), myTarget);
+	}
+
+	/**
+	 * Return the distance to the passed vertex found by the last run.
+	 *
+	 * @param v a vertex
+	 * @return the distance to v, or Integer.MAX_VALUE if no path to v is known
+	 */
+	public int getDistance(Vertex v) {
+		int id = myG.getId(v);
+		if (myTarget != NONE && id != myTarget) {
+			return Integer.MAX_VALUE;
+		}
+		return distanceOf(myLabels.get(id));
+	}
+
+	/**
+	 * Return the shortest path description starting from the starting vertex and ending at
+	 * the last vertex.
+	 *
+	 * @param first the starting vertex
+	 * @param last the ending vertex
+	 * @return the path
+	 */
+	public String getPath(Vertex first, Vertex last) {
+		return PathFormat.HTML.format(getPathResult(first, last));
+	}
+
+	/**
+	 * Return the shortest path from the starting vertex to the last vertex.
+	 *
+	 * @param first the starting vertex
+	 * @param last the ending vertex
+	 * @return the path, or null if there is none
+	 */
+	public PathResult getPathResult(Vertex first, Vertex last) {
+		int id = myG.getId(last);
+		if (myTarget != NONE && id != myTarget) {
+			return null;
+		}
+		int[] path = predecessorPath(id);
+		if (path == null) {
+			return null;
+		}
+		return PathResult.of(myG, path);
+	}
+
+	/**
+	 * Return the vertex ids from the source to v, or null if v was not reached.
+	 */
+	private int[] predecessorPath(int v) {
+		if (myLabels.get(v) == UNREACHED) {
+			return null;
+		}
+		int hops = 0;
+		for (int u = v; predOf(myLabels.get(u)) != NONE; u = predOf(myLabels.get(u))) {
+			hops++;
+		}
+		int[] path = new int[hops + 1];
+		for (int u = v; hops >= 0; u = predOf(myLabels.get(u))) {
+			path[hops--] = u;
+		}
+		return path;
+	}
+
+	/**
+	 * Return a set of all the vertices.
+	 *
+	 * @return a set of all the vertices
+	 */
+	public Set<Vertex> getVertices() {
+		return myG.getVertices();
+	}
+
+	/**
+	 * Code to check delta-stepping against the heap engine and time both.
+	 */
+	public static void main(String[] args) {
+		CompactGraph G = GraphInput.LoadCompactGraph(
+				args.length > 0 ? args[0] : "./testGraphs/path2.txt");
+		int runs = Math.min(G.vertexCount(), 50);
+		MinHeapImplementation heap = new MinHeapImplementation(G);
+		int auto = defaultDelta(G);
+		int[] deltas = { 1, auto, Math.max(1, G.maxWeight()) };
+		for (int delta : deltas) {
+			if (G.maxWeight() / delta + 2 > ArrayImplementation.MAX_BUCKETS) {
+				System.out.println("delta " + delta + ": too many buckets, skipped");
+				continue;
+			}
+			DeltaSteppingImplementation stepping =
+					new DeltaSteppingImplementation(G, delta, ForkJoinPool.commonPool());
+			long heapTime = 0;
+			long steppingTime = 0;
+			int mismatches = 0;
+			for (int s = 0; s < runs; s++) {
+				Vertex source = G.getVertex(s * (G.vertexCount() / runs));
+				long begin = System.nanoTime();
+				heap.runAlgorithm(source);
+				heapTime += System.nanoTime() - begin;
+				begin = System.nanoTime();
+				stepping.runAlgorithm(source);
+				steppingTime += System.nanoTime() - begin;
+				for (int t = 0; t < G.vertexCount(); t++) {
+					Vertex target = G.getVertex(t);
+					if (stepping.getDistance(target) != heap.getDistance(target)
+							|| !stepping.getPath(source, target).equals(heap.getPath(source, target))
+									&& !pathCostMatches(G, stepping, source, target)) {
+						mismatches++;
+					}
+				}
+			}
+			System.out.println("delta " + delta + (delta == auto ? " (default)" : "") + ": "
+					+ steppingTime / runs / 1000 + " us per run against " + heapTime / runs / 1000
+					+ " us for the heap, " + mismatches + " mismatches");
+		}
+	}
+
+	/**
+	 * Return true if the path delta-stepping found to target has the length it reports.
+	 * Paths may differ from the heap engine's when there are ties.
+	 */
+	private static boolean pathCostMatches(IndexedGraph G, DeltaSteppingImplementation stepping,
+			Vertex source, Vertex target) {
+		int[] path = stepping.predecessorPath(G.getId(target));
+		if (path == null || path[0] != G.getId(source)) {
+			return false;
+		}
+		long length = 0;
+		for (int i = 1; i < path.length; i++) {
+			int best = Integer.MAX_VALUE;
+			for (int e = G.firstEdge(path[i - 1]); e < G.endEdge(path[i - 1]); e++) {
+				if (G.target(e) == path[i]) {
+					best = Math.min(best, G.weight(e));
+				}
+			}
+			length += best;
+		}
+		return length == stepping.getDistance(target);
+	}
+}
@@ -21,6 +21,9 @@ public class DijkstraHeapNode implements Comparable<DijkstraHeapNode> {
 	/** The index of this node's location in the heap. */
 	 private int index;
 	
+	/** The id of this node's vertex in an IndexedGraph, or -1 if it has none. */
+	private int vertexId = -1;
+	
 	
 	/**
 	 * Initialize a new DijkstraHeapNode.
@@ -33,6 +36,18 @@ public class DijkstraHeapNode implements Comparable<DijkstraHeapNode> {
 		vertex = v;
 	}
 	
+	/**
+	 * Initialize a new DijkstraHeapNode for a vertex of an IndexedGraph.
+	 * 
+	 * @param v the vertex this node points to
+	 * @param p the path length of this node from the root
+	 * @param id the id of v in its IndexedGraph
+	 */
+	public DijkstraHeapNode(Vertex v, int p, int id) {
+		this(v, p);
+		vertexId = id;
+	}
+	
 	/**
 	 * Return the node pointing to this node.
 	 * 
@@ -100,6 +115,15 @@ public class DijkstraHeapNode implements Comparable<DijkstraHeapNode> {
 		return vertex;
 	}
 	
+	/**
+	 * Return the id of this node's vertex in its IndexedGraph.
+	 * 
+	 * @return the vertex id, or -1 if this node was not created from an IndexedGraph
+	 */
+	public int getVertexId() {
+		return vertexId;
+	}
+	
 	/**
 	 * Return if this vertex is in the known set.
 	 * 
@@ -120,7 +144,7 @@ public class DijkstraHeapNode implements Comparable<DijkstraHeapNode> {
 	
 	@Override
 	public int compareTo(DijkstraHeapNode other) {
-		return distance - other.distance;
+		return Integer.compare(distance, other.distance);
 	}
 	
 	@Override
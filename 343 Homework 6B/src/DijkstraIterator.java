@@ -0,0 +1,298 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Runs Dijkstra's algorithm one vertex at a time. Each call to next settles one more
+ * vertex and returns its node, so the vertices come out in order of distance and the
+ * search goes no further than the caller asks.
+ *
+ * The search uses a BinaryHeap of DijkstraHeapNodes. A node is made when its vertex is
+ * first reached and carries the vertex, its id, its distance and the node before it on
+ * its path, so a returned node stays valid after the iterator moves on or is restarted.
+ * Restarting only clears the vertices the previous search reached, so a search that
+ * stays in a small neighborhood costs time in proportion to that neighborhood.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class DijkstraIterator implements Iterator<DijkstraHeapNode> {
+
+	/** The graph being searched. */
+	private final IndexedGraph myGraph;
+
+	/** The node of each vertex reached by the current search, or null. */
+	private final DijkstraHeapNode[] myNodes;
+
+	/** The ids of the vertices reached by the current search. */
+	private final int[] myReached;
+
+	/** The number of vertices reached by the current search. */
+	private int myReachedCount;
+
+	/** The number of vertices settled by the current search. */
+	private int mySettledCount;
+
+	/** The reached vertices that are not settled yet. */
+	private final BinaryHeap myHeap;
+
+	/** The counters of the current search, apart from those kept by the heap. */
+	private final SearchStats myStats = new SearchStats();
+
+	/**
+	 * Initialize a new DijkstraIterator with no search started.
+	 *
+	 * @param G the graph to search
+	 */
+	public DijkstraIterator(IndexedGraph G) {
+		myGraph = G;
+		myNodes = new DijkstraHeapNode[G.vertexCount()];
+		myReached = new int[G.vertexCount()];
+		myHeap = new BinaryHeap();
+	}
+
+	/**
+	 * Initialize a new DijkstraIterator that starts at the passed vertex.
+	 *
+	 * @param G the graph to search
+	 * @param source the id of the starting vertex
+	 */
+	public DijkstraIterator(IndexedGraph G, int source) {
+		this(G);
+		start(source);
+	}
+
+	/**
+	 * Drop the current search and start a new one at the passed vertex.
+	 *
+	 * @param source the id of the starting vertex
+	 */
+	public void start(int source) {
+		if (SearchMetrics.ENABLED) {
+			if (myReachedCount > 0) {
+				SearchMetrics.record("DijkstraIterator", getStats());
+			}
+			myStats.reset();
+			myHeap.getStats().reset();
+		}
+		for (int i = 0; i < myReachedCount; i++) {
+			myNodes[myReached[i]] = null;
+		}
+		myReachedCount = 0;
+		mySettledCount = 0;
+		myHeap.makeEmpty();
+		reach(source, 0, null);
+	}
+
+	/**
+	 * Determine whether there is a vertex left to settle.
+	 *
+	 * @return true if some reachable vertex has not been returned yet
+	 */
+	public boolean hasNext() {
+		return !myHeap.isEmpty();
+	}
+
+	/**
+	 * Settle the closest vertex that is not settled yet and return its node.
+	 *
+	 * @return the node of the vertex, holding its final distance
+	 */
+	public DijkstraHeapNode next() {
+		DijkstraHeapNode node;
+		try {
+			node = myHeap.deleteMin();
+		} catch (EmptyHeapException e) {
+			throw new NoSuchElementException("Every reachable vertex has been settled");
+		}
+		node.setKnown(true);
+		mySettledCount++;
+		int u = node.getVertexId();
+		if (SearchMetrics.ENABLED) {
+			myStats.relaxed += myGraph.endEdge(u) - myGraph.firstEdge(u);
+		}
+		for (int e = myGraph.firstEdge(u); e < myGraph.endEdge(u); e++) {
+			int v = myGraph.target(e);
+			int distance = QueryContext.extend(node.getDistance(), myGraph.weight(e));
+			DijkstraHeapNode other = myNodes[v];
+			if (other == null) {
+				reach(v, distance, node);
+			} else if (!other.isKnown() && distance < other.getDistance()) {
+				other.setDistance(distance);
+				other.setPrev(node);
+				myHeap.percolateUp(other);
+				if (SearchMetrics.ENABLED) {
+					myStats.decreaseKeys++;
+				}
+			}
+		}
+		return node;
+	}
+
+	/**
+	 * Make the node of a vertex reached for the first time and add it to the heap.
+	 */
+	private void reach(int v, int distance, DijkstraHeapNode prev) {
+		DijkstraHeapNode node = new DijkstraHeapNode(myGraph.getVertex(v), distance, v);
+		node.setPrev(prev);
+		myNodes[v] = node;
+		myReached[myReachedCount++] = v;
+		myHeap.insert(node);
+	}
+
+	/**
+	 * Return the distance of the vertex the next call to next will settle.
+	 *
+	 * @return the distance, or Integer.MAX_VALUE if no vertex is left
+	 */
+	public int peekDistance() {
+		try {
+			return myHeap.isEmpty() ? Integer.MAX_VALUE : myHeap.findMin().getDistance();
+		} catch (EmptyHeapException e) {
+			return Integer.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * Return the number of vertices settled by the current search.
+	 *
+	 * @return the number of settled vertices
+	 */
+	public int getSettledCount() {
+		return mySettledCount;
+	}
+
+	/**
+	 * Return the counters of the current search so far. They are only kept when
+	 * SearchMetrics.ENABLED is set, and a search is added to the DijkstraIterator totals
+	 * when the next one starts.
+	 *
+	 * @return the counters
+	 */
+	public SearchStats getStats() {
+		SearchStats stats = new SearchStats();
+		stats.add(myStats);
+		stats.add(myHeap.getStats());
+		stats.settled = mySettledCount;
+		return stats;
+	}
+
+	/**
+	 * Return the number of vertices reached by the current search, settled or not.
+	 *
+	 * @return the number of reached vertices
+	 */
+	public int getReachedCount() {
+		return myReachedCount;
+	}
+
+	/**
+	 * Return the rest of the current search as a sequential stream. The stream settles a
+	 * vertex only when it pulls the next node, so operations such as limit and anyMatch
+	 * stop the search early.
+	 *
+	 * @return the nodes still to be settled, in order of distance
+	 */
+	public Stream<DijkstraHeapNode> stream() {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this,
+				Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+	}
+
+	/**
+	 * Return every vertex within a distance of a source, nearest first. The search stops
+	 * at the first vertex farther away than the radius.
+	 *
+	 * @param source the id of the starting vertex
+	 * @param radius the largest distance to include
+	 * @return the nodes of the vertices within radius of source
+	 */
+	public List<DijkstraHeapNode> within(int source, int radius) {
+		start(source);
+		List<DijkstraHeapNode> result = new ArrayList<DijkstraHeapNode>();
+		while (peekDistance() <= radius) {
+			result.add(next());
+		}
+		return result;
+	}
+
+	/**
+	 * Return the k vertices nearest a source, nearest first, or fewer if fewer can be
+	 * reached. The source itself is the first.
+	 *
+	 * @param source the id of the starting vertex
+	 * @param k the number of vertices to return
+	 * @return the nodes of the nearest vertices
+	 */
+	public List<DijkstraHeapNode> nearest(int source, int k) {
+		start(source);
+		List<DijkstraHeapNode> result = new ArrayList<DijkstraHeapNode>(Math.min(k, 1024));
+		while (result.size() < k && hasNext()) {
+			result.add(next());
+		}
+		return result;
+	}
+
+	/**
+	 * Code to check radius queries against full searches and compare their costs.
+	 */
+	public static void main(String[] args) throws IOException {
+		CompactGraph G = ParallelGraphLoader.loadCompactGraph(
+				args.length > 0 ? args[0] : "./testGraphs/path2.txt");
+		int n = G.vertexCount();
+		int queries = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+		DijkstraIterator iterator = new DijkstraIterator(G);
+		MinHeapImplementation heap = new MinHeapImplementation(G);
+		Random random = new Random(343);
+		int mismatches = 0;
+		long fullTime = 0;
+		long radiusTime = 0;
+		long settled = 0;
+		for (int q = 0; q < queries; q++) {
+			int source = random.nextInt(n);
+			long begin = System.nanoTime();
+			heap.runAlgorithm(G.getVertex(source));
+			fullTime += System.nanoTime() - begin;
+			int radius = 2 * Math.max(1, G.maxWeight());
+			begin = System.nanoTime();
+			List<DijkstraHeapNode> near = iterator.within(source, radius);
+			radiusTime += System.nanoTime() - begin;
+			settled += iterator.getSettledCount();
+			int expected = 0;
+			for (int v = 0; v < n; v++) {
+				if (heap.getDistance(G.getVertex(v)) <= radius) {
+					expected++;
+				}
+			}
+			int previous = 0;
+			for (DijkstraHeapNode node : near) {
+				if (node.getDistance() != heap.getDistance(node.getVertex())
+						|| node.getDistance() < previous) {
+					mismatches++;
+				}
+				previous = node.getDistance();
+			}
+			if (near.size() != expected) {
+				mismatches++;
+			}
+		}
+		System.out.println(queries + " radius queries, " + mismatches + " mismatches, "
+				+ settled / queries + " of " + n + " vertices settled on average");
+		System.out.println("Radius queries took " + radiusTime / 1000000 + " ms, full searches "
+				+ fullTime / 1000000 + " ms");
+		iterator.start(0);
+		System.out.print("Five nearest to " + G.getVertex(0).getName() + ":");
+		Iterator<DijkstraHeapNode> five = iterator.stream().limit(5).iterator();
+		while (five.hasNext()) {
+			DijkstraHeapNode node = five.next();
+			System.out.print(" " + node + "=" + node.getDistance());
+		}
+		System.out.println();
+	}
+}
@@ -0,0 +1,340 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A table of shortest path distances from a list of sources to a list of targets.
+ *
+ * Each row is filled by one Dijkstra run from its source, and the rows are spread over a
+ * fork-join pool. A run stops as soon as every target has been settled. The distances
+ * are stored row by row in one int array, or, for tables too large for the heap, in a
+ * file that is memory mapped in segments of whole rows. Unreachable targets have
+ * distance Integer.MAX_VALUE.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class DistanceMatrix {
+
+	/** Receives progress reports while a matrix is computed. */
+	public interface ProgressListener {
+
+		/**
+		 * Called after each row is finished, possibly from several threads at once.
+		 *
+		 * @param done the number of rows finished so far
+		 * @param total the number of rows
+		 */
+		void progress(int done, int total);
+	}
+
+	/** The bytes in one entry. */
+	private static final int ENTRY_BYTES = 4;
+
+	/** The id of the source of each row. */
+	private final int[] mySources;
+
+	/** The id of the target of each column. */
+	private final int[] myTargets;
+
+	/** The entries in row-major order, or null if the matrix is mapped. */
+	private final int[] myValues;
+
+	/** The mapped segments of the file, or null if the matrix is in memory. */
+	private final IntBuffer[] mySegments;
+
+	/** The number of rows in each mapped segment. */
+	private final int myRowsPerSegment;
+
+	/**
+	 * Initialize a new in-memory DistanceMatrix.
+	 */
+	private DistanceMatrix(int[] sources, int[] targets) {
+		long size = (long) sources.length * targets.length;
+		if (size > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("A " + sources.length + " by " + targets.length
+					+ " matrix is too large for memory; compute it into a file instead");
+		}
+		mySources = sources.clone();
+		myTargets = targets.clone();
+		myValues = new int[(int) size];
+		mySegments = null;
+		myRowsPerSegment = 0;
+	}
+
+	/**
+	 * Initialize a new DistanceMatrix mapped onto the passed file.
+	 */
+	private DistanceMatrix(int[] sources, int[] targets, File file) throws IOException {
+		mySources = sources.clone();
+		myTargets = targets.clone();
+		myValues = null;
+		long rowBytes = (long) Math.max(targets.length, 1) * ENTRY_BYTES;
+		if (rowBytes > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("A row of " + targets.length
+					+ " targets is too large to map");
+		}
+		// a single mapping cannot exceed 2 GB, so map whole rows in as many pieces as needed
+		myRowsPerSegment = (int) (Integer.MAX_VALUE / rowBytes);
+		int segmentCount = (sources.length + myRowsPerSegment - 1) / myRowsPerSegment;
+		mySegments = new IntBuffer[segmentCount];
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.setLength(rowBytes * sources.length);
+			FileChannel channel = raf.getChannel();
+			for (int i = 0; i < segmentCount; i++) {
+				int rows = Math.min(myRowsPerSegment, sources.length - i * myRowsPerSegment);
+				mySegments[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+						i * myRowsPerSegment * rowBytes, rows * rowBytes)
+						.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+			}
+		} finally {
+			// the mappings stay valid after the file is closed
+			raf.close();
+		}
+	}
+
+	/**
+	 * Compute the distances between every pair of vertices on the common fork-join pool.
+	 *
+	 * @param G the graph
+	 * @return the matrix, with row and column i belonging to vertex id i
+	 */
+	public static DistanceMatrix allPairs(IndexedGraph G) {
+		int[] all = new int[G.vertexCount()];
+		for (int i = 0; i < all.length; i++) {
+			all[i] = i;
+		}
+		return compute(G, all, all, ForkJoinPool.commonPool(), null);
+	}
+
+	/**
+	 * Compute the distances from each source to each target and keep them in memory.
+	 *
+	 * @param G the graph
+	 * @param sources the ids of the sources, one per row
+	 * @param targets the ids of the targets, one per column
+	 * @param pool the pool to run the searches on
+	 * @param listener the listener to report progress to, or null
+	 * @return the matrix
+	 */
+	public static DistanceMatrix compute(IndexedGraph G, int[] sources, int[] targets,
+			ForkJoinPool pool, ProgressListener listener) {
+		DistanceMatrix matrix = new DistanceMatrix(sources, targets);
+		matrix.fill(G, pool, listener);
+		return matrix;
+	}
+
+	/**
+	 * Compute the distances from each source to each target into a memory-mapped file.
+	 * The file holds the entries row by row as little-endian ints and is overwritten.
+	 *
+	 * @param G the graph
+	 * @param sources the ids of the sources, one per row
+	 * @param targets the ids of the targets, one per column
+	 * @param pool the pool to run the searches on
+	 * @param listener the listener to report progress to, or null
+	 * @param file the file to store the matrix in
+	 * @return the matrix
+	 */
+	public static DistanceMatrix compute(IndexedGraph G, int[] sources, int[] targets,
+			ForkJoinPool pool, ProgressListener listener, File file) throws IOException {
+		DistanceMatrix matrix = new DistanceMatrix(sources, targets, file);
+		matrix.fill(G, pool, listener);
+		return matrix;
+	}
+
+	/**
+	 * Run the search for every row on the pool.
+	 */
+	private void fill(final IndexedGraph G, ForkJoinPool pool, final ProgressListener listener) {
+		for (int id : mySources) {
+			checkId(G, id);
+		}
+		final boolean[] isTarget = new boolean[G.vertexCount()];
+		int distinct = 0;
+		for (int id : myTargets) {
+			checkId(G, id);
+			if (!isTarget[id]) {
+				isTarget[id] = true;
+				distinct++;
+			}
+		}
+		final int targetCount = distinct;
+		final ConcurrentLinkedQueue<QueryContext> idle = new ConcurrentLinkedQueue<QueryContext>();
+		final AtomicInteger done = new AtomicInteger();
+
+		/** Fills a range of rows, splitting it in half until a single row is left. */
+		class RowTask extends RecursiveAction {
+			private static final long serialVersionUID = 1L;
+			private final int myLow;
+			private final int myHigh;
+
+			RowTask(int low, int high) {
+				myLow = low;
+				myHigh = high;
+			}
+
+			protected void compute() {
+				if (myHigh - myLow > 1) {
+					int middle = (myLow + myHigh) >>> 1;
+					invokeAll(new RowTask(myLow, middle), new RowTask(middle, myHigh));
+					return;
+				}
+				QueryContext context = idle.poll();
+				if (context == null) {
+					context = new QueryContext(G.vertexCount());
+				}
+				MinHeapImplementation.search(G, context, mySources[myLow], isTarget, targetCount);
+				for (int j = 0; j < myTargets.length; j++) {
+					set(myLow, j, context.distance(myTargets[j]));
+				}
+				idle.offer(context);
+				int finished = done.incrementAndGet();
+				if (listener != null) {
+					listener.progress(finished, mySources.length);
+				}
+			}
+		}
+
+		if (mySources.length > 0) {
+			pool.invoke(new RowTask(0, mySources.length));
+		}
+	}
+
+	/**
+	 * Throw an exception if an id is not a vertex of the graph.
+	 */
+	private static void checkId(IndexedGraph G, int id) {
+		if (id < 0 || id >= G.vertexCount()) {
+			throw new IllegalArgumentException("No vertex with id " + id);
+		}
+	}
+
+	/**
+	 * Store an entry.
+	 */
+	private void set(int row, int column, int distance) {
+		if (myValues != null) {
+			myValues[row * myTargets.length + column] = distance;
+		} else {
+			mySegments[row / myRowsPerSegment].put(
+					(row % myRowsPerSegment) * myTargets.length + column, distance);
+		}
+	}
+
+	/**
+	 * Return the distance from the source of a row to the target of a column.
+	 *
+	 * @param row a row index
+	 * @param column a column index
+	 * @return the distance, or Integer.MAX_VALUE if there is no path
+	 */
+	public int get(int row, int column) {
+		if (myValues != null) {
+			return myValues[row * myTargets.length + column];
+		}
+		return mySegments[row / myRowsPerSegment].get(
+				(row % myRowsPerSegment) * myTargets.length + column);
+	}
+
+	/**
+	 * Return the number of rows.
+	 *
+	 * @return the number of sources
+	 */
+	public int rows() {
+		return mySources.length;
+	}
+
+	/**
+	 * Return the number of columns.
+	 *
+	 * @return the number of targets
+	 */
+	public int columns() {
+		return myTargets.length;
+	}
+
+	/**
+	 * Return the vertex id of the source of a row.
+	 *
+	 * @param row a row index
+	 * @return the id of its source
+	 */
+	public int getSource(int row) {
+		return mySources[row];
+	}
+
+	/**
+	 * Return the vertex id of the target of a column.
+	 *
+	 * @param column a column index
+	 * @return the id of its target
+	 */
+	public int getTarget(int column) {
+		return myTargets[column];
+	}
+
+	/**
+	 * Determine whether the matrix is stored in a memory-mapped file.
+	 *
+	 * @return true if the matrix is mapped
+	 */
+	public boolean isMapped() {
+		return myValues == null;
+	}
+
+	/**
+	 * Code to check the matrix against single runs of the heap engine.
+	 */
+	public static void main(String[] args) throws IOException {
+		CompactGraph G = GraphInput.LoadCompactGraph(
+				args.length > 0 ? args[0] : "./testGraphs/path2.txt");
+		long begin = System.nanoTime();
+		DistanceMatrix all = allPairs(G);
+		System.out.println("All pairs took " + (System.nanoTime() - begin) / 1000000 + " ms");
+
+		int[] sources = new int[(G.vertexCount() + 2) / 3];
+		for (int i = 0; i < sources.length; i++) {
+			sources[i] = 3 * i;
+		}
+		int[] targets = { G.vertexCount() - 1, 0, G.vertexCount() / 2 };
+		File file = File.createTempFile("distances", ".bin");
+		file.deleteOnExit();
+		DistanceMatrix some = compute(G, sources, targets, ForkJoinPool.commonPool(),
+				new ProgressListener() {
+					public void progress(int done, int total) {
+						if (done == total) {
+							System.out.println("Finished " + done + " rows");
+						}
+					}
+				}, file);
+
+		MinHeapImplementation heap = new MinHeapImplementation(G);
+		int mismatches = 0;
+		for (int s = 0; s < G.vertexCount(); s++) {
+			heap.runAlgorithm(G.getVertex(s));
+			for (int t = 0; t < G.vertexCount(); t++) {
+				if (all.get(s, t) != heap.getDistance(G.getVertex(t))) {
+					mismatches++;
+				}
+			}
+			if (s % 3 == 0) {
+				for (int j = 0; j < targets.length; j++) {
+					if (some.get(s / 3, j) != heap.getDistance(G.getVertex(targets[j]))) {
+						mismatches++;
+					}
+				}
+			}
+		}
+		System.out.println(mismatches + " mismatches");
+	}
+}
@@ -1,11 +1,13 @@
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.GraphicsEnvironment;
 import java.awt.Toolkit;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -55,7 +57,7 @@ public class Driver {
 	private Algorithm myAlgorithm;
 	
 	/** The current graph. */
-	private SimpleGraph myGraph;
+	private IndexedGraph myGraph;
 	
 	/** The list of all DijkstraHeapNodes nodes. */
 	private Set<Vertex> myVertices;
@@ -98,26 +100,22 @@ public class Driver {
 
 			if (myChooser.getSelectedFile() != myFile) {
 				myFile = myChooser.getSelectedFile();
-				myGraph = new SimpleGraph();
-		        GraphInput.LoadSimpleGraph(myGraph, myChooser.getSelectedFile().toString());
+				if (GraphSnapshot.isSnapshot(myFile)) {
+					myGraph = GraphSnapshot.read(myFile);
+				} else {
+					myGraph = ParallelGraphLoader.loadCompactGraph(myFile.toString());
+				}
 		        myStartCities.removeAllItems();
 		        myEndCities.removeAllItems();
 		        if (myHeapButton.isSelected()) {
-			        myAlgorithm = new MinHeapImplementation(myGraph);
-			        myAlgorithm.runAlgorithm(myGraph.aVertex());
-			        myVertices = ((MinHeapImplementation) myAlgorithm).getVertices();
+			        myAlgorithm = new TimedAlgorithm(new MinHeapImplementation(myGraph));
 		        } else {
-		        	//TODO fill out 
-			        myAlgorithm = new ArrayImplementation(myGraph);
-			        myAlgorithm.runAlgorithm(myGraph.aVertex());
-			        myVertices = ((ArrayImplementation) myAlgorithm).getVertices();
-		        	//System.out.println("Not yet implemented!!");
+			        myAlgorithm = new TimedAlgorithm(ArrayImplementation.forGraph(myGraph));
 		        }
-		        int i = 0;
+		        myVertices = myGraph.getVertices();
 		        for (Vertex v : myVertices) {
 		        	myStartCities.addItem(v);
 		        	myEndCities.addItem(v);	      
-		        	i++;
 		        }
 			}
 
@@ -197,8 +195,8 @@ public class Driver {
 			@Override
 			public void actionPerformed(ActionEvent arg0) {
 				if (myChooser.getSelectedFile() != null) {
-					myAlgorithm = new MinHeapImplementation(myGraph);
-		        	myAlgorithm.runAlgorithm((Vertex) myStartCities.getSelectedItem());
+					myAlgorithm = new TimedAlgorithm(new MinHeapImplementation(myGraph));
+		        	showPath();
 				}
 			}
 		});
@@ -208,8 +206,8 @@ public class Driver {
 			public void actionPerformed(ActionEvent e) {
 
 				if (myChooser.getSelectedFile() != null) {
-					myAlgorithm = new ArrayImplementation(myGraph);
-		        	myAlgorithm.runAlgorithm((Vertex) myStartCities.getSelectedItem());
+					myAlgorithm = new TimedAlgorithm(ArrayImplementation.forGraph(myGraph));
+		        	showPath();
 				}
 
 
@@ -232,48 +230,17 @@ public class Driver {
 		myStartCities.addItemListener(new ItemListener() {
 			@Override
 			public void itemStateChanged(ItemEvent arg) {
-				if (myHeapButton.isSelected()) {
-					Vertex start = (Vertex) myStartCities.getSelectedItem();
-					Vertex last = (Vertex) myEndCities.getSelectedItem();
-					if (last != null) {
-						myCityDistance.setText("Distance = " 
-								+ ((MinHeapImplementation) myAlgorithm)
-								.getCorrespondingNode(last).getDistance());
-						myPath.setText(myAlgorithm.getPath(start, last));
-					} 
-					myAlgorithm.runAlgorithm(start);
-				} else {
-					//TODO fill this part out
-					Vertex start = (Vertex) myStartCities.getSelectedItem();
-					Vertex last = (Vertex) myEndCities.getSelectedItem();
-					if (last != null) {
-						myCityDistance.setText("Distance = " 
-								+ ((ArrayImplementation) myAlgorithm)
-								.getCorrespondingNode(last).getDistance());
-						myPath.setText(myAlgorithm.getPath(start, last));
-					} 
-					myAlgorithm.runAlgorithm(start);
+				// a new selection also fires an event for the old one being deselected
+				if (arg.getStateChange() == ItemEvent.SELECTED) {
+					showPath();
 				}
 			}});
 		myEndCities.setBackground(Color.WHITE);
 		myEndCities.addItemListener(new ItemListener() {
 			@Override
 			public void itemStateChanged(ItemEvent arg) {
-				//TODO if you aren't using dijkstraheapnodes, modify
-				if(myHeapButton.isSelected()) {
-					DijkstraHeapNode node = ((MinHeapImplementation) myAlgorithm)
-							.getCorrespondingNode((Vertex) myEndCities.getSelectedItem());
-					myCityDistance.setText(DISTANCE + node.getDistance());
-					myPath.setText(myAlgorithm.getPath(
-							(Vertex) myStartCities.getSelectedItem(), 
-							(Vertex) myEndCities.getSelectedItem()));
-				} else {
-					DijkstraHeapNode node = ((ArrayImplementation) myAlgorithm)
-							.getCorrespondingNode((Vertex) myEndCities.getSelectedItem());
-					myCityDistance.setText(DISTANCE + node.getDistance());
-					myPath.setText(myAlgorithm.getPath(
-							(Vertex) myStartCities.getSelectedItem(), 
-							(Vertex) myEndCities.getSelectedItem()));
+				if (arg.getStateChange() == ItemEvent.SELECTED) {
+					showPath();
 				}
 			}
 			
@@ -282,11 +249,29 @@ public class Driver {
 	}
 	
 	/**
-	 * Main method. Runs the program and all tests.
+	 * Find the shortest path between the selected cities and display it.
+	 */
+	private void showPath() {
+		Vertex start = (Vertex) myStartCities.getSelectedItem();
+		Vertex last = (Vertex) myEndCities.getSelectedItem();
+		if (start != null && last != null) {
+			myAlgorithm.runAlgorithm(start, last);
+			myCityDistance.setText(DISTANCE + myAlgorithm.getDistance(last));
+			myPath.setText(myAlgorithm.getPath(start, last));
+		}
+	}
+	
+	/**
+	 * Main method. Runs the program and all tests. Without a display there is no window
+	 * to show, so the arguments are passed to HeadlessPlanner instead.
 	 * 
-	 * @param args command line arguments to be ignored
+	 * @param args command line arguments, only used without a display
 	 */
-	public static void main(String... args) {
+	public static void main(String... args) throws IOException {
+		if (GraphicsEnvironment.isHeadless()) {
+			HeadlessPlanner.main(args);
+			return;
+		}
 		BinaryHeap b = new BinaryHeap();
 		Driver d = new Driver();
 
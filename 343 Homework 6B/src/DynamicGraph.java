@@ -0,0 +1,490 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An IndexedGraph whose edges can be added, removed and reweighted.
+ *
+ * Each vertex owns a block of the arc arrays, and its arcs fill the front of the block:
+ * they run from firstEdge(v) to endEdge(v) - 1 and the rest of the block is free. An arc
+ * is removed by moving the last arc of its block into its place. A vertex whose block is
+ * full gets a new block twice as large at the end of the arrays, and the arrays are
+ * compacted once more than half of them is unused. Every arc knows the position of its
+ * twin, the arc for the same edge in the other direction, so both halves of an edge are
+ * found in constant time. Arc indexes are therefore only stable until the next change.
+ *
+ * The version number goes up with every change. The graph must not be changed while it
+ * is being searched.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class DynamicGraph implements IndexedGraph {
+
+	/** The vertex corresponding to each id. */
+	private final Vertex[] myVertices;
+
+	/** Maps each vertex to its id. */
+	private final Map<Vertex, Integer> myIds;
+
+	/** The index of the first arc of each vertex. */
+	private final int[] myStarts;
+
+	/** One past the index of the last arc of each vertex. */
+	private final int[] myEnds;
+
+	/** One past the last index of the block of each vertex. */
+	private final int[] myLimits;
+
+	/** The head vertex id of each arc. */
+	private int[] myTargets;
+
+	/** The weight of each arc. */
+	private int[] myWeights;
+
+	/** The index of the reverse arc of each arc. */
+	private int[] myTwins;
+
+	/** The number of array entries given out to blocks. */
+	private int myUsed;
+
+	/** The number of arcs. */
+	private int myArcCount;
+
+	/** The largest weight any arc has had. */
+	private int myMaxWeight;
+
+	/** The number of changes made so far. */
+	private long myVersion;
+
+	/**
+	 * Initialize a new DynamicGraph with the vertices and edges of the passed graph.
+	 *
+	 * @param G the graph to copy
+	 */
+	public DynamicGraph(IndexedGraph G) {
+		int n = G.vertexCount();
+		myVertices = new Vertex[n];
+		myIds = new IdentityHashMap<Vertex, Integer>(2 * n);
+		for (int v = 0; v < n; v++) {
+			myVertices[v] = G.getVertex(v);
+			myIds.put(myVertices[v], v);
+		}
+		myStarts = new int[n];
+		myEnds = new int[n];
+		myLimits = new int[n];
+		int m = G.arcCount();
+		myTargets = new int[m];
+		myWeights = new int[m];
+		myTwins = new int[m];
+		// the arcs of G may not be numbered contiguously, so they are packed as they are copied
+		int e = 0;
+		for (int v = 0; v < n; v++) {
+			myStarts[v] = e;
+			for (int f = G.firstEdge(v); f < G.endEdge(v); f++) {
+				myTargets[e] = G.target(f);
+				myWeights[e] = G.weight(f);
+				e++;
+			}
+			myEnds[v] = e;
+			myLimits[v] = e;
+		}
+		myUsed = m;
+		myArcCount = m;
+		myMaxWeight = G.maxWeight();
+		pairTwins();
+	}
+
+	/**
+	 * Match every arc with its reverse. Arcs are grouped by their smaller endpoint, and
+	 * within a group each arc waits in a list for its larger endpoint until an arc of the
+	 * same weight in the other direction comes along.
+	 */
+	private void pairTwins() {
+		int n = myVertices.length;
+		int m = myUsed;
+		int[] tails = new int[m];
+		for (int u = 0; u < n; u++) {
+			for (int e = myStarts[u]; e < myEnds[u]; e++) {
+				tails[e] = u;
+			}
+		}
+		// counting sort of the arcs by their smaller endpoint
+		int[] groupStarts = new int[n + 1];
+		for (int e = 0; e < m; e++) {
+			groupStarts[Math.min(tails[e], myTargets[e]) + 1]++;
+		}
+		for (int v = 0; v < n; v++) {
+			groupStarts[v + 1] += groupStarts[v];
+		}
+		int[] order = new int[m];
+		int[] next = Arrays.copyOf(groupStarts, n);
+		for (int e = 0; e < m; e++) {
+			order[next[Math.min(tails[e], myTargets[e])]++] = e;
+		}
+		int[] waiting = new int[n];
+		Arrays.fill(waiting, -1);
+		int[] link = new int[m];
+		for (int low = 0; low < n; low++) {
+			for (int i = groupStarts[low]; i < groupStarts[low + 1]; i++) {
+				int e = order[i];
+				int high = Math.max(tails[e], myTargets[e]);
+				int previous = -1;
+				int f = waiting[high];
+				while (f >= 0 && (myWeights[f] != myWeights[e] || (tails[f] == tails[e] && low != high))) {
+					previous = f;
+					f = link[f];
+				}
+				if (f < 0) {
+					link[e] = waiting[high];
+					waiting[high] = e;
+				} else {
+					if (previous < 0) {
+						waiting[high] = link[f];
+					} else {
+						link[previous] = link[f];
+					}
+					myTwins[e] = f;
+					myTwins[f] = e;
+				}
+			}
+			for (int i = groupStarts[low]; i < groupStarts[low + 1]; i++) {
+				int e = order[i];
+				waiting[Math.max(tails[e], myTargets[e])] = -1;
+			}
+		}
+	}
+
+	/**
+	 * Return the number of changes made to this graph.
+	 *
+	 * @return the version number
+	 */
+	public long getVersion() {
+		return myVersion;
+	}
+
+	/**
+	 * Return the index of an arc from u to v of the smallest weight.
+	 *
+	 * @param u the tail vertex id
+	 * @param v the head vertex id
+	 * @return the arc, or -1 if u and v are not adjacent
+	 */
+	public int findArc(int u, int v) {
+		int best = -1;
+		for (int e = myStarts[u]; e < myEnds[u]; e++) {
+			if (myTargets[e] == v && (best < 0 || myWeights[e] < myWeights[best])) {
+				best = e;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Return the index of the arc for the same edge in the other direction.
+	 *
+	 * @param e an arc index
+	 * @return the reverse of e
+	 */
+	public int twin(int e) {
+		return myTwins[e];
+	}
+
+	/**
+	 * Return the vertex id at the tail of the passed arc.
+	 *
+	 * @param e an arc index
+	 * @return the tail of e
+	 */
+	public int source(int e) {
+		return myTargets[myTwins[e]];
+	}
+
+	/**
+	 * Change the weight of the edge of an arc, in both directions.
+	 *
+	 * @param e an arc index
+	 * @param weight the new weight, not negative
+	 */
+	public void setWeight(int e, int weight) {
+		checkWeight(weight);
+		myWeights[e] = weight;
+		myWeights[myTwins[e]] = weight;
+		myMaxWeight = Math.max(myMaxWeight, weight);
+		myVersion++;
+	}
+
+	/**
+	 * Add an edge between two vertices.
+	 *
+	 * @param u one endpoint id
+	 * @param v the other endpoint id
+	 * @param weight the weight, not negative
+	 * @return the index of the new arc from u to v
+	 */
+	public int addEdge(int u, int v, int weight) {
+		checkWeight(weight);
+		int forward = appendArc(u, v, weight);
+		// an arc that is its own twin is not paired yet, and moves without touching others
+		myTwins[forward] = forward;
+		int backward = appendArc(v, u, weight);
+		if (u == v) {
+			// the second append may have moved the block holding the first arc
+			forward = backward - 1;
+		}
+		myTwins[forward] = backward;
+		myTwins[backward] = forward;
+		myArcCount += 2;
+		myMaxWeight = Math.max(myMaxWeight, weight);
+		myVersion++;
+		return forward;
+	}
+
+	/**
+	 * Remove the edge of an arc, in both directions.
+	 *
+	 * @param e an arc index
+	 */
+	public void removeEdge(int e) {
+		int t = myTwins[e];
+		int u = myTargets[t];
+		int v = myTargets[e];
+		if (removeArc(u, e) == t) {
+			// the twin was the last arc of the block and now sits where e was
+			t = e;
+		}
+		removeArc(v, t);
+		myArcCount -= 2;
+		myVersion++;
+		if (myUsed > 2 * myArcCount + 64) {
+			compact();
+		}
+	}
+
+	/**
+	 * Throw an exception for a negative weight.
+	 */
+	private static void checkWeight(int weight) {
+		if (weight < 0) {
+			throw new IllegalArgumentException("Negative edge weight " + weight);
+		}
+	}
+
+	/**
+	 * Add an arc at the end of the arcs of u, moving its block if it is full.
+	 *
+	 * @return the index of the arc
+	 */
+	private int appendArc(int u, int v, int weight) {
+		if (myEnds[u] == myLimits[u]) {
+			int degree = myEnds[u] - myStarts[u];
+			int start = allocate(2 * degree + 2);
+			for (int i = 0; i < degree; i++) {
+				moveArc(myStarts[u] + i, start + i);
+			}
+			myStarts[u] = start;
+			myEnds[u] = start + degree;
+			myLimits[u] = start + 2 * degree + 2;
+		}
+		int e = myEnds[u]++;
+		myTargets[e] = v;
+		myWeights[e] = weight;
+		return e;
+	}
+
+	/**
+	 * Remove an arc from the block of its tail u by moving the last arc of the block into
+	 * its place.
+	 *
+	 * @return the old index of the arc that was moved, or e if none was
+	 */
+	private int removeArc(int u, int e) {
+		int last = --myEnds[u];
+		if (last != e) {
+			moveArc(last, e);
+		}
+		return last;
+	}
+
+	/**
+	 * Move an arc to another index and point its twin at the new index.
+	 */
+	private void moveArc(int from, int to) {
+		myTargets[to] = myTargets[from];
+		myWeights[to] = myWeights[from];
+		int twin = myTwins[from];
+		myTwins[to] = twin == from ? to : twin;
+		if (twin != from) {
+			myTwins[twin] = to;
+		}
+	}
+
+	/**
+	 * Reserve a block of entries at the end of the arrays, growing them if needed.
+	 *
+	 * @return the index of the block
+	 */
+	private int allocate(int size) {
+		if (myUsed + size > myTargets.length) {
+			int capacity = Math.max(2 * myTargets.length, myUsed + size);
+			myTargets = Arrays.copyOf(myTargets, capacity);
+			myWeights = Arrays.copyOf(myWeights, capacity);
+			myTwins = Arrays.copyOf(myTwins, capacity);
+		}
+		int start = myUsed;
+		myUsed += size;
+		return start;
+	}
+
+	/**
+	 * Copy every block to new arrays in vertex order, leaving each a little free room.
+	 */
+	private void compact() {
+		int n = myVertices.length;
+		int[] newIndex = new int[myTargets.length];
+		int[] starts = new int[n];
+		int used = 0;
+		for (int v = 0; v < n; v++) {
+			starts[v] = used;
+			int degree = myEnds[v] - myStarts[v];
+			used += degree + degree / 4 + 1;
+		}
+		int[] targets = new int[used];
+		int[] weights = new int[used];
+		int[] twins = new int[used];
+		for (int v = 0; v < n; v++) {
+			int degree = myEnds[v] - myStarts[v];
+			for (int i = 0; i < degree; i++) {
+				newIndex[myStarts[v] + i] = starts[v] + i;
+				targets[starts[v] + i] = myTargets[myStarts[v] + i];
+				weights[starts[v] + i] = myWeights[myStarts[v] + i];
+			}
+		}
+		for (int v = 0; v < n; v++) {
+			int degree = myEnds[v] - myStarts[v];
+			for (int i = 0; i < degree; i++) {
+				twins[starts[v] + i] = newIndex[myTwins[myStarts[v] + i]];
+			}
+			myLimits[v] = v + 1 < n ? starts[v + 1] : used;
+			myEnds[v] = starts[v] + degree;
+			myStarts[v] = starts[v];
+		}
+		myTargets = targets;
+		myWeights = weights;
+		myTwins = twins;
+		myUsed = used;
+	}
+
+	/**
+	 * Return the number of vertices in this graph.
+	 *
+	 * @return the number of vertices
+	 */
+	public int vertexCount() {
+		return myVertices.length;
+	}
+
+	/**
+	 * Return the number of arcs in this graph, which is twice the number of edges.
+	 *
+	 * @return the number of arcs
+	 */
+	public int arcCount() {
+		return myArcCount;
+	}
+
+	/**
+	 * Return the index of the first arc leaving the passed vertex.
+	 *
+	 * @param v a vertex id
+	 * @return the first arc of v
+	 */
+	public int firstEdge(int v) {
+		return myStarts[v];
+	}
+
+	/**
+	 * Return one past the index of the last arc leaving the passed vertex.
+	 *
+	 * @param v a vertex id
+	 * @return the end of the arc range of v
+	 */
+	public int endEdge(int v) {
+		return myEnds[v];
+	}
+
+	/**
+	 * Return the vertex id at the head of the passed arc.
+	 *
+	 * @param e an arc index
+	 * @return the head of e
+	 */
+	public int target(int e) {
+		return myTargets[e];
+	}
+
+	/**
+	 * Return the weight of the passed arc.
+	 *
+	 * @param e an arc index
+	 * @return the weight of e
+	 */
+	public int weight(int e) {
+		return myWeights[e];
+	}
+
+	/**
+	 * Return the largest weight any arc has had. It may be larger than every current
+	 * weight, which is safe for the engines that size their buckets from it.
+	 *
+	 * @return an upper bound on the arc weights
+	 */
+	public int maxWeight() {
+		return myMaxWeight;
+	}
+
+	/**
+	 * Return the vertex with the passed id.
+	 *
+	 * @param id a vertex id
+	 * @return the vertex
+	 */
+	public Vertex getVertex(int id) {
+		return myVertices[id];
+	}
+
+	/**
+	 * Return an arbitrary vertex of this graph.
+	 *
+	 * @return some vertex of this graph, or null if the graph is empty
+	 */
+	public Vertex aVertex() {
+		return myVertices.length > 0 ? myVertices[0] : null;
+	}
+
+	/**
+	 * Return the id of the passed vertex.
+	 *
+	 * @param v a vertex of this graph
+	 * @return the id of v, or -1 if v is not in this graph
+	 */
+	public int getId(Vertex v) {
+		Integer id = myIds.get(v);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Return a set of all the vertices in id order.
+	 *
+	 * @return a set of all the vertices
+	 */
+	public Set<Vertex> getVertices() {
+		Set<Vertex> result = new LinkedHashSet<Vertex>(2 * myVertices.length);
+		Collections.addAll(result, myVertices);
+		return result;
+	}
+}
@@ -0,0 +1,416 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * This class keeps a shortest path tree of a DynamicGraph up to date while the edges of
+ * the graph change.
+ *
+ * runAlgorithm(Vertex) computes the tree with Dijkstra's algorithm. After that, every edge
+ * change made through this class repairs the tree instead of computing it again. When an
+ * edge gets cheaper or is added, Dijkstra's algorithm is restarted from its endpoints and
+ * only runs while distances keep improving. When an edge of the tree gets more expensive
+ * or is removed, the subtree below it is cut off, each vertex of the subtree is given the
+ * best distance it can get from a neighbor outside the subtree, and Dijkstra's algorithm
+ * is run inside the subtree alone. Changes to edges that are not in the tree cost nothing
+ * more. Either way the work is proportional to the vertices whose distance or predecessor
+ * can change and their arcs.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class DynamicImplementation implements Algorithm {
+
+	/** The predecessor of the source and of unreached vertices. */
+	private static final int NONE = -1;
+
+	/** The graph being evaluated. */
+	private final DynamicGraph myGraph;
+
+	/** The id of the source of the tree, or NONE before the first run. */
+	private int mySource;
+
+	/** The distance of each vertex from the source. */
+	private final int[] myDistances;
+
+	/** The predecessor of each vertex in the tree. */
+	private final int[] myPreds;
+
+	/** The heap used by the full run and by every repair. */
+	private final IndexedMinHeap myHeap;
+
+	/** The repair in which each vertex was last cut off from the tree. */
+	private final int[] myMarks;
+
+	/** The number of the current repair. */
+	private int myRepair;
+
+	/** The vertices cut off by the current repair. */
+	private final int[] myCut;
+
+	/** The number of vertices the last repair settled. */
+	private int myRepairCount;
+
+	/**
+	 * Initialize a new DynamicImplementation.
+	 *
+	 * @param G the graph to evaluate; it must only be changed through this object
+	 */
+	public DynamicImplementation(DynamicGraph G) {
+		int n = G.vertexCount();
+		myGraph = G;
+		mySource = NONE;
+		myDistances = new int[n];
+		myPreds = new int[n];
+		myHeap = new IndexedMinHeap(n, MinHeapImplementation.DEFAULT_ARITY);
+		myMarks = new int[n];
+		myCut = new int[n];
+	}
+
+	/**
+	 * Return the graph being evaluated.
+	 *
+	 * @return the graph
+	 */
+	public DynamicGraph getGraph() {
+		return myGraph;
+	}
+
+	/**
+	 * Runs the algorithm with the passed vertex as the starting point city.
+	 *
+	 * @param s the starting city vertex
+	 */
+	public void runAlgorithm(Vertex s) {
+		mySource = myGraph.getId(s);
+		Arrays.fill(myDistances, Integer.MAX_VALUE);
+		Arrays.fill(myPreds, NONE);
+		myDistances[mySource] = 0;
+		myHeap.clear();
+		myHeap.insert(mySource, 0);
+		myRepairCount = propagate(false);
+	}
+
+	/**
+	 * Finds the shortest path from source to target. The tree of the last run is reused
+	 * when it has the same source.
+	 *
+	 * @param source the starting city vertex
+	 * @param target the ending city vertex
+	 */
+	public void runAlgorithm(Vertex source, Vertex target) {
+		if (myGraph.getId(source) != mySource) {
+			runAlgorithm(source);
+		}
+	}
+
+	/**
+	 * Change the weight of the edge between two vertices and repair the tree.
+	 *
+	 * @param u one endpoint
+	 * @param v the other endpoint
+	 * @param weight the new weight, not negative
+	 * @return false if u and v are not adjacent
+	 */
+	public boolean updateEdge(Vertex u, Vertex v, int weight) {
+		int a = myGraph.getId(u);
+		int b = myGraph.getId(v);
+		int e = myGraph.findArc(a, b);
+		if (e < 0) {
+			return false;
+		}
+		int oldWeight = myGraph.weight(e);
+		if (weight > oldWeight) {
+			int root = cutRoot(a, b, oldWeight);
+			myGraph.setWeight(e, weight);
+			repairIncrease(root);
+		} else {
+			myGraph.setWeight(e, weight);
+			repairDecrease(a, b, weight);
+		}
+		return true;
+	}
+
+	/**
+	 * Remove the edge between two vertices and repair the tree.
+	 *
+	 * @param u one endpoint
+	 * @param v the other endpoint
+	 * @return false if u and v are not adjacent
+	 */
+	public boolean removeEdge(Vertex u, Vertex v) {
+		int a = myGraph.getId(u);
+		int b = myGraph.getId(v);
+		int e = myGraph.findArc(a, b);
+		if (e < 0) {
+			return false;
+		}
+		int root = cutRoot(a, b, myGraph.weight(e));
+		myGraph.removeEdge(e);
+		repairIncrease(root);
+		return true;
+	}
+
+	/**
+	 * Add an edge between two vertices and repair the tree.
+	 *
+	 * @param u one endpoint
+	 * @param v the other endpoint
+	 * @param weight the weight, not negative
+	 */
+	public void addEdge(Vertex u, Vertex v, int weight) {
+		int a = myGraph.getId(u);
+		int b = myGraph.getId(v);
+		myGraph.addEdge(a, b, weight);
+		repairDecrease(a, b, weight);
+	}
+
+	/**
+	 * Return the number of vertices settled by the last run or repair.
+	 *
+	 * @return the number of vertices the last change touched
+	 */
+	public int getLastRepairCount() {
+		return myRepairCount;
+	}
+
+	/**
+	 * Return the vertex whose subtree loses its support when the edge between a and b of
+	 * the passed weight gets more expensive.
+	 *
+	 * @return the child end of the edge if it is a tree edge, otherwise NONE
+	 */
+	private int cutRoot(int a, int b, int weight) {
+		if (mySource == NONE) {
+			return NONE;
+		}
+		if (myPreds[b] == a && myDistances[a] != Integer.MAX_VALUE
+				&& myDistances[b] == myDistances[a] + weight) {
+			return b;
+		}
+		if (myPreds[a] == b && myDistances[b] != Integer.MAX_VALUE
+				&& myDistances[a] == myDistances[b] + weight) {
+			return a;
+		}
+		return NONE;
+	}
+
+	/**
+	 * Recompute the distances of the subtree below root after the edge into it became more
+	 * expensive or disappeared.
+	 */
+	private void repairIncrease(int root) {
+		myRepairCount = 0;
+		if (root == NONE) {
+			return;
+		}
+		int stamp = ++myRepair;
+		// collect the subtree by following predecessor links downward
+		int count = 0;
+		myMarks[root] = stamp;
+		myCut[count++] = root;
+		for (int i = 0; i < count; i++) {
+			int x = myCut[i];
+			for (int e = myGraph.firstEdge(x); e < myGraph.endEdge(x); e++) {
+				int y = myGraph.target(e);
+				if (myPreds[y] == x && myMarks[y] != stamp) {
+					myMarks[y] = stamp;
+					myCut[count++] = y;
+				}
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			myDistances[myCut[i]] = Integer.MAX_VALUE;
+			myPreds[myCut[i]] = NONE;
+		}
+		// seed each cut vertex with its best distance through a vertex outside the subtree
+		myHeap.clear();
+		for (int i = 0; i < count; i++) {
+			int x = myCut[i];
+			for (int e = myGraph.firstEdge(x); e < myGraph.endEdge(x); e++) {
+				int y = myGraph.target(e);
+				if (myMarks[y] == stamp || myDistances[y] == Integer.MAX_VALUE) {
+					continue;
+				}
+				int distance = QueryContext.extend(myDistances[y], myGraph.weight(e));
+				if (distance < myDistances[x]) {
+					myDistances[x] = distance;
+					myPreds[x] = y;
+				}
+			}
+			if (myDistances[x] != Integer.MAX_VALUE) {
+				myHeap.insert(x, myDistances[x]);
+			}
+		}
+		myRepairCount = propagate(true);
+	}
+
+	/**
+	 * Lower the distances that can use the edge between a and b of the passed weight.
+	 */
+	private void repairDecrease(int a, int b, int weight) {
+		myRepairCount = 0;
+		if (mySource == NONE) {
+			return;
+		}
+		myHeap.clear();
+		offer(b, a, weight);
+		offer(a, b, weight);
+		myRepairCount = propagate(false);
+	}
+
+	/**
+	 * Give v a better distance through u if there is one, and put it in the heap.
+	 */
+	private void offer(int v, int u, int weight) {
+		if (myDistances[u] == Integer.MAX_VALUE) {
+			return;
+		}
+		int distance = QueryContext.extend(myDistances[u], weight);
+		if (distance < myDistances[v]) {
+			myDistances[v] = distance;
+			myPreds[v] = u;
+			if (myHeap.contains(v)) {
+				myHeap.decreaseKey(v, myDistances[v]);
+			} else {
+				myHeap.insert(v, myDistances[v]);
+			}
+		}
+	}
+
+	/**
+	 * Run Dijkstra's algorithm from the vertices in the heap.
+	 *
+	 * @param cutOnly true to only relax vertices cut off by the current repair
+	 * @return the number of vertices settled
+	 */
+	private int propagate(boolean cutOnly) {
+		int settled = 0;
+		try {
+			while (!myHeap.isEmpty()) {
+				int u = myHeap.deleteMin();
+				settled++;
+				for (int e = myGraph.firstEdge(u); e < myGraph.endEdge(u); e++) {
+					int v = myGraph.target(e);
+					if (!cutOnly || myMarks[v] == myRepair) {
+						offer(v, u, myGraph.weight(e));
+					}
+				}
+			}
+		} catch (EmptyHeapException e) {
+			e.printStackTrace();
+		}
+		return settled;
+	}
+
+	/**
+	 * Return the distance to the passed vertex in the current tree.
+	 *
+	 * @param v a vertex
+	 * @return the distance to v, or Integer.MAX_VALUE if v cannot be reached
+	 */
+	public int getDistance(Vertex v) {
+		return mySource == NONE ? Integer.MAX_VALUE : myDistances[myGraph.getId(v)];
+	}
+
+	/**
+	 * Return the shortest path description starting from the starting vertex and ending at
+	 * the last vertex.
+	 *
+	 * @param first the starting vertex
+	 * @param last the ending vertex
+	 * @return the path as html
+	 */
+	public String getPath(Vertex first, Vertex last) {
+		return PathFormat.HTML.format(getPathResult(first, last));
+	}
+
+	/**
+	 * Return the shortest path from the starting vertex to the last vertex.
+	 *
+	 * @param first the starting vertex
+	 * @param last the ending vertex
+	 * @return the path, or null if there is none
+	 */
+	public PathResult getPathResult(Vertex first, Vertex last) {
+		int target = myGraph.getId(last);
+		if (mySource == NONE || myDistances[target] == Integer.MAX_VALUE) {
+			return null;
+		}
+		int length = 1;
+		for (int v = target; v != mySource; v = myPreds[v]) {
+			length++;
+		}
+		int[] ids = new int[length];
+		int[] distances = new int[length];
+		for (int v = target, i = length - 1; i >= 0; v = myPreds[v], i--) {
+			ids[i] = v;
+			distances[i] = myDistances[v];
+		}
+		return new PathResult(myGraph, ids, distances);
+	}
+
+	/**
+	 * Return a set of all the vertices.
+	 *
+	 * @return a set of all the vertices
+	 */
+	public Set<Vertex> getVertices() {
+		return myGraph.getVertices();
+	}
+
+	/**
+	 * Code to apply random edge changes to a graph and check every repaired tree against
+	 * a search from scratch.
+	 */
+	public static void main(String[] args) throws IOException {
+		String file = args.length > 0 ? args[0] : "./testGraphs/path2.txt";
+		int changes = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		DynamicGraph G = new DynamicGraph(ParallelGraphLoader.loadCompactGraph(file));
+		int n = G.vertexCount();
+		DynamicImplementation dynamic = new DynamicImplementation(G);
+		Vertex source = G.getVertex(0);
+		dynamic.runAlgorithm(source);
+		Random random = new Random(42);
+		int maxWeight = Math.max(1, Math.min(G.maxWeight(), 1 << 20));
+		long touched = 0;
+		long repairTime = 0;
+		long fullTime = 0;
+		int mismatches = 0;
+		for (int i = 0; i < changes; i++) {
+			Vertex u = G.getVertex(random.nextInt(n));
+			long begin = System.nanoTime();
+			int kind = random.nextInt(4);
+			if (kind == 3 || G.firstEdge(G.getId(u)) == G.endEdge(G.getId(u))) {
+				dynamic.addEdge(u, G.getVertex(random.nextInt(n)), random.nextInt(maxWeight) + 1);
+			} else {
+				int e = G.firstEdge(G.getId(u)) + random.nextInt(G.endEdge(G.getId(u))
+						- G.firstEdge(G.getId(u)));
+				Vertex v = G.getVertex(G.target(e));
+				if (kind == 2) {
+					dynamic.removeEdge(u, v);
+				} else {
+					dynamic.updateEdge(u, v, random.nextInt(2 * maxWeight) + 1);
+				}
+			}
+			repairTime += System.nanoTime() - begin;
+			touched += dynamic.getLastRepairCount();
+			begin = System.nanoTime();
+			MinHeapImplementation check = new MinHeapImplementation(G);
+			check.runAlgorithm(source);
+			fullTime += System.nanoTime() - begin;
+			for (int v = 0; v < n; v++) {
+				if (check.getDistance(G.getVertex(v)) != dynamic.getDistance(G.getVertex(v))) {
+					mismatches++;
+					break;
+				}
+			}
+		}
+		System.out.println(changes + " changes on " + n + " vertices, " + mismatches
+				+ " mismatched trees");
+		System.out.println("Average vertices touched per repair: " + touched / Math.max(1, changes));
+		System.out.println("Repairs took " + repairTime / 1000000 + " ms, full searches "
+				+ fullTime / 1000000 + " ms");
+	}
+}
@@ -0,0 +1,729 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generates synthetic graphs for testing at scale: square grids, random geometric graphs
+ * that look like road networks, Erdos-Renyi random graphs and Chung-Lu power-law
+ * graphs. Vertex i is named "v" followed by i.
+ *
+ * A generator emits its edges one at a time to an EdgeSink and never keeps them, so a
+ * graph can be written as text or as a GraphSnapshot while holding only a few numbers
+ * per vertex. The same seed always gives the same graph, which is what lets a snapshot
+ * be written in two passes: one to count the degrees and one to place the arcs.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public abstract class GraphGenerator {
+
+	/** Receives the edges of a generated graph. */
+	public interface EdgeSink {
+
+		/**
+		 * Accept one undirected edge.
+		 *
+		 * @param a the id of one endpoint
+		 * @param b the id of the other endpoint
+		 * @param weight the weight of the edge
+		 */
+		void edge(int a, int b, int weight) throws IOException;
+	}
+
+	/** How edge weights are drawn. */
+	public enum Weights {
+
+		/** Uniform in [1, maxWeight]. */
+		UNIFORM {
+			int next(Random random, int maxWeight, double length) {
+				return 1 + random.nextInt(maxWeight);
+			}
+		},
+
+		/** Exponential with mean maxWeight / 8, clipped to [1, maxWeight]. */
+		EXPONENTIAL {
+			int next(Random random, int maxWeight, double length) {
+				double value = -Math.log(1 - random.nextDouble()) * maxWeight / 8;
+				return (int) Math.min(maxWeight, 1 + (long) value);
+			}
+		},
+
+		/** Every weight is 1. */
+		UNIT {
+			int next(Random random, int maxWeight, double length) {
+				return 1;
+			}
+		},
+
+		/**
+		 * The length of the edge scaled to [1, maxWeight]. Only geometric graphs have
+		 * lengths; in the others every edge has the full length.
+		 */
+		LENGTH {
+			int next(Random random, int maxWeight, double length) {
+				return (int) Math.max(1, Math.min(maxWeight, Math.ceil(length * maxWeight)));
+			}
+		};
+
+		/**
+		 * Return the weight of the next edge.
+		 *
+		 * @param random the random numbers of the generator
+		 * @param maxWeight the largest weight
+		 * @param length the length of the edge relative to the longest possible, in [0, 1]
+		 */
+		abstract int next(Random random, int maxWeight, double length);
+	}
+
+	/** The size of the buffer used for text output. */
+	private static final int TEXT_BUFFER_BYTES = 1 << 16;
+
+	/** The most bytes of a snapshot mapped at once. */
+	private static final int MAP_BYTES = 1 << 30;
+
+	/** The number of vertices. */
+	protected final int myVertexCount;
+
+	/** The largest edge weight. */
+	protected final int myMaxWeight;
+
+	/** How edge weights are drawn. */
+	protected final Weights myWeights;
+
+	/** The seed of the random numbers. */
+	private final long mySeed;
+
+	/**
+	 * Initialize a new GraphGenerator. The engines keep distances in ints, so the weights
+	 * must be small enough that no simple path, of at most n - 1 edges, can reach
+	 * Integer.MAX_VALUE.
+	 *
+	 * @param n the number of vertices
+	 * @param maxWeight the largest edge weight, at least 1 and at most
+	 *        (Integer.MAX_VALUE - 1) / (n - 1) unless the weights are UNIT
+	 * @param weights how edge weights are drawn
+	 * @param seed the seed of the random numbers
+	 */
+	protected GraphGenerator(int n, int maxWeight, Weights weights, long seed) {
+		if (n < 1 || maxWeight < 1) {
+			throw new IllegalArgumentException("A graph needs a vertex and a positive weight");
+		}
+		long limit = (Integer.MAX_VALUE - 1) / Math.max(1, n - 1);
+		if (weights != Weights.UNIT && maxWeight > limit) {
+			throw new IllegalArgumentException("Weights up to " + maxWeight + " on " + n
+					+ " vertices can give paths too long for int distances; use at most " + limit);
+		}
+		myVertexCount = n;
+		myMaxWeight = maxWeight;
+		myWeights = weights;
+		mySeed = seed;
+	}
+
+	/**
+	 * Return a generator of a grid with rows * cols vertices, each joined to the vertices
+	 * beside, above and below it.
+	 *
+	 * @param rows the number of rows
+	 * @param cols the number of columns
+	 * @param maxWeight the largest edge weight
+	 * @param weights how edge weights are drawn
+	 * @param seed the seed of the random numbers
+	 * @return the generator
+	 */
+	public static GraphGenerator grid(int rows, int cols, int maxWeight, Weights weights,
+			long seed) {
+		return new Grid(rows, cols, maxWeight, weights, seed);
+	}
+
+	/**
+	 * Return a generator of a random geometric graph: n points scattered in the unit
+	 * square, with every two points closer than a radius joined by an edge. The radius is
+	 * chosen to give the average degree. Short edges between nearby points make this
+	 * the closest model here to a road network, especially with Weights.LENGTH.
+	 *
+	 * @param n the number of vertices
+	 * @param degree the average degree
+	 * @param maxWeight the largest edge weight
+	 * @param weights how edge weights are drawn
+	 * @param seed the seed of the random numbers
+	 * @return the generator
+	 */
+	public static GraphGenerator geometric(int n, double degree, int maxWeight, Weights weights,
+			long seed) {
+		return new Geometric(n, degree, maxWeight, weights, seed);
+	}
+
+	/**
+	 * Return a generator of an Erdos-Renyi graph with n * degree / 2 edges between
+	 * uniformly random pairs of distinct vertices.
+	 *
+	 * @param n the number of vertices, at least 2
+	 * @param degree the average degree
+	 * @param maxWeight the largest edge weight
+	 * @param weights how edge weights are drawn
+	 * @param seed the seed of the random numbers
+	 * @return the generator
+	 */
+	public static GraphGenerator erdosRenyi(int n, double degree, int maxWeight, Weights weights,
+			long seed) {
+		return new ErdosRenyi(n, degree, maxWeight, weights, seed);
+	}
+
+	/**
+	 * Return a generator of a Chung-Lu graph whose degrees follow a power law: vertex i
+	 * has expected degree proportional to (i + 1) ^ (-1 / (exponent - 1)), and each of the
+	 * n * degree / 2 edges picks both endpoints in proportion to those degrees.
+	 *
+	 * @param n the number of vertices, at least 2
+	 * @param degree the average degree
+	 * @param exponent the exponent of the degree distribution, greater than 2
+	 * @param maxWeight the largest edge weight
+	 * @param weights how edge weights are drawn
+	 * @param seed the seed of the random numbers
+	 * @return the generator
+	 */
+	public static GraphGenerator powerLaw(int n, double degree, double exponent, int maxWeight,
+			Weights weights, long seed) {
+		return new PowerLaw(n, degree, exponent, maxWeight, weights, seed);
+	}
+
+	/**
+	 * Emit every edge of the graph.
+	 *
+	 * @param random the random numbers, freshly seeded
+	 * @param sink the receiver of the edges
+	 */
+	protected abstract void emit(Random random, EdgeSink sink) throws IOException;
+
+	/**
+	 * Return the number of vertices.
+	 *
+	 * @return the number of vertices
+	 */
+	public int vertexCount() {
+		return myVertexCount;
+	}
+
+	/**
+	 * Return the name of a vertex.
+	 *
+	 * @param v the id of the vertex
+	 * @return its name
+	 */
+	public static String name(int v) {
+		return "v" + v;
+	}
+
+	/**
+	 * Emit every edge of the graph to a sink. Each call emits the same edges in the same
+	 * order.
+	 *
+	 * @param sink the receiver of the edges
+	 */
+	public void generate(EdgeSink sink) throws IOException {
+		emit(new Random(mySeed), sink);
+	}
+
+	/**
+	 * Write the graph in the text format read by GraphInput, one "a b weight" line per
+	 * edge. Vertices without edges cannot be written in this format and are left out.
+	 *
+	 * @param file the file to write; it is overwritten
+	 * @return the number of edges written
+	 */
+	public long writeText(File file) throws IOException {
+		final BufferedWriter out = new BufferedWriter(new FileWriter(file), TEXT_BUFFER_BYTES);
+		final long[] count = new long[1];
+		try {
+			generate(new EdgeSink() {
+				public void edge(int a, int b, int weight) throws IOException {
+					out.write(name(a));
+					out.write(' ');
+					out.write(name(b));
+					out.write(' ');
+					out.write(Integer.toString(weight));
+					out.newLine();
+					count[0]++;
+				}
+			});
+		} finally {
+			out.close();
+		}
+		return count[0];
+	}
+
+	/**
+	 * Write the graph as a GraphSnapshot. The generator runs twice, first to count the
+	 * degree of each vertex and then to write each arc straight to its place in the
+	 * file, so only the offsets and a cursor per vertex are held in memory.
+	 *
+	 * @param file the file to write; it is overwritten
+	 * @return the number of edges written
+	 */
+	public long writeSnapshot(File file) throws IOException {
+		final int n = myVertexCount;
+		final int[] offsets = new int[n + 1];
+		final int[] maxWeight = new int[1];
+		generate(new EdgeSink() {
+			public void edge(int a, int b, int weight) {
+				offsets[a + 1]++;
+				offsets[b + 1]++;
+				maxWeight[0] = Math.max(maxWeight[0], weight);
+			}
+		});
+		long arcs = 0;
+		for (int v = 0; v < n; v++) {
+			arcs += offsets[v + 1];
+			if (arcs > Integer.MAX_VALUE) {
+				throw new IOException("The graph has too many edges for a snapshot");
+			}
+			offsets[v + 1] = (int) arcs;
+		}
+		long nameBytes = 0;
+		for (int v = 0; v < n; v++) {
+			nameBytes += name(v).length();
+		}
+		if (nameBytes > Integer.MAX_VALUE - 3) {
+			throw new IOException("The vertex names take too many bytes to store");
+		}
+		final GraphSnapshot.Layout layout = new GraphSnapshot.Layout();
+		layout.n = n;
+		layout.m = (int) arcs;
+		layout.maxWeight = maxWeight[0];
+		layout.nameBytes = (int) nameBytes;
+
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.setLength(0);
+			raf.setLength(layout.fileSize());
+			final FileChannel channel = raf.getChannel();
+			final MappedByteBuffer[] windows = new MappedByteBuffer[(int) ((layout.fileSize()
+					+ MAP_BYTES - 1) / MAP_BYTES)];
+			for (int i = 0; i < windows.length; i++) {
+				long at = (long) i * MAP_BYTES;
+				windows[i] = channel.map(FileChannel.MapMode.READ_WRITE, at,
+						Math.min(MAP_BYTES, layout.fileSize() - at));
+				windows[i].order(ByteOrder.LITTLE_ENDIAN);
+			}
+			long at = 0;
+			for (int value : new int[] {GraphSnapshot.MAGIC, GraphSnapshot.VERSION, n,
+					layout.m, layout.maxWeight, layout.nameBytes}) {
+				putInt(windows, at, value);
+				at += 4;
+			}
+			for (int v = 0; v <= n; v++) {
+				putInt(windows, layout.offsetsAt() + 4L * v, offsets[v]);
+			}
+
+			// the second pass places each arc after the arcs already placed for its tail
+			final int[] next = Arrays.copyOf(offsets, n);
+			generate(new EdgeSink() {
+				public void edge(int a, int b, int weight) {
+					int arc = next[a]++;
+					putInt(windows, layout.targetsAt() + 4L * arc, b);
+					putInt(windows, layout.weightsAt() + 4L * arc, weight);
+					arc = next[b]++;
+					putInt(windows, layout.targetsAt() + 4L * arc, a);
+					putInt(windows, layout.weightsAt() + 4L * arc, weight);
+				}
+			});
+
+			long nameAt = layout.namesAt();
+			int end = 0;
+			for (int v = 0; v < n; v++) {
+				String name = name(v);
+				for (int i = 0; i < name.length(); i++) {
+					windows[(int) (nameAt / MAP_BYTES)].put((int) (nameAt % MAP_BYTES),
+							(byte) name.charAt(i));
+					nameAt++;
+				}
+				end += name.length();
+				putInt(windows, layout.nameEndsAt() + 4L * v, end);
+			}
+			for (MappedByteBuffer window : windows) {
+				window.force();
+			}
+			putInt(windows, layout.checksumAt(), GraphSnapshot.checksum(channel, layout));
+			for (MappedByteBuffer window : windows) {
+				window.force();
+			}
+		} finally {
+			raf.close();
+		}
+		return arcs / 2;
+	}
+
+	/**
+	 * Put an int at a file position into the mapped windows of a file.
+	 */
+	private static void putInt(MappedByteBuffer[] windows, long position, int value) {
+		// every window starts at a multiple of 4, so an int never crosses two windows
+		windows[(int) (position / MAP_BYTES)].putInt((int) (position % MAP_BYTES), value);
+	}
+
+	/**
+	 * Return the graph as a CompactGraph. Unlike the writers this holds every edge in
+	 * memory, so it is meant for graphs small enough to test with.
+	 *
+	 * @return the graph, with the vertex ids of the generator
+	 */
+	public CompactGraph toCompactGraph() throws IOException {
+		final int[][] edges = new int[3][16];
+		final int[] count = new int[1];
+		generate(new EdgeSink() {
+			public void edge(int a, int b, int weight) {
+				int m = count[0]++;
+				if (m == edges[0].length) {
+					for (int i = 0; i < 3; i++) {
+						edges[i] = Arrays.copyOf(edges[i], 2 * m);
+					}
+				}
+				edges[0][m] = a;
+				edges[1][m] = b;
+				edges[2][m] = weight;
+			}
+		});
+		Vertex[] vertices = new Vertex[myVertexCount];
+		for (int v = 0; v < myVertexCount; v++) {
+			vertices[v] = new Vertex(null, name(v));
+		}
+		return new CompactGraph(vertices, myVertexCount, edges[0], edges[1], edges[2], count[0]);
+	}
+
+	/**
+	 * Return the number of edges of a graph with n vertices and an average degree.
+	 */
+	private static int edgeCount(int n, double degree) {
+		double m = n * degree / 2;
+		if (m > Integer.MAX_VALUE / 2) {
+			throw new IllegalArgumentException("Too many edges: " + (long) m);
+		}
+		return (int) m;
+	}
+
+	/**
+	 * A grid where vertex r * cols + c is joined to its right and lower neighbours.
+	 */
+	private static class Grid extends GraphGenerator {
+		private final int myRows;
+		private final int myCols;
+
+		Grid(int rows, int cols, int maxWeight, Weights weights, long seed) {
+			super(checkedProduct(rows, cols), maxWeight, weights, seed);
+			myRows = rows;
+			myCols = cols;
+		}
+
+		private static int checkedProduct(int rows, int cols) {
+			if (rows < 1 || cols < 1 || (long) rows * cols > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Bad grid size " + rows + " x " + cols);
+			}
+			return rows * cols;
+		}
+
+		protected void emit(Random random, EdgeSink sink) throws IOException {
+			for (int r = 0; r < myRows; r++) {
+				for (int c = 0; c < myCols; c++) {
+					int v = r * myCols + c;
+					if (c + 1 < myCols) {
+						sink.edge(v, v + 1, myWeights.next(random, myMaxWeight, 1));
+					}
+					if (r + 1 < myRows) {
+						sink.edge(v, v + myCols, myWeights.next(random, myMaxWeight, 1));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * A random geometric graph. The points are bucketed into square cells as wide as the
+	 * radius, so only the points in the 9 cells around a point are candidates for its
+	 * edges.
+	 */
+	private static class Geometric extends GraphGenerator {
+		private final double myRadius;
+
+		Geometric(int n, double degree, int maxWeight, Weights weights, long seed) {
+			super(n, maxWeight, weights, seed);
+			// a point has about n * pi * r^2 others within radius r
+			myRadius = Math.min(1, Math.sqrt(degree / (Math.PI * n)));
+		}
+
+		protected void emit(Random random, EdgeSink sink) throws IOException {
+			int n = myVertexCount;
+			float[] x = new float[n];
+			float[] y = new float[n];
+			for (int v = 0; v < n; v++) {
+				x[v] = random.nextFloat();
+				y[v] = random.nextFloat();
+			}
+			int side = (int) Math.max(1, Math.min(Math.floor(1 / myRadius), Math.sqrt(n)));
+			int[] cell = new int[n];
+			int[] cellStart = new int[side * side + 1];
+			for (int v = 0; v < n; v++) {
+				cell[v] = cellOf(y[v], side) * side + cellOf(x[v], side);
+				cellStart[cell[v] + 1]++;
+			}
+			for (int c = 0; c < side * side; c++) {
+				cellStart[c + 1] += cellStart[c];
+			}
+			int[] next = Arrays.copyOf(cellStart, side * side);
+			int[] members = new int[n];
+			for (int v = 0; v < n; v++) {
+				members[next[cell[v]]++] = v;
+			}
+			next = null;
+
+			double radius2 = myRadius * myRadius;
+			for (int v = 0; v < n; v++) {
+				int row = cell[v] / side;
+				int col = cell[v] % side;
+				for (int r = Math.max(0, row - 1); r <= Math.min(side - 1, row + 1); r++) {
+					for (int c = Math.max(0, col - 1); c <= Math.min(side - 1, col + 1); c++) {
+						int k = r * side + c;
+						for (int i = cellStart[k]; i < cellStart[k + 1]; i++) {
+							int u = members[i];
+							if (u <= v) {
+								continue;
+							}
+							double dx = x[u] - x[v];
+							double dy = y[u] - y[v];
+							double d2 = dx * dx + dy * dy;
+							if (d2 <= radius2) {
+								sink.edge(v, u, myWeights.next(random, myMaxWeight,
+										Math.sqrt(d2) / myRadius));
+							}
+						}
+					}
+				}
+			}
+		}
+
+		private static int cellOf(float coordinate, int side) {
+			return Math.min(side - 1, (int) (coordinate * side));
+		}
+	}
+
+	/**
+	 * An Erdos-Renyi graph with a fixed number of edges.
+	 */
+	private static class ErdosRenyi extends GraphGenerator {
+		private final int myEdgeCount;
+
+		ErdosRenyi(int n, double degree, int maxWeight, Weights weights, long seed) {
+			super(n, maxWeight, weights, seed);
+			if (n < 2) {
+				throw new IllegalArgumentException("A random graph needs two vertices");
+			}
+			myEdgeCount = edgeCount(n, degree);
+		}
+
+		protected void emit(Random random, EdgeSink sink) throws IOException {
+			int n = myVertexCount;
+			for (int i = 0; i < myEdgeCount; i++) {
+				int a = random.nextInt(n);
+				int b = (a + 1 + random.nextInt(n - 1)) % n;
+				sink.edge(a, b, myWeights.next(random, myMaxWeight, 1));
+			}
+		}
+	}
+
+	/**
+	 * A Chung-Lu graph, with endpoints drawn by binary search in the cumulative expected
+	 * degrees.
+	 */
+	private static class PowerLaw extends GraphGenerator {
+		private final int myEdgeCount;
+		private final double myExponent;
+
+		PowerLaw(int n, double degree, double exponent, int maxWeight, Weights weights,
+				long seed) {
+			super(n, maxWeight, weights, seed);
+			if (n < 2 || exponent <= 2) {
+				throw new IllegalArgumentException("A power-law graph needs two vertices "
+						+ "and an exponent above 2");
+			}
+			myEdgeCount = edgeCount(n, degree);
+			myExponent = exponent;
+		}
+
+		protected void emit(Random random, EdgeSink sink) throws IOException {
+			int n = myVertexCount;
+			double[] cumulative = new double[n];
+			double total = 0;
+			for (int v = 0; v < n; v++) {
+				total += Math.pow(v + 1, -1 / (myExponent - 1));
+				cumulative[v] = total;
+			}
+			for (int i = 0; i < myEdgeCount; i++) {
+				int a = pick(cumulative, random.nextDouble() * total);
+				int b = pick(cumulative, random.nextDouble() * total);
+				while (b == a) {
+					b = pick(cumulative, random.nextDouble() * total);
+				}
+				sink.edge(a, b, myWeights.next(random, myMaxWeight, 1));
+			}
+		}
+
+		/**
+		 * Return the first vertex whose cumulative weight is above a value.
+		 */
+		private static int pick(double[] cumulative, double value) {
+			int low = 0;
+			int high = cumulative.length - 1;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (cumulative[mid] > value) {
+					high = mid;
+				} else {
+					low = mid + 1;
+				}
+			}
+			return low;
+		}
+	}
+
+	/**
+	 * Code to generate a graph file, or with no arguments to check the generators. Usage:
+	 *
+	 * java GraphGenerator grid|geometric|random|powerlaw n output [-d degree] [-w maxWeight]
+	 * [-weights uniform|exponential|unit|length] [-exponent 2.5] [-seed 343]
+	 * [-format text|snapshot]
+	 *
+	 * A grid has the square number of vertices nearest n. The largest weight is limited so
+	 * that every path length fits in an int.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			check();
+			return;
+		}
+		if (args.length < 3) {
+			System.err.println("Usage: GraphGenerator grid|geometric|random|powerlaw n output "
+					+ "[-d degree] [-w maxWeight] [-weights uniform|exponential|unit|length] "
+					+ "[-exponent 2.5] [-seed 343] [-format text|snapshot]");
+			return;
+		}
+		String model = args[0];
+		int n = Integer.parseInt(args[1]);
+		File output = new File(args[2]);
+		double degree = 4;
+		int maxWeight = 100;
+		Weights weights = Weights.UNIFORM;
+		double exponent = 2.5;
+		long seed = 343;
+		boolean snapshot = false;
+		for (int i = 3; i + 1 < args.length; i += 2) {
+			if (args[i].equals("-d")) {
+				degree = Double.parseDouble(args[i + 1]);
+			} else if (args[i].equals("-w")) {
+				maxWeight = Integer.parseInt(args[i + 1]);
+			} else if (args[i].equals("-weights")) {
+				weights = Weights.valueOf(args[i + 1].toUpperCase());
+			} else if (args[i].equals("-exponent")) {
+				exponent = Double.parseDouble(args[i + 1]);
+			} else if (args[i].equals("-seed")) {
+				seed = Long.parseLong(args[i + 1]);
+			} else if (args[i].equals("-format")) {
+				snapshot = args[i + 1].equals("snapshot");
+			} else {
+				System.err.println("Unknown option " + args[i]);
+				return;
+			}
+		}
+		GraphGenerator generator;
+		try {
+			if (model.equals("grid")) {
+				int side = (int) Math.round(Math.sqrt(n));
+				generator = grid(side, side, maxWeight, weights, seed);
+			} else if (model.equals("geometric")) {
+				generator = geometric(n, degree, maxWeight, weights, seed);
+			} else if (model.equals("random")) {
+				generator = erdosRenyi(n, degree, maxWeight, weights, seed);
+			} else if (model.equals("powerlaw")) {
+				generator = powerLaw(n, degree, exponent, maxWeight, weights, seed);
+			} else {
+				System.err.println("Unknown model " + model);
+				return;
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			return;
+		}
+		long begin = System.nanoTime();
+		long edges = snapshot ? generator.writeSnapshot(output) : generator.writeText(output);
+		System.out.println("Wrote " + generator.vertexCount() + " vertices and " + edges
+				+ " edges, " + output.length() + " bytes, to " + output + " in "
+				+ (System.nanoTime() - begin) / 1000000 + " ms");
+	}
+
+	/**
+	 * Check that every model writes a snapshot identical to the graph built in memory,
+	 * and a text file with the same shortest path distances.
+	 */
+	private static void check() throws IOException {
+		GraphGenerator[] generators = {
+				grid(80, 120, 100, Weights.UNIFORM, 1),
+				geometric(10000, 6, 1000, Weights.LENGTH, 2),
+				erdosRenyi(10000, 4, 50, Weights.EXPONENTIAL, 3),
+				powerLaw(10000, 4, 2.5, 10, Weights.UNIT, 4)};
+		String[] names = {"grid", "geometric", "random", "powerlaw"};
+		for (int g = 0; g < generators.length; g++) {
+			GraphGenerator generator = generators[g];
+			File text = File.createTempFile("graph", ".txt");
+			File csr = File.createTempFile("graph", ".csr");
+			text.deleteOnExit();
+			csr.deleteOnExit();
+			generator.writeText(text);
+			generator.writeSnapshot(csr);
+			CompactGraph memory = generator.toCompactGraph();
+			CompactGraph loaded = GraphSnapshot.read(csr);
+			boolean same = memory.vertexCount() == loaded.vertexCount()
+					&& memory.arcCount() == loaded.arcCount()
+					&& memory.maxWeight() == loaded.maxWeight();
+			for (int v = 0; same && v < memory.vertexCount(); v++) {
+				same = memory.getVertex(v).getName().equals(loaded.getVertex(v).getName())
+						&& memory.firstEdge(v) == loaded.firstEdge(v);
+				for (int e = memory.firstEdge(v); same && e < memory.endEdge(v); e++) {
+					same = memory.target(e) == loaded.target(e)
+							&& memory.weight(e) == loaded.weight(e);
+				}
+			}
+
+			// the text loader numbers vertices in order of appearance, so compare by name
+			CompactGraph parsed = GraphInput.LoadCompactGraph(text.getPath());
+			Vertex source = parsed.getVertex(0);
+			MinHeapImplementation fromText = new MinHeapImplementation(parsed);
+			MinHeapImplementation fromMemory = new MinHeapImplementation(memory);
+			fromText.runAlgorithm(source);
+			fromMemory.runAlgorithm(memory.getVertex(Integer.parseInt(((String) source.getName()).substring(1))));
+			int mismatches = 0;
+			long reached = 0;
+			for (int v = 0; v < parsed.vertexCount(); v++) {
+				Vertex vertex = parsed.getVertex(v);
+				int id = Integer.parseInt(((String) vertex.getName()).substring(1));
+				int distance = fromText.getDistance(vertex);
+				if (distance != fromMemory.getDistance(memory.getVertex(id))) {
+					mismatches++;
+				}
+				if (distance < Integer.MAX_VALUE) {
+					reached++;
+				}
+			}
+			System.out.println(names[g] + ": " + memory.vertexCount() + " vertices, "
+					+ memory.arcCount() / 2 + " edges, snapshot " + (same ? "matches" : "differs")
+					+ ", " + reached + " reached from " + source.getName() + ", "
+					+ mismatches + " distance mismatches");
+			text.delete();
+			csr.delete();
+		}
+	}
+}
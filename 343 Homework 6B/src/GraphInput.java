@@ -93,6 +93,81 @@ public class GraphInput {
     }
 
 
+    /**
+     * Load graph data from a text file straight into a CompactGraph, without
+     * creating an Edge object per line. The file format is the same as for
+     * LoadSimpleGraph; vertex ids are assigned in order of first appearance.
+     *
+     * @param pathandfilename  the name of the file, including full path.
+     * @returns  the loaded graph, or null if the file is malformed
+     */
+    public static CompactGraph LoadCompactGraph(String pathandfilename) {
+        BufferedReader  inbuf = InputLib.fopen(pathandfilename);
+        System.out.println("Opened " + pathandfilename + " for input.");
+        String  line = InputLib.getLine(inbuf); // get first line
+        StringTokenizer sTok;
+        int n, linenum = 0;
+        HashMap<String, Integer> table = new HashMap<String, Integer>();
+        Vertex[] vertices = new Vertex[16];
+        int[] from = new int[16];
+        int[] to = new int[16];
+        int[] weight = new int[16];
+        int m = 0;
+
+        while (line != null) {
+            linenum++;
+            sTok = new StringTokenizer(line);
+            n = sTok.countTokens();
+            if (n==3) {
+                String v1name = sTok.nextToken();
+                String v2name = sTok.nextToken();
+                double weightdata = Double.parseDouble(sTok.nextToken());
+                if (weightdata < 0) {
+                    System.err.println("Error:negative edge weight found on line " +linenum+ "!");
+                    return null;
+                }
+                int edgedata = (int) weightdata;
+                Integer v1 = table.get(v1name);
+                if (v1 == null) {
+                    v1 = table.size();
+                    if (v1 == vertices.length) {
+                        vertices = Arrays.copyOf(vertices, 2 * v1);
+                    }
+                    vertices[v1] = new Vertex(null, v1name);
+                    table.put(v1name, v1);
+                }
+                Integer v2 = table.get(v2name);
+                if (v2 == null) {
+                    v2 = table.size();
+                    if (v2 == vertices.length) {
+                        vertices = Arrays.copyOf(vertices, 2 * v2);
+                    }
+                    vertices[v2] = new Vertex(null, v2name);
+                    table.put(v2name, v2);
+                }
+                if (m == from.length) {
+                    from = Arrays.copyOf(from, 2 * m);
+                    to = Arrays.copyOf(to, 2 * m);
+                    weight = Arrays.copyOf(weight, 2 * m);
+                }
+                from[m] = v1;
+                to[m] = v2;
+                weight[m] = edgedata;
+                m++;
+            }
+            else {
+                System.err.println("Error:invalid number of tokens found on line " +linenum+ "!");
+                return null;
+            }
+            line = InputLib.getLine(inbuf);
+        }
+
+        InputLib.fclose(inbuf);
+        System.out.println("Successfully loaded "+ linenum + " lines. ");
+        return new CompactGraph(vertices, table.size(), from, to, weight, m);
+    }
+
+
     /**
      * Code to test the methods of this class.
      */
@@ -0,0 +1,396 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes graphs in a binary snapshot format, so a graph that has been parsed
+ * once can be loaded again without parsing.
+ *
+ * A snapshot stores the arrays of a CompactGraph as they are in memory. All numbers are
+ * little-endian ints:
+ *
+ * <pre>
+ * magic, version, vertex count n, arc count m, largest weight, name byte count
+ * offsets     n + 1 ints
+ * targets     m ints
+ * weights     m ints
+ * name ends   n ints, the end of each name in the name bytes
+ * name bytes  the UTF-8 vertex names, padded with zeros to a multiple of 4
+ * checksum    the CRC-32 of everything before it
+ * </pre>
+ *
+ * Loading maps the file and copies each array out in one bulk read. Every section starts
+ * at a multiple of 4 bytes, so the arrays can also be used from the mapping directly.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class GraphSnapshot {
+
+	/** The first int of every snapshot: "CSRG" read as little-endian bytes. */
+	public static final int MAGIC = 0x47525343;
+
+	/** The version of the format this class writes. */
+	public static final int VERSION = 1;
+
+	/** The bytes before the offsets. */
+	static final int HEADER_BYTES = 24;
+
+	/** The character set of vertex names. */
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/** The most bytes mapped at once. */
+	private static final int MAX_MAP_BYTES = 1 << 30;
+
+	/** The size of the buffer used for writing. */
+	private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+	/**
+	 * The layout of the sections of a snapshot, read from its header.
+	 */
+	static class Layout {
+		int n;
+		int m;
+		int maxWeight;
+		int nameBytes;
+
+		long offsetsAt() {
+			return HEADER_BYTES;
+		}
+
+		long targetsAt() {
+			return offsetsAt() + 4L * (n + 1);
+		}
+
+		long weightsAt() {
+			return targetsAt() + 4L * m;
+		}
+
+		long nameEndsAt() {
+			return weightsAt() + 4L * m;
+		}
+
+		long namesAt() {
+			return nameEndsAt() + 4L * n;
+		}
+
+		long checksumAt() {
+			return namesAt() + (nameBytes + 3L) / 4 * 4;
+		}
+
+		long fileSize() {
+			return checksumAt() + 4;
+		}
+	}
+
+	/**
+	 * Write a snapshot of a SimpleGraph.
+	 *
+	 * @param G the graph
+	 * @param file the file to write; it is overwritten
+	 */
+	public static void write(SimpleGraph G, File file) throws IOException {
+		write(new CompactGraph(G), file);
+	}
+
+	/**
+	 * Write a snapshot of an IndexedGraph.
+	 *
+	 * @param G the graph
+	 * @param file the file to write; it is overwritten
+	 */
+	public static void write(IndexedGraph G, File file) throws IOException {
+		int n = G.vertexCount();
+		byte[][] names = new byte[n][];
+		long nameBytes = 0;
+		for (int v = 0; v < n; v++) {
+			names[v] = String.valueOf(G.getVertex(v).getName()).getBytes(UTF8);
+			nameBytes += names[v].length;
+		}
+		if (nameBytes > Integer.MAX_VALUE - 3) {
+			throw new IOException("The vertex names take too many bytes to store");
+		}
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.setLength(0);
+			Writer out = new Writer(raf.getChannel());
+			out.putInt(MAGIC);
+			out.putInt(VERSION);
+			out.putInt(n);
+			out.putInt(G.arcCount());
+			out.putInt(G.maxWeight());
+			out.putInt((int) nameBytes);
+			// the arcs of G may not be numbered contiguously, so the offsets are rebuilt
+			int offset = 0;
+			for (int v = 0; v < n; v++) {
+				out.putInt(offset);
+				offset += G.endEdge(v) - G.firstEdge(v);
+			}
+			out.putInt(offset);
+			for (int v = 0; v < n; v++) {
+				for (int e = G.firstEdge(v); e < G.endEdge(v); e++) {
+					out.putInt(G.target(e));
+				}
+			}
+			for (int v = 0; v < n; v++) {
+				for (int e = G.firstEdge(v); e < G.endEdge(v); e++) {
+					out.putInt(G.weight(e));
+				}
+			}
+			int end = 0;
+			for (int v = 0; v < n; v++) {
+				end += names[v].length;
+				out.putInt(end);
+			}
+			for (int v = 0; v < n; v++) {
+				out.putBytes(names[v]);
+			}
+			while (nameBytes++ % 4 != 0) {
+				out.putBytes(new byte[1]);
+			}
+			out.finish();
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Writes little-endian ints and bytes to a channel through a buffer, keeping a
+	 * checksum of everything written.
+	 */
+	private static class Writer {
+		private final FileChannel myChannel;
+		private final ByteBuffer myBuffer;
+		private final CRC32 myChecksum;
+
+		Writer(FileChannel channel) {
+			myChannel = channel;
+			myBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			myChecksum = new CRC32();
+		}
+
+		void putInt(int value) throws IOException {
+			if (myBuffer.remaining() < 4) {
+				flush();
+			}
+			myBuffer.putInt(value);
+		}
+
+		void putBytes(byte[] bytes) throws IOException {
+			for (int i = 0; i < bytes.length; ) {
+				if (!myBuffer.hasRemaining()) {
+					flush();
+				}
+				int count = Math.min(bytes.length - i, myBuffer.remaining());
+				myBuffer.put(bytes, i, count);
+				i += count;
+			}
+		}
+
+		/**
+		 * Write the buffer out, adding it to the checksum.
+		 */
+		private void flush() throws IOException {
+			myBuffer.flip();
+			myChecksum.update(myBuffer.duplicate());
+			while (myBuffer.hasRemaining()) {
+				myChannel.write(myBuffer);
+			}
+			myBuffer.clear();
+		}
+
+		/**
+		 * Write the checksum and everything still buffered.
+		 */
+		void finish() throws IOException {
+			flush();
+			myBuffer.putInt((int) myChecksum.getValue());
+			myBuffer.flip();
+			while (myBuffer.hasRemaining()) {
+				myChannel.write(myBuffer);
+			}
+			myChannel.force(false);
+		}
+	}
+
+	/**
+	 * Determine whether a file starts like a snapshot.
+	 *
+	 * @param file a file
+	 * @return true if the file begins with the snapshot magic number
+	 */
+	public static boolean isSnapshot(File file) {
+		if (!file.isFile() || file.length() < HEADER_BYTES) {
+			return false;
+		}
+		try {
+			RandomAccessFile raf = new RandomAccessFile(file, "r");
+			try {
+				ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+				raf.getChannel().read(magic, 0);
+				return magic.getInt(0) == MAGIC;
+			} finally {
+				raf.close();
+			}
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Load a snapshot, checking its checksum.
+	 *
+	 * @param file the snapshot
+	 * @return the graph
+	 */
+	public static CompactGraph read(File file) throws IOException {
+		return read(file, true);
+	}
+
+	/**
+	 * Load a snapshot.
+	 *
+	 * @param file the snapshot
+	 * @param verify true to check the checksum, which costs one pass over the file
+	 * @return the graph
+	 */
+	public static CompactGraph read(File file, boolean verify) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			Layout layout = readLayout(channel);
+			if (verify) {
+				verify(channel, layout);
+			}
+			int n = layout.n;
+			int[] offsets = readInts(channel, layout.offsetsAt(), n + 1);
+			int[] targets = readInts(channel, layout.targetsAt(), layout.m);
+			int[] weights = readInts(channel, layout.weightsAt(), layout.m);
+			int[] nameEnds = readInts(channel, layout.nameEndsAt(), n);
+			if (offsets[0] != 0 || offsets[n] != layout.m) {
+				throw new IOException(file + " has inconsistent offsets");
+			}
+			byte[] names = new byte[layout.nameBytes];
+			map(channel, layout.namesAt(), layout.nameBytes).get(names);
+			Vertex[] vertices = new Vertex[n];
+			int start = 0;
+			for (int v = 0; v < n; v++) {
+				vertices[v] = new Vertex(null, new String(names, start, nameEnds[v] - start, UTF8));
+				start = nameEnds[v];
+			}
+			return new CompactGraph(vertices, offsets, targets, weights, layout.maxWeight);
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Read and check the header of a snapshot.
+	 */
+	static Layout readLayout(FileChannel channel) throws IOException {
+		if (channel.size() < HEADER_BYTES) {
+			throw new IOException("Too short to be a graph snapshot");
+		}
+		IntBuffer header = map(channel, 0, HEADER_BYTES).asIntBuffer();
+		if (header.get(0) != MAGIC) {
+			throw new IOException("Not a graph snapshot");
+		}
+		if (header.get(1) != VERSION) {
+			throw new IOException("Unsupported snapshot version " + header.get(1));
+		}
+		Layout layout = new Layout();
+		layout.n = header.get(2);
+		layout.m = header.get(3);
+		layout.maxWeight = header.get(4);
+		layout.nameBytes = header.get(5);
+		if (layout.n < 0 || layout.m < 0 || layout.nameBytes < 0
+				|| layout.fileSize() != channel.size()) {
+			throw new IOException("Snapshot header does not match the file size");
+		}
+		return layout;
+	}
+
+	/**
+	 * Throw an exception if the checksum of a snapshot is wrong.
+	 */
+	static void verify(FileChannel channel, Layout layout) throws IOException {
+		int expected = map(channel, layout.checksumAt(), 4).getInt();
+		if (checksum(channel, layout) != expected) {
+			throw new IOException("Snapshot checksum does not match; the file is damaged");
+		}
+	}
+
+	/**
+	 * Return the CRC-32 of everything in a snapshot before its checksum.
+	 */
+	static int checksum(FileChannel channel, Layout layout) throws IOException {
+		CRC32 checksum = new CRC32();
+		long end = layout.checksumAt();
+		for (long at = 0; at < end; at += MAX_MAP_BYTES) {
+			checksum.update(map(channel, at, (int) Math.min(MAX_MAP_BYTES, end - at)));
+		}
+		return (int) checksum.getValue();
+	}
+
+	/**
+	 * Copy count ints starting at a file position into a new array.
+	 */
+	private static int[] readInts(FileChannel channel, long position, int count)
+			throws IOException {
+		int[] result = new int[count];
+		int step = MAX_MAP_BYTES / 4;
+		for (int i = 0; i < count; i += step) {
+			int length = Math.min(step, count - i);
+			map(channel, position + 4L * i, 4 * length).asIntBuffer().get(result, i, length);
+		}
+		return result;
+	}
+
+	/**
+	 * Map part of a file read-only as little-endian.
+	 */
+	static MappedByteBuffer map(FileChannel channel, long position, int length)
+			throws IOException {
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		return buffer;
+	}
+
+	/**
+	 * Code to convert a text graph file to a snapshot and time loading both.
+	 */
+	public static void main(String[] args) throws IOException {
+		String input = args.length > 0 ? args[0] : "./testGraphs/path2.txt";
+		File output = args.length > 1 ? new File(args[1]) : File.createTempFile("graph", ".csr");
+		if (args.length < 2) {
+			output.deleteOnExit();
+		}
+		long begin = System.nanoTime();
+		CompactGraph G = ParallelGraphLoader.loadCompactGraph(input);
+		System.out.println("Text load took " + (System.nanoTime() - begin) / 1000000 + " ms");
+		begin = System.nanoTime();
+		write(G, output);
+		System.out.println("Wrote " + output.length() + " bytes to " + output + " in "
+				+ (System.nanoTime() - begin) / 1000000 + " ms");
+		begin = System.nanoTime();
+		CompactGraph loaded = read(output);
+		System.out.println("Snapshot load took " + (System.nanoTime() - begin) / 1000000 + " ms");
+		boolean same = G.vertexCount() == loaded.vertexCount()
+				&& G.arcCount() == loaded.arcCount() && G.maxWeight() == loaded.maxWeight();
+		for (int v = 0; same && v < G.vertexCount(); v++) {
+			same = G.getVertex(v).getName().equals(loaded.getVertex(v).getName())
+					&& G.firstEdge(v) == loaded.firstEdge(v);
+			for (int e = G.firstEdge(v); same && e < G.endEdge(v); e++) {
+				same = G.target(e) == loaded.target(e) && G.weight(e) == loaded.weight(e);
+			}
+		}
+		System.out.println(same ? "Graphs match" : "Graphs differ");
+	}
+}
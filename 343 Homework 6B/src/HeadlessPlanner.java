@@ -0,0 +1,376 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * The trip planner without a window, for machines with no display. It loads a graph,
+ * reads "source target" pairs of vertex names, one pair per line, and writes one
+ * "source,target,distance" line per pair, followed by the vertices of the path if paths
+ * are asked for. The distance is "none" when there is no path and "unknown" when a name
+ * is not in the graph. Usage:
+ *
+ * java HeadlessPlanner graph [queries] [-engine heap|array|radix|delta|landmark|ch]
+ * [-threads N] [-warmup N] [-paths]
+ *
+ * The queries are read from standard input when no file is given. Lines are read in
+ * chunks, each chunk is answered by all the threads at once and its answers are
+ * written in input order. Every thread has its own engine, timed with TimedAlgorithm,
+ * and a summary of the throughput and latencies goes to standard error at the end.
+ *
+ * Each engine answers a query with its own point-to-point search: heap with a
+ * bidirectional search, array, radix and delta with their queues stopped at the target,
+ * landmark with A* and ch with the upward searches of the hierarchy. The engines are
+ * all built before any query is timed, and for landmark and ch they share one set of
+ * landmark distances or one hierarchy, so the preprocessing is done once.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class HeadlessPlanner {
+
+	/** The number of queries read and answered at a time. */
+	private static final int CHUNK = 4096;
+
+	/** The size of the output buffer. */
+	private static final int OUTPUT_BUFFER_BYTES = 1 << 16;
+
+	/** The answer of a query that was found. */
+	private static final int FOUND = 0;
+
+	/** The answer of a query with no path. */
+	private static final int UNREACHABLE = 1;
+
+	/** The answer of a query naming a vertex that is not in the graph. */
+	private static final int UNKNOWN = 2;
+
+	/** The graph being searched. */
+	private final IndexedGraph myGraph;
+
+	/** The name the latencies of the engine are filed under. */
+	private final String myTimedName;
+
+	/** The number of threads answering queries. */
+	private final int myThreads;
+
+	/** True if the vertices of each path are written. */
+	private final boolean myPaths;
+
+	/** The threads answering queries. */
+	private final ExecutorService myExecutor;
+
+	/** Engines not in use by any thread. */
+	private final ConcurrentLinkedQueue<Algorithm> myIdle;
+
+	/** The id of each vertex name. */
+	private final Map<String, Integer> myIds;
+
+	/** The number of queries answered, by kind of answer. */
+	private final long[] myCounts = new long[3];
+
+	/**
+	 * Initialize a new HeadlessPlanner.
+	 *
+	 * @param G the graph
+	 * @param engine the name of the engine: heap, array, radix, delta, landmark or ch
+	 * @param threads the number of threads answering queries
+	 * @param paths true to write the vertices of each path
+	 */
+	public HeadlessPlanner(IndexedGraph G, String engine, int threads, boolean paths) {
+		myGraph = G;
+		myThreads = Math.max(1, threads);
+		myPaths = paths;
+		myExecutor = ShortestPathService.newFixedExecutor(myThreads);
+		myIdle = new ConcurrentLinkedQueue<Algorithm>();
+		myIds = new HashMap<String, Integer>(2 * G.vertexCount());
+		for (int v = 0; v < G.vertexCount(); v++) {
+			myIds.put(String.valueOf(G.getVertex(v).getName()), v);
+		}
+		// building the first engine here checks the engine name before any query is read
+		Algorithm first = createEngine(G, engine);
+		myTimedName = first.getClass().getSimpleName();
+		// a chunk is never split into more slices than there are threads, so this is an
+		// engine for every thread that can be answering at once
+		myIdle.offer(new TimedAlgorithm(first));
+		for (int i = 1; i < myThreads; i++) {
+			myIdle.offer(new TimedAlgorithm(share(first, G, engine)));
+		}
+	}
+
+	/**
+	 * Return a new engine for a graph.
+	 *
+	 * @param G the graph
+	 * @param name heap, array, radix, delta, landmark or ch
+	 * @return the engine
+	 */
+	public static Algorithm createEngine(IndexedGraph G, String name) {
+		if (name.equals("heap")) {
+			return new MinHeapImplementation(G);
+		} else if (name.equals("array")) {
+			return ArrayImplementation.forGraph(G);
+		} else if (name.equals("radix")) {
+			return new RadixHeapImplementation(G);
+		} else if (name.equals("delta")) {
+			return new DeltaSteppingImplementation(G);
+		} else if (name.equals("landmark")) {
+			return new LandmarkImplementation(G, LandmarkImplementation.DEFAULT_LANDMARKS,
+					LandmarkImplementation.Selection.FARTHEST);
+		} else if (name.equals("ch")) {
+			return new ContractionHierarchy(G);
+		}
+		throw new IllegalArgumentException("Unknown engine " + name
+				+ "; use heap, array, radix, delta, landmark or ch");
+	}
+
+	/**
+	 * Return another engine like the passed one for a second thread. Engines that
+	 * preprocess the graph share the preprocessing of the passed one and only get their
+	 * own search state.
+	 *
+	 * @param engine an engine made by createEngine
+	 * @param G the graph
+	 * @param name the name engine was made from
+	 * @return the new engine
+	 */
+	public static Algorithm share(Algorithm engine, IndexedGraph G, String name) {
+		if (engine instanceof ContractionHierarchy) {
+			return new ContractionHierarchy((ContractionHierarchy) engine);
+		} else if (engine instanceof LandmarkImplementation) {
+			return new LandmarkImplementation((LandmarkImplementation) engine);
+		}
+		return createEngine(G, name);
+	}
+
+	/**
+	 * Answer random queries without writing anything, so the JIT has compiled the search
+	 * before the real queries are timed. The latencies of the warm-up are discarded.
+	 *
+	 * @param queries the number of random queries
+	 */
+	public void warmUp(int queries) throws IOException {
+		Random random = new Random(343);
+		int n = myGraph.vertexCount();
+		for (int done = 0; done < queries; done += CHUNK) {
+			String[] lines = new String[Math.min(CHUNK, queries - done)];
+			for (int i = 0; i < lines.length; i++) {
+				lines[i] = myGraph.getVertex(random.nextInt(n)).getName() + " "
+						+ myGraph.getVertex(random.nextInt(n)).getName();
+			}
+			answer(lines, lines.length, new String[lines.length], new int[lines.length]);
+		}
+		LatencyMetrics.forQuery(myTimedName, TimedAlgorithm.POINT).reset();
+	}
+
+	/**
+	 * Answer every query read and write the answers in the order of the queries. Blank
+	 * lines and lines starting with # are skipped.
+	 *
+	 * @param in the queries
+	 * @param out where to write the answers; it is flushed but not closed
+	 * @return the number of queries answered
+	 */
+	public long run(BufferedReader in, Writer out) throws IOException {
+		String[] lines = new String[CHUNK];
+		String[] answers = new String[CHUNK];
+		int[] kinds = new int[CHUNK];
+		long total = 0;
+		String line = in.readLine();
+		while (line != null) {
+			int count = 0;
+			for (; line != null && count < CHUNK; line = in.readLine()) {
+				String trimmed = line.trim();
+				if (trimmed.length() > 0 && !trimmed.startsWith("#")) {
+					lines[count++] = trimmed;
+				}
+			}
+			answer(lines, count, answers, kinds);
+			for (int i = 0; i < count; i++) {
+				out.write(answers[i]);
+				out.write('\n');
+				myCounts[kinds[i]]++;
+			}
+			total += count;
+		}
+		out.flush();
+		return total;
+	}
+
+	/**
+	 * Answer the first count lines, splitting them among the threads.
+	 */
+	private void answer(final String[] lines, int count, final String[] answers,
+			final int[] kinds) throws IOException {
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		int slice = (count + myThreads - 1) / myThreads;
+		for (int low = 0; low < count; low += slice) {
+			final int from = low;
+			final int to = Math.min(count, low + slice);
+			futures.add(myExecutor.submit(new Callable<Void>() {
+				public Void call() {
+					Algorithm engine = myIdle.poll();
+					for (int i = from; i < to; i++) {
+						answers[i] = answer(engine, lines[i], kinds, i);
+					}
+					myIdle.offer(engine);
+					return null;
+				}
+			}));
+		}
+		try {
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while answering queries", e);
+		} catch (ExecutionException e) {
+			throw new IOException("A query failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Return the answer line of one query and record its kind.
+	 */
+	private String answer(Algorithm engine, String line, int[] kinds, int index) {
+		String[] pair = line.split("[\\s,]+");
+		String source = pair[0];
+		String target = pair.length > 1 ? pair[1] : "";
+		Integer s = myIds.get(source);
+		Integer t = myIds.get(target);
+		StringBuilder builder = new StringBuilder();
+		builder.append(source).append(',').append(target).append(',');
+		if (s == null || t == null) {
+			kinds[index] = UNKNOWN;
+			return builder.append("unknown").toString();
+		}
+		Vertex first = myGraph.getVertex(s);
+		Vertex last = myGraph.getVertex(t);
+		engine.runAlgorithm(first, last);
+		int distance = engine.getDistance(last);
+		if (distance == Integer.MAX_VALUE) {
+			kinds[index] = UNREACHABLE;
+			return builder.append("none").toString();
+		}
+		kinds[index] = FOUND;
+		builder.append(distance);
+		if (myPaths) {
+			PathResult path = engine.getPathResult(first, last);
+			builder.append(',');
+			for (int i = 0; path != null && i < path.size(); i++) {
+				if (i > 0) {
+					builder.append(' ');
+				}
+				builder.append(path.getName(i));
+			}
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Print the number of queries, the throughput and the latencies.
+	 *
+	 * @param out where to print
+	 * @param nanos the time taken to answer the queries
+	 */
+	public void printSummary(PrintStream out, long nanos) {
+		long total = myCounts[FOUND] + myCounts[UNREACHABLE] + myCounts[UNKNOWN];
+		out.println(String.format(Locale.ROOT,
+				"Answered %d queries (%d without a path, %d unknown) in %.3f s with %s on %d "
+						+ "threads: %.1f queries/s",
+				total, myCounts[UNREACHABLE], myCounts[UNKNOWN], nanos / 1e9, myTimedName,
+				myThreads, total * 1e9 / Math.max(1, nanos)));
+		out.println("Latency " + LatencyMetrics.forQuery(myTimedName, TimedAlgorithm.POINT)
+				.getHistogram().snapshot());
+	}
+
+	/**
+	 * Stop the threads.
+	 */
+	public void shutdown() {
+		myExecutor.shutdown();
+	}
+
+	/**
+	 * Code to answer queries from the command line, as described above.
+	 */
+	public static void main(String[] args) throws IOException {
+		String graph = null;
+		String queries = null;
+		String engine = "heap";
+		int threads = Runtime.getRuntime().availableProcessors();
+		int warmup = 0;
+		boolean paths = false;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-engine") && i + 1 < args.length) {
+				engine = args[++i];
+			} else if (args[i].equals("-threads") && i + 1 < args.length) {
+				threads = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-warmup") && i + 1 < args.length) {
+				warmup = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-paths")) {
+				paths = true;
+			} else if (args[i].startsWith("-") && !args[i].equals("-")) {
+				System.err.println("Unknown option " + args[i]);
+				return;
+			} else if (graph == null) {
+				graph = args[i];
+			} else {
+				queries = args[i];
+			}
+		}
+		if (graph == null) {
+			System.err.println("Usage: HeadlessPlanner graph [queries] "
+					+ "[-engine heap|array|radix|delta|landmark|ch] [-threads N] [-warmup N] [-paths]");
+			return;
+		}
+
+		// the loaders report their progress on System.out, which is reserved for answers
+		PrintStream out = System.out;
+		System.setOut(System.err);
+		IndexedGraph G;
+		try {
+			File file = new File(graph);
+			G = GraphSnapshot.isSnapshot(file) ? GraphSnapshot.read(file)
+					: GraphInput.LoadCompactGraph(graph);
+		} finally {
+			System.setOut(out);
+		}
+		if (G == null) {
+			System.err.println("Could not load " + graph);
+			return;
+		}
+
+		HeadlessPlanner planner = new HeadlessPlanner(G, engine, threads, paths);
+		BufferedReader in = new BufferedReader(queries == null || queries.equals("-")
+				? new InputStreamReader(System.in) : new FileReader(queries));
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out), OUTPUT_BUFFER_BYTES);
+		try {
+			if (warmup > 0) {
+				planner.warmUp(warmup);
+			}
+			long begin = System.nanoTime();
+			planner.run(in, writer);
+			planner.printSummary(System.err, System.nanoTime() - begin);
+		} finally {
+			in.close();
+			planner.shutdown();
+		}
+	}
+}
@@ -0,0 +1,109 @@
+import java.util.Set;
+
+/**
+ * An undirected graph whose vertices are numbered 0 to vertexCount() - 1 and whose arcs
+ * are grouped by tail vertex, which is how the engines traverse a graph.
+ *
+ * The arcs leaving vertex v are numbered firstEdge(v) to endEdge(v) - 1, and each
+ * undirected edge appears as two arcs, one in each direction. The ranges of different
+ * vertices need not be adjacent or in vertex order, and a graph that can change may leave
+ * unused numbers between them, so code that copies a graph must walk the range of each
+ * vertex rather than the numbers 0 to arcCount() - 1. The graph never changes
+ * while it is searched, so any number of threads may read it at once. A graph whose edges
+ * can change between searches reports a new version after every change.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public interface IndexedGraph {
+
+	/**
+	 * Return the number of vertices in this graph.
+	 *
+	 * @return the number of vertices
+	 */
+	public int vertexCount();
+
+	/**
+	 * Return the number of arcs in this graph, which is twice the number of edges.
+	 *
+	 * @return the number of arcs
+	 */
+	public int arcCount();
+
+	/**
+	 * Return the index of the first arc leaving the passed vertex.
+	 *
+	 * @param v a vertex id
+	 * @return the first arc of v
+	 */
+	public int firstEdge(int v);
+
+	/**
+	 * Return one past the index of the last arc leaving the passed vertex.
+	 *
+	 * @param v a vertex id
+	 * @return the end of the arc range of v
+	 */
+	public int endEdge(int v);
+
+	/**
+	 * Return the vertex id at the head of the passed arc.
+	 *
+	 * @param e an arc index
+	 * @return the head of e
+	 */
+	public int target(int e);
+
+	/**
+	 * Return the weight of the passed arc.
+	 *
+	 * @param e an arc index
+	 * @return the weight of e
+	 */
+	public int weight(int e);
+
+	/**
+	 * Return the largest arc weight in this graph.
+	 *
+	 * @return the largest weight, or 0 if the graph has no edges
+	 */
+	public int maxWeight();
+
+	/**
+	 * Return the version of this graph, which changes whenever its edges change.
+	 *
+	 * @return the version number
+	 */
+	public long getVersion();
+
+	/**
+	 * Return the vertex with the passed id.
+	 *
+	 * @param id a vertex id
+	 * @return the vertex
+	 */
+	public Vertex getVertex(int id);
+
+	/**
+	 * Return an arbitrary vertex of this graph.
+	 *
+	 * @return some vertex of this graph, or null if the graph is empty
+	 */
+	public Vertex aVertex();
+
+	/**
+	 * Return the id of the passed vertex.
+	 *
+	 * @param v a vertex of this graph
+	 * @return the id of v, or -1 if v is not in this graph
+	 */
+	public int getId(Vertex v);
+
+	/**
+	 * Return a set of all the vertices in id order.
+	 *
+	 * @return a set of all the vertices
+	 */
+	public Set<Vertex> getVertices();
+}
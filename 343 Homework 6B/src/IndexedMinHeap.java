@@ -0,0 +1,263 @@
+import java.util.Arrays;
+
+/**
+ * A d-ary min heap of int ids with long priorities.
+ *
+ * The heap is stored in parallel primitive arrays, so it holds no objects. A third array
+ * records the heap position of every id, which makes contains and decreaseKey constant
+ * time lookups. Ids must lie in the range [0, capacity).
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class IndexedMinHeap {
+
+	/** The position of an id that is not in the heap. */
+	private static final int ABSENT = -1;
+
+	/** The number of children of each heap node. */
+	private final int arity;
+
+	/** The id at each heap position. */
+	private final int[] ids;
+
+	/** The priority at each heap position. */
+	private final long[] priorities;
+
+	/** The heap position of each id, or ABSENT. */
+	private final int[] positions;
+
+	/** The number of ids in the heap. */
+	private int size;
+
+	/** The heap counters, kept when SearchMetrics.ENABLED is set. */
+	private final SearchStats stats = new SearchStats();
+
+	/**
+	 * Constructor for a binary heap.
+	 * @param capacity  one more than the largest id the heap can contain
+	 */
+	public IndexedMinHeap(int capacity) {
+		this(capacity, 2);
+	}
+
+	/**
+	 * Constructor
+	 * @param capacity  one more than the largest id the heap can contain
+	 * @param arity  the number of children of each node: 2, 4 or 8
+	 */
+	public IndexedMinHeap(int capacity, int arity) {
+		if (arity != 2 && arity != 4 && arity != 8) {
+			throw new IllegalArgumentException("Unsupported arity " + arity);
+		}
+		this.arity = arity;
+		this.ids = new int[capacity];
+		this.priorities = new long[capacity];
+		this.positions = new int[capacity];
+		Arrays.fill(positions, ABSENT);
+		this.size = 0;
+	}
+
+	/**
+	 * Replace the contents of the heap with the passed ids and build the heap in linear
+	 * time.
+	 * @param data  the ids to add; none may repeat
+	 * @param keys  the priority of each id
+	 * @param count  the number of entries of data and keys to use
+	 */
+	public void buildHeap(int[] data, long[] keys, int count) {
+		clear();
+		for (int i = 0; i < count; i++) {
+			ids[i] = data[i];
+			priorities[i] = keys[i];
+			positions[data[i]] = i;
+		}
+		size = count;
+		// (size - 2) / arity rounds towards zero, so it would be 0 for an empty heap
+		if (size > 1) {
+			for (int i = (size - 2) / arity; i >= 0; i--) {
+				percolateDown(i);
+			}
+		}
+	}
+
+	/**
+	 * Determine whether the heap is empty.
+	 * @return  true if the heap is empty; false otherwise
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Return the number of ids in the heap.
+	 * @return  the size of the heap
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Determine whether an id is in the heap.
+	 * @param id  an id
+	 * @return  true if id is in the heap; false otherwise
+	 */
+	public boolean contains(int id) {
+		return positions[id] != ABSENT;
+	}
+
+	/**
+	 * Return the priority of an id in the heap.
+	 * @param id  an id in the heap
+	 * @return  its priority
+	 */
+	public long priorityOf(int id) {
+		return priorities[positions[id]];
+	}
+
+	/**
+	 * Insert an id that is not in the heap.
+	 * @param id  the id
+	 * @param priority  its priority
+	 */
+	public void insert(int id, long priority) {
+		ids[size] = id;
+		priorities[size] = priority;
+		positions[id] = size;
+		size++;
+		if (SearchMetrics.ENABLED && size > stats.highWater) {
+			stats.highWater = size;
+		}
+		percolateUp(size - 1);
+	}
+
+	/**
+	 * Lower the priority of an id in the heap. Nothing happens if the new priority is
+	 * not smaller.
+	 * @param id  an id in the heap
+	 * @param priority  the new priority
+	 */
+	public void decreaseKey(int id, long priority) {
+		int index = positions[id];
+		if (priority < priorities[index]) {
+			if (SearchMetrics.ENABLED) {
+				stats.decreaseKeys++;
+			}
+			priorities[index] = priority;
+			percolateUp(index);
+		}
+	}
+
+	/**
+	 * Return the smallest priority in the heap.
+	 * @return  the smallest priority
+	 */
+	public long minPriority() throws EmptyHeapException {
+		if (size == 0) {
+			throw new EmptyHeapException();
+		}
+		return priorities[0];
+	}
+
+	/**
+	 * Remove the id with the smallest priority from the heap.
+	 * @return  the id with the smallest priority
+	 */
+	public int deleteMin() throws EmptyHeapException {
+		if (size == 0) {
+			throw new EmptyHeapException();
+		}
+		int result = ids[0];
+		positions[result] = ABSENT;
+		size--;
+		if (size > 0) {
+			ids[0] = ids[size];
+			priorities[0] = priorities[size];
+			positions[ids[0]] = 0;
+			percolateDown(0);
+		}
+		return result;
+	}
+
+	/**
+	 * Remove every id from the heap. This takes time proportional to the current size.
+	 */
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			positions[ids[i]] = ABSENT;
+		}
+		size = 0;
+	}
+
+	/**
+	 * Return the counters of this heap: its moves, successful decrease-keys and
+	 * high-water mark. They are only kept when SearchMetrics.ENABLED is set.
+	 * @return  the counters
+	 */
+	public SearchStats getStats() {
+		return stats;
+	}
+
+	/**
+	 * Move the entry at a heap position up until its parent is not larger. The entry is
+	 * held aside and written once, so each level costs one move instead of a swap.
+	 */
+	private void percolateUp(int index) {
+		int id = ids[index];
+		long priority = priorities[index];
+		int moves = 0;
+		while (index > 0) {
+			int parent = (index - 1) / arity;
+			if (priority >= priorities[parent]) {
+				break;
+			}
+			ids[index] = ids[parent];
+			priorities[index] = priorities[parent];
+			positions[ids[index]] = index;
+			index = parent;
+			moves++;
+		}
+		if (SearchMetrics.ENABLED) {
+			stats.upMoves += moves;
+		}
+		ids[index] = id;
+		priorities[index] = priority;
+		positions[id] = index;
+	}
+
+	/**
+	 * Move the entry at a heap position down until no child is smaller.
+	 */
+	private void percolateDown(int index) {
+		int id = ids[index];
+		long priority = priorities[index];
+		int moves = 0;
+		while (true) {
+			int first = index * arity + 1;
+			if (first >= size) {
+				break;
+			}
+			int last = Math.min(first + arity, size);
+			int child = first;
+			for (int c = first + 1; c < last; c++) {
+				if (priorities[c] < priorities[child]) {
+					child = c;
+				}
+			}
+			if (priorities[child] >= priority) {
+				break;
+			}
+			ids[index] = ids[child];
+			priorities[index] = priorities[child];
+			positions[ids[index]] = index;
+			index = child;
+			moves++;
+		}
+		if (SearchMetrics.ENABLED) {
+			stats.downMoves += moves;
+		}
+		ids[index] = id;
+		priorities[index] = priority;
+		positions[id] = index;
+	}
+}
@@ -0,0 +1,490 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * This class implements A* search with landmark lower bounds (ALT).
+ *
+ * Preprocessing picks a few landmark vertices and stores the distance from every landmark
+ * to every vertex. By the triangle inequality |d(L, t) - d(L, v)| never overestimates the
+ * distance from v to t, so the largest such bound over all landmarks is an admissible and
+ * consistent A* heuristic that needs no coordinates.
+ *
+ * A vertex's A* key is its distance plus its heuristic. The key is kept as a long
+ * priority in an IndexedMinHeap, since it can pass the int range for vertices the search
+ * never settles even when the distance to the target fits.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class LandmarkImplementation implements Algorithm {
+
+	/** How landmarks are chosen. */
+	public enum Selection {
+		/** Each landmark is the vertex farthest from the landmarks chosen so far. */
+		FARTHEST,
+		/** Each landmark is a leaf of the shortest path tree region the others cover worst. */
+		AVOID
+	}
+
+	/** The default number of landmarks. */
+	public static final int DEFAULT_LANDMARKS = 8;
+
+	/** The graph being evaluated. */
+	private final IndexedGraph myGraph;
+
+	/** The ids of the landmarks. */
+	private final int[] myLandmarks;
+
+	/** The distance from each landmark to every vertex. */
+	private final int[][] myLandmarkDistances;
+
+	/** The reached but unsettled vertices, keyed by distance plus heuristic. */
+	private final IndexedMinHeap myHeap;
+
+	/** True for each vertex reached by the last search. */
+	private final boolean[] myReached;
+
+	/** True for each vertex settled by the last search. */
+	private final boolean[] myKnown;
+
+	/** The distance from the source to each reached vertex. */
+	private final int[] myDistances;
+
+	/** The vertex before each reached vertex on its shortest path, or -1. */
+	private final int[] myPreds;
+
+	/** The ids of every reached vertex. */
+	private int[] myTouched;
+
+	/** The number of entries in myTouched. */
+	private int myTouchedCount;
+
+	/** The number of vertices settled by the last search. */
+	private int mySettled;
+
+	/**
+	 * Initialize a new LandmarkImplementation with DEFAULT_LANDMARKS landmarks chosen
+	 * with the avoid method.
+	 *
+	 * @param G the graph to evaluate
+	 */
+	public LandmarkImplementation(SimpleGraph G) {
+		this(new CompactGraph(G), DEFAULT_LANDMARKS, Selection.AVOID);
+	}
+
+	/**
+	 * Initialize a new LandmarkImplementation and compute the landmark distances.
+	 *
+	 * @param G the graph to evaluate
+	 * @param k the number of landmarks; with none this is plain Dijkstra
+	 * @param selection how to choose the landmarks
+	 */
+	public LandmarkImplementation(IndexedGraph G, int k, Selection selection) {
+		myGraph = G;
+		int n = G.vertexCount();
+		myHeap = new IndexedMinHeap(n);
+		myReached = new boolean[n];
+		myKnown = new boolean[n];
+		myDistances = new int[n];
+		myPreds = new int[n];
+		myTouched = new int[16];
+		k = Math.min(k, n);
+		myLandmarks = new int[k];
+		myLandmarkDistances = new int[k][];
+		Random random = new Random(n);
+		for (int i = 0; i < k; i++) {
+			if (selection == Selection.FARTHEST) {
+				myLandmarks[i] = farthest(i, random);
+			} else {
+				myLandmarks[i] = avoid(i, random);
+			}
+			myLandmarkDistances[i] = distancesFrom(myLandmarks[i], null, null);
+		}
+	}
+
+	/**
+	 * Initialize a new LandmarkImplementation that shares the landmarks and landmark
+	 * distances of another one instead of computing them again. Only the search state is
+	 * new, so the two can answer queries on different threads.
+	 *
+	 * @param landmarks a LandmarkImplementation whose distances have been computed
+	 */
+	public LandmarkImplementation(LandmarkImplementation landmarks) {
+		myGraph = landmarks.myGraph;
+		myLandmarks = landmarks.myLandmarks;
+		myLandmarkDistances = landmarks.myLandmarkDistances;
+		int n = myGraph.vertexCount();
+		myHeap = new IndexedMinHeap(n);
+		myReached = new boolean[n];
+		myKnown = new boolean[n];
+		myDistances = new int[n];
+		myPreds = new int[n];
+		myTouched = new int[16];
+	}
+
+	/**
+	 * Runs the algorithm with the passed vertex as the starting point city. With no target
+	 * there is no heuristic, so this is a plain Dijkstra run.
+	 *
+	 * @param s the starting city vertex
+	 */
+	public void runAlgorithm(Vertex s) {
+		search(myGraph.getId(s), -1);
+	}
+
+	/**
+	 * Finds the shortest path from source to target with A*, stopping as soon as the
+	 * target is settled.
+	 *
+	 * @param source the starting city vertex
+	 * @param target the ending city vertex
+	 */
+	public void runAlgorithm(Vertex source, Vertex target) {
+		search(myGraph.getId(source), myGraph.getId(target));
+	}
+
+	/**
+	 * Return the distance to the passed vertex found by the last run.
+	 *
+	 * @param v a vertex
+	 * @return the distance to v, or Integer.MAX_VALUE if no path to v is known
+	 */
+	public int getDistance(Vertex v) {
+		int id = myGraph.getId(v);
+		return myKnown[id] ? myDistances[id] : Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Return the shortest path description starting from the starting vertex and ending at
+	 * the last vertex.
+	 *
+	 * @param first the starting vertex
+	 * @param last the ending vertex
+	 * @return the path
+	 */
+	public String getPath(Vertex first, Vertex last) {
+		return PathFormat.HTML.format(getPathResult(first, last));
+	}
+
+	/**
+	 * Return the shortest path from the starting vertex to the last vertex.
+	 *
+	 * @param first the starting vertex
+	 * @param last the ending vertex
+	 * @return the path, or null if there is none
+	 */
+	public PathResult getPathResult(Vertex first, Vertex last) {
+		int id = myGraph.getId(last);
+		if (!myKnown[id]) {
+			return null;
+		}
+		int length = 0;
+		for (int current = id; current >= 0; current = myPreds[current]) {
+			length++;
+		}
+		int[] ids = new int[length];
+		int[] distances = new int[length];
+		for (int current = id; current >= 0; current = myPreds[current]) {
+			length--;
+			ids[length] = current;
+			distances[length] = myDistances[current];
+		}
+		return new PathResult(myGraph, ids, distances);
+	}
+
+	/**
+	 * Return a set of all the vertices.
+	 *
+	 * @return a set of all the vertices
+	 */
+	public Set<Vertex> getVertices() {
+		return myGraph.getVertices();
+	}
+
+	/**
+	 * Return the landmarks chosen during preprocessing.
+	 *
+	 * @return the landmark vertices
+	 */
+	public Vertex[] getLandmarks() {
+		Vertex[] result = new Vertex[myLandmarks.length];
+		for (int i = 0; i < myLandmarks.length; i++) {
+			result[i] = myGraph.getVertex(myLandmarks[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * Return the number of vertices settled by the last run.
+	 *
+	 * @return the number of settled vertices
+	 */
+	public int getSettledCount() {
+		return mySettled;
+	}
+
+	/**
+	 * Run A* from source towards target, or a full Dijkstra run if target is -1.
+	 */
+	private void search(int source, int target) {
+		for (int i = 0; i < myTouchedCount; i++) {
+			myReached[myTouched[i]] = false;
+			myKnown[myTouched[i]] = false;
+		}
+		myTouchedCount = 0;
+		myHeap.clear();
+		mySettled = 0;
+		int h = heuristic(source, target);
+		if (h == Integer.MAX_VALUE) {
+			// the landmarks prove that target is in another component
+			return;
+		}
+		reach(source, 0, h, -1);
+		try {
+			while (!myHeap.isEmpty()) {
+				int id = myHeap.deleteMin();
+				myKnown[id] = true;
+				mySettled++;
+				if (id == target) {
+					break;
+				}
+				for (int e = myGraph.firstEdge(id); e < myGraph.endEdge(id); e++) {
+					int v = myGraph.target(e);
+					int distance = QueryContext.extend(myDistances[id], myGraph.weight(e));
+					if (!myReached[v]) {
+						h = heuristic(v, target);
+						if (h != Integer.MAX_VALUE) {
+							reach(v, distance, h, id);
+						}
+					} else if (!myKnown[v] && distance < myDistances[v]) {
+						// the heuristic of v does not change, so its key drops by as much
+						myHeap.decreaseKey(v, myHeap.priorityOf(v) - (myDistances[v] - distance));
+						myDistances[v] = distance;
+						myPreds[v] = id;
+					}
+				}
+			}
+		} catch (EmptyHeapException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Mark a vertex reached for the first time and add it to the heap with its distance
+	 * plus heuristic as the key.
+	 */
+	private void reach(int v, int distance, int h, int pred) {
+		myReached[v] = true;
+		myDistances[v] = distance;
+		myPreds[v] = pred;
+		myHeap.insert(v, (long) distance + h);
+		if (myTouchedCount == myTouched.length) {
+			myTouched = Arrays.copyOf(myTouched, 2 * myTouchedCount);
+		}
+		myTouched[myTouchedCount++] = v;
+	}
+
+	/**
+	 * Return the largest landmark lower bound on the distance from v to target, 0 if there
+	 * is no target, or Integer.MAX_VALUE if some landmark reaches exactly one of them.
+	 */
+	private int heuristic(int v, int target) {
+		if (target < 0) {
+			return 0;
+		}
+		int best = 0;
+		for (int[] distances : myLandmarkDistances) {
+			int fromV = distances[v];
+			int fromTarget = distances[target];
+			if (fromV == Integer.MAX_VALUE || fromTarget == Integer.MAX_VALUE) {
+				if (fromV != fromTarget) {
+					return Integer.MAX_VALUE;
+				}
+			} else {
+				best = Math.max(best, Math.abs(fromTarget - fromV));
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Return the lower bound on the distance between u and v given by the first count
+	 * landmarks.
+	 */
+	private int lowerBound(int u, int v, int count) {
+		int best = 0;
+		for (int i = 0; i < count; i++) {
+			int fromU = myLandmarkDistances[i][u];
+			int fromV = myLandmarkDistances[i][v];
+			if (fromU != Integer.MAX_VALUE && fromV != Integer.MAX_VALUE) {
+				best = Math.max(best, Math.abs(fromU - fromV));
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Choose the vertex farthest from the first count landmarks. Vertices no landmark can
+	 * reach count as infinitely far, so every component gets a landmark.
+	 */
+	private int farthest(int count, Random random) {
+		if (count == 0) {
+			int[] distances = distancesFrom(random.nextInt(myGraph.vertexCount()), null, null);
+			return argMax(distances);
+		}
+		int[] nearest = new int[myGraph.vertexCount()];
+		Arrays.fill(nearest, Integer.MAX_VALUE);
+		for (int i = 0; i < count; i++) {
+			for (int v = 0; v < nearest.length; v++) {
+				nearest[v] = Math.min(nearest[v], myLandmarkDistances[i][v]);
+			}
+		}
+		return argMax(nearest);
+	}
+
+	/**
+	 * Return the index of the largest value, preferring infinite values.
+	 */
+	private static int argMax(int[] values) {
+		int best = 0;
+		for (int v = 1; v < values.length; v++) {
+			if (values[v] > values[best]) {
+				best = v;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Choose a landmark with the avoid method: grow a shortest path tree from a random
+	 * root, weigh each vertex by how much its distance exceeds the current lower bound,
+	 * and walk down the heaviest subtrees that contain no landmark to a leaf.
+	 */
+	private int avoid(int count, Random random) {
+		int n = myGraph.vertexCount();
+		int root = random.nextInt(n);
+		int[] parent = new int[n];
+		int[] order = new int[n];
+		int[] distances = distancesFrom(root, parent, order);
+		long[] size = new long[n];
+		boolean[] covered = new boolean[n];
+		for (int i = 0; i < count; i++) {
+			covered[myLandmarks[i]] = true;
+		}
+		int[] heaviestChild = new int[n];
+		Arrays.fill(heaviestChild, -1);
+		// order lists the reached vertices by distance, so children come after parents
+		for (int i = n - 1; i >= 0; i--) {
+			int v = order[i];
+			if (v < 0) {
+				continue;
+			}
+			if (!covered[v]) {
+				size[v] += distances[v] - lowerBound(root, v, count);
+			} else {
+				size[v] = 0;
+			}
+			int p = parent[v];
+			if (p >= 0) {
+				if (covered[v]) {
+					covered[p] = true;
+				}
+				size[p] += size[v];
+				if (heaviestChild[p] < 0 || size[v] > size[heaviestChild[p]]) {
+					heaviestChild[p] = v;
+				}
+			}
+		}
+		if (size[root] == 0) {
+			return farthest(count, random);
+		}
+		int v = root;
+		while (heaviestChild[v] >= 0 && size[heaviestChild[v]] > 0) {
+			v = heaviestChild[v];
+		}
+		return v;
+	}
+
+	/**
+	 * Return the distance from source to every vertex. If parent is not null it receives
+	 * the tree parent of each vertex, and if order is not null it receives the vertices in
+	 * the order they were settled, followed by -1 for each unreachable vertex.
+	 */
+	private int[] distancesFrom(int source, int[] parent, int[] order) {
+		int n = myGraph.vertexCount();
+		int[] distances = new int[n];
+		Arrays.fill(distances, Integer.MAX_VALUE);
+		if (parent != null) {
+			Arrays.fill(parent, -1);
+		}
+		if (order != null) {
+			Arrays.fill(order, -1);
+		}
+		DijkstraHeapNode[] nodes = new DijkstraHeapNode[n];
+		BinaryHeap heap = new BinaryHeap(n);
+		nodes[source] = new DijkstraHeapNode(myGraph.getVertex(source), 0, source);
+		heap.insert(nodes[source]);
+		int settled = 0;
+		try {
+			while (!heap.isEmpty()) {
+				DijkstraHeapNode u = heap.deleteMin();
+				u.setKnown(true);
+				int id = u.getVertexId();
+				distances[id] = u.getDistance();
+				if (order != null) {
+					order[settled] = id;
+				}
+				settled++;
+				for (int e = myGraph.firstEdge(id); e < myGraph.endEdge(id); e++) {
+					int v = myGraph.target(e);
+					int distance = QueryContext.extend(u.getDistance(), myGraph.weight(e));
+					if (nodes[v] == null) {
+						nodes[v] = new DijkstraHeapNode(myGraph.getVertex(v), distance, v);
+						heap.insert(nodes[v]);
+					} else if (nodes[v].isKnown() || distance >= nodes[v].getDistance()) {
+						continue;
+					} else {
+						nodes[v].setDistance(distance);
+						heap.percolateUp(nodes[v]);
+					}
+					if (parent != null) {
+						parent[v] = id;
+					}
+				}
+			}
+		} catch (EmptyHeapException e) {
+			e.printStackTrace();
+		}
+		return distances;
+	}
+
+	/**
+	 * Code to compare the vertices settled by ALT with those settled by plain Dijkstra.
+	 */
+	public static void main(String[] args) {
+		CompactGraph G = GraphInput.LoadCompactGraph(
+				args.length > 0 ? args[0] : "./testGraphs/path2.txt");
+		int k = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_LANDMARKS;
+		LandmarkImplementation plain = new LandmarkImplementation(G, 0, Selection.FARTHEST);
+		for (Selection selection : Selection.values()) {
+			LandmarkImplementation alt = new LandmarkImplementation(G, k, selection);
+			Random random = new Random(1);
+			long altSettled = 0;
+			long plainSettled = 0;
+			for (int i = 0; i < 1000; i++) {
+				Vertex s = G.getVertex(random.nextInt(G.vertexCount()));
+				Vertex t = G.getVertex(random.nextInt(G.vertexCount()));
+				alt.runAlgorithm(s, t);
+				plain.runAlgorithm(s, t);
+				altSettled += alt.getSettledCount();
+				plainSettled += plain.getSettledCount();
+				if (alt.getDistance(t) != plain.getDistance(t)) {
+					System.out.println("Mismatch from " + s + " to " + t);
+				}
+			}
+			System.out.println(selection + ": ALT settled " + altSettled / 1000.0
+					+ " vertices per query, plain Dijkstra settled " + plainSettled / 1000.0);
+		}
+	}
+}
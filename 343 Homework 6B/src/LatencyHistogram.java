@@ -0,0 +1,252 @@
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * A histogram of latencies in nanoseconds with a fixed relative precision over a wide
+ * range, in the style of an HDR histogram.
+ *
+ * Values below 2^SUB_BITS get a bucket each. Above that, every power of two is split
+ * into 2^SUB_BITS equal buckets, so a value is never off by more than 1 part in 2^SUB_BITS,
+ * under 1%, from nanoseconds up to the 2^MAX_BITS nanoseconds, about 18 minutes, where
+ * the buckets end. The exact maximum is kept apart from the buckets.
+ *
+ * Recording is lock free: one atomic increment of a bucket and two adder updates. Many
+ * threads can record at once, and a snapshot can be taken or the counts reset while
+ * they do.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class LatencyHistogram {
+
+	/** The number of bits of precision of every value. */
+	public static final int SUB_BITS = 7;
+
+	/** The number of bits of the largest value with its own bucket. */
+	public static final int MAX_BITS = 40;
+
+	/** The number of buckets in each power of two. */
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+
+	/** The number of buckets. */
+	private static final int BUCKETS = (MAX_BITS - SUB_BITS + 1) * SUB_COUNT;
+
+	/** Keeps the larger of two values. */
+	private static final LongBinaryOperator MAX = new LongBinaryOperator() {
+		public long applyAsLong(long left, long right) {
+			return Math.max(left, right);
+		}
+	};
+
+	/** The number of values recorded in each bucket. */
+	private final AtomicLongArray myCounts = new AtomicLongArray(BUCKETS);
+
+	/** The sum of the values recorded. */
+	private final LongAdder mySum = new LongAdder();
+
+	/** The largest value recorded. */
+	private final LongAccumulator myMax = new LongAccumulator(MAX, 0);
+
+	/**
+	 * Record one latency.
+	 *
+	 * @param nanos the latency in nanoseconds; negative values count as 0
+	 */
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		myCounts.incrementAndGet(indexOf(value));
+		mySum.add(value);
+		myMax.accumulate(value);
+	}
+
+	/**
+	 * Return the bucket of a value.
+	 */
+	static int indexOf(long value) {
+		if (value < SUB_COUNT) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+		int index = (shift + 1) * SUB_COUNT + (int) (value >>> shift) - SUB_COUNT;
+		return Math.min(index, BUCKETS - 1);
+	}
+
+	/**
+	 * Return the largest value that falls in a bucket.
+	 */
+	static long highestValueIn(int index) {
+		if (index < SUB_COUNT) {
+			return index;
+		}
+		int shift = index / SUB_COUNT - 1;
+		long low = (long) (index % SUB_COUNT + SUB_COUNT) << shift;
+		return low + (1L << shift) - 1;
+	}
+
+	/**
+	 * Return a copy of the counts so far.
+	 *
+	 * @return the snapshot
+	 */
+	public Snapshot snapshot() {
+		long[] counts = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = myCounts.get(i);
+		}
+		return new Snapshot(counts, mySum.sum(), myMax.get());
+	}
+
+	/**
+	 * Return a copy of the counts so far and set them to zero, so the next snapshot
+	 * covers only what is recorded from now on. A value recorded while this runs lands
+	 * in exactly one of the two snapshots, though its sum and maximum may land in the
+	 * other.
+	 *
+	 * @return the snapshot
+	 */
+	public Snapshot snapshotAndReset() {
+		long[] counts = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = myCounts.getAndSet(i, 0);
+		}
+		return new Snapshot(counts, mySum.sumThenReset(), myMax.getThenReset());
+	}
+
+	/**
+	 * Set every count to zero.
+	 */
+	public void reset() {
+		snapshotAndReset();
+	}
+
+	/**
+	 * The counts of a histogram at one moment, from which percentiles are read.
+	 */
+	public static class Snapshot {
+
+		/** The number of values in each bucket. */
+		private final long[] myCounts;
+
+		/** The number of values. */
+		private final long myTotal;
+
+		/** The sum of the values. */
+		private final long mySum;
+
+		/** The largest value. */
+		private final long myMax;
+
+		/**
+		 * Initialize a new Snapshot.
+		 *
+		 * @param counts the number of values in each bucket
+		 * @param sum the sum of the values
+		 * @param max the largest value
+		 */
+		Snapshot(long[] counts, long sum, long max) {
+			myCounts = counts;
+			long total = 0;
+			for (long count : counts) {
+				total += count;
+			}
+			myTotal = total;
+			mySum = sum;
+			myMax = max;
+		}
+
+		/**
+		 * Return the number of values recorded.
+		 *
+		 * @return the count
+		 */
+		public long getCount() {
+			return myTotal;
+		}
+
+		/**
+		 * Return the largest value recorded, exactly.
+		 *
+		 * @return the maximum, or 0 if nothing was recorded
+		 */
+		public long getMax() {
+			return myMax;
+		}
+
+		/**
+		 * Return the mean of the values recorded.
+		 *
+		 * @return the mean, or 0 if nothing was recorded
+		 */
+		public double getMean() {
+			return myTotal == 0 ? 0 : (double) mySum / myTotal;
+		}
+
+		/**
+		 * Return the smallest value that at least the passed percentage of the values
+		 * do not exceed, to within the precision of the buckets.
+		 *
+		 * @param percentile the percentage, from 0 to 100
+		 * @return the value, or 0 if nothing was recorded
+		 */
+		public long getValueAtPercentile(double percentile) {
+			if (myTotal == 0) {
+				return 0;
+			}
+			long rank = Math.max(1, (long) Math.ceil(percentile / 100 * myTotal));
+			long seen = 0;
+			for (int i = 0; i < myCounts.length; i++) {
+				seen += myCounts[i];
+				if (seen >= rank) {
+					return Math.min(highestValueIn(i), myMax);
+				}
+			}
+			return myMax;
+		}
+
+		/**
+		 * Return the count and main percentiles as one line of text, in microseconds.
+		 *
+		 * @return the summary
+		 */
+		public String toString() {
+			return String.format(Locale.ROOT,
+					"count=%d mean=%.1fus p50=%.1fus p99=%.1fus p999=%.1fus max=%.1fus",
+					myTotal, getMean() / 1e3, getValueAtPercentile(50) / 1e3,
+					getValueAtPercentile(99) / 1e3, getValueAtPercentile(99.9) / 1e3, myMax / 1e3);
+		}
+	}
+
+	/**
+	 * Code to check the precision of the histogram against sorted values.
+	 */
+	public static void main(String[] args) {
+		Random random = new Random(343);
+		int n = 1000000;
+		long[] values = new long[n];
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 0; i < n; i++) {
+			// a log-normal spread from about a microsecond to tens of milliseconds
+			values[i] = (long) Math.exp(9 + 2 * random.nextGaussian());
+			histogram.record(values[i]);
+		}
+		Arrays.sort(values);
+		Snapshot snapshot = histogram.snapshot();
+		double worst = 0;
+		for (double p : new double[] {1, 10, 50, 90, 99, 99.9, 99.99, 100}) {
+			long exact = values[(int) Math.max(0, Math.ceil(p / 100 * n) - 1)];
+			long estimate = snapshot.getValueAtPercentile(p);
+			double error = Math.abs(estimate - exact) / (double) Math.max(1, exact);
+			worst = Math.max(worst, error);
+			System.out.println("p" + p + ": exact " + exact + " histogram " + estimate);
+		}
+		System.out.println("Worst relative error " + worst + ", bound " + 1.0 / SUB_COUNT);
+		System.out.println(snapshot);
+		System.out.println("After reset: " + histogram.snapshotAndReset().getCount() + " then "
+				+ histogram.snapshot().getCount());
+	}
+}
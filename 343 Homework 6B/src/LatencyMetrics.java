@@ -0,0 +1,257 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The latency histogram of one engine and kind of query, published as a JMX MBean
+ * named ShortestPath:type=Latency,engine=name,query=kind. TimedAlgorithm records into
+ * these.
+ *
+ * Percentiles can also be written as CSV, once with writeReport or at a fixed interval
+ * with startReporter, which resets the histograms after each report so every row
+ * covers one interval.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class LatencyMetrics implements LatencyMetricsMBean {
+
+	/** The header of the CSV reports. */
+	public static final String REPORT_HEADER =
+			"time,engine,query,count,mean_ns,p50_ns,p99_ns,p999_ns,max_ns";
+
+	/** The histograms of each engine and query, by "engine/query". */
+	private static final ConcurrentHashMap<String, LatencyMetrics> METRICS =
+			new ConcurrentHashMap<String, LatencyMetrics>();
+
+	/** The name of the engine. */
+	private final String myEngine;
+
+	/** The kind of query. */
+	private final String myQuery;
+
+	/** The latencies. */
+	private final LatencyHistogram myHistogram = new LatencyHistogram();
+
+	/**
+	 * Initialize new LatencyMetrics.
+	 *
+	 * @param engine the name of the engine
+	 * @param query the kind of query
+	 */
+	private LatencyMetrics(String engine, String query) {
+		myEngine = engine;
+		myQuery = query;
+	}
+
+	/**
+	 * Return the metrics of an engine and kind of query, creating and registering them
+	 * the first time.
+	 *
+	 * @param engine the name of the engine
+	 * @param query the kind of query
+	 * @return the metrics
+	 */
+	public static LatencyMetrics forQuery(String engine, String query) {
+		String key = engine + "/" + query;
+		LatencyMetrics metrics = METRICS.get(key);
+		if (metrics == null) {
+			LatencyMetrics created = new LatencyMetrics(engine, query);
+			metrics = METRICS.putIfAbsent(key, created);
+			if (metrics == null) {
+				metrics = created;
+				created.register();
+			}
+		}
+		return metrics;
+	}
+
+	/**
+	 * Return every engine's metrics, sorted by engine and query.
+	 *
+	 * @return the metrics
+	 */
+	public static List<LatencyMetrics> getAll() {
+		List<String> keys = new ArrayList<String>(METRICS.keySet());
+		Collections.sort(keys);
+		List<LatencyMetrics> result = new ArrayList<LatencyMetrics>();
+		for (String key : keys) {
+			result.add(METRICS.get(key));
+		}
+		return result;
+	}
+
+	/**
+	 * Record the latency of one query.
+	 *
+	 * @param nanos the latency in nanoseconds
+	 */
+	public void record(long nanos) {
+		myHistogram.record(nanos);
+	}
+
+	/**
+	 * Return the histogram of latencies.
+	 *
+	 * @return the histogram
+	 */
+	public LatencyHistogram getHistogram() {
+		return myHistogram;
+	}
+
+	/**
+	 * Return the name of the engine.
+	 *
+	 * @return the engine
+	 */
+	public String getEngine() {
+		return myEngine;
+	}
+
+	/**
+	 * Return the kind of query.
+	 *
+	 * @return the query
+	 */
+	public String getQuery() {
+		return myQuery;
+	}
+
+	/**
+	 * Return the name under which these metrics are registered.
+	 *
+	 * @return the MBean name
+	 */
+	public ObjectName getObjectName() throws JMException {
+		return new ObjectName(SearchMetrics.DOMAIN + ":type=Latency,engine="
+				+ ObjectName.quote(myEngine) + ",query=" + ObjectName.quote(myQuery));
+	}
+
+	/**
+	 * Register these metrics with the platform MBean server.
+	 */
+	private void register() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = getObjectName();
+			if (!server.isRegistered(name)) {
+				server.registerMBean(this, name);
+			}
+		} catch (JMException e) {
+			e.printStackTrace();
+		}
+	}
+
+	public long getCount() {
+		return myHistogram.snapshot().getCount();
+	}
+
+	public double getMean() {
+		return myHistogram.snapshot().getMean();
+	}
+
+	public long getP50() {
+		return myHistogram.snapshot().getValueAtPercentile(50);
+	}
+
+	public long getP99() {
+		return myHistogram.snapshot().getValueAtPercentile(99);
+	}
+
+	public long getP999() {
+		return myHistogram.snapshot().getValueAtPercentile(99.9);
+	}
+
+	public long getMax() {
+		return myHistogram.snapshot().getMax();
+	}
+
+	public void reset() {
+		myHistogram.reset();
+	}
+
+	/**
+	 * Write one CSV row per engine and query with its percentiles.
+	 *
+	 * @param out where to write; it is not closed
+	 * @param reset true to reset each histogram as it is read
+	 */
+	public static void writeReport(Writer out, boolean reset) throws IOException {
+		long now = System.currentTimeMillis();
+		for (LatencyMetrics metrics : getAll()) {
+			LatencyHistogram.Snapshot snapshot = reset ? metrics.myHistogram.snapshotAndReset()
+					: metrics.myHistogram.snapshot();
+			out.write(String.format(Locale.ROOT, "%d,%s,%s,%d,%.0f,%d,%d,%d,%d%n", now,
+					metrics.myEngine, metrics.myQuery, snapshot.getCount(), snapshot.getMean(),
+					snapshot.getValueAtPercentile(50), snapshot.getValueAtPercentile(99),
+					snapshot.getValueAtPercentile(99.9), snapshot.getMax()));
+		}
+		out.flush();
+	}
+
+	/**
+	 * Append a report to a file at a fixed interval, resetting the histograms after each
+	 * one. The header is written first if the file is new. The reports are written by a
+	 * daemon thread, so they do not keep the JVM running.
+	 *
+	 * @param file the file to append to
+	 * @param period the time between reports
+	 * @param unit the unit of period
+	 * @return the executor running the reports; shut it down to stop them
+	 */
+	public static ScheduledExecutorService startReporter(final File file, long period,
+			TimeUnit unit) {
+		ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+				new ThreadFactory() {
+					public Thread newThread(Runnable task) {
+						Thread thread = new Thread(task, "latency-reporter");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		executor.scheduleAtFixedRate(new Runnable() {
+			public void run() {
+				try {
+					boolean fresh = !file.exists() || file.length() == 0;
+					Writer out = new BufferedWriter(new FileWriter(file, true));
+					try {
+						if (fresh) {
+							out.write(REPORT_HEADER + System.lineSeparator());
+						}
+						writeReport(out, true);
+					} finally {
+						out.close();
+					}
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}, period, period, unit);
+		return executor;
+	}
+
+	/**
+	 * Return the percentiles as one line of text.
+	 *
+	 * @return the summary
+	 */
+	public String toString() {
+		return myEngine + " " + myQuery + ": " + myHistogram.snapshot();
+	}
+}
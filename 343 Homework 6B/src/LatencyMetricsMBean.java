@@ -0,0 +1,56 @@
+/**
+ * The management interface of LatencyMetrics, through which JMX clients read the
+ * latencies of one engine and kind of query. Latencies are in nanoseconds.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public interface LatencyMetricsMBean {
+
+	/**
+	 * Return the number of queries timed since the last reset.
+	 *
+	 * @return the count
+	 */
+	long getCount();
+
+	/**
+	 * Return the mean latency.
+	 *
+	 * @return the mean
+	 */
+	double getMean();
+
+	/**
+	 * Return the median latency.
+	 *
+	 * @return the 50th percentile
+	 */
+	long getP50();
+
+	/**
+	 * Return the latency 99% of queries do not exceed.
+	 *
+	 * @return the 99th percentile
+	 */
+	long getP99();
+
+	/**
+	 * Return the latency 99.9% of queries do not exceed.
+	 *
+	 * @return the 99.9th percentile
+	 */
+	long getP999();
+
+	/**
+	 * Return the largest latency.
+	 *
+	 * @return the maximum
+	 */
+	long getMax();
+
+	/**
+	 * Forget every latency timed so far.
+	 */
+	void reset();
+}
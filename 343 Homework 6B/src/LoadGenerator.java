@@ -0,0 +1,257 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends shortest path requests to a ShortestPathServer as fast as it answers them and
+ * reports the requests per second and the latency percentiles. Each client thread sends
+ * its next request as soon as the last one is answered, over a connection it keeps
+ * alive, asking for the distance or path between two random vertices. Usage:
+ *
+ * java LoadGenerator url graph [-threads 16] [-seconds 10] [-endpoint distance|path]
+ *
+ * The graph file is only read for its vertex names. With no arguments a server is
+ * started on a generated graph in the same process and loaded twice: once within its
+ * in-flight limit, and once far beyond it to show requests being refused.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class LoadGenerator {
+
+	/** The size of the buffer used to read responses. */
+	private static final int READ_BUFFER_BYTES = 8192;
+
+	/** The base url of the server, without a trailing slash. */
+	private final String myBase;
+
+	/** The vertex names to pick queries from. */
+	private final String[] myNames;
+
+	/** The endpoint requested: distance or path. */
+	private final String myEndpoint;
+
+	/** The latencies of the answered requests. */
+	private final LatencyHistogram myLatencies = new LatencyHistogram();
+
+	/** The requests answered with 200. */
+	private final LongAdder myOk = new LongAdder();
+
+	/** The requests refused with 503. */
+	private final LongAdder myRejected = new LongAdder();
+
+	/** The requests answered with any other status, or that failed. */
+	private final LongAdder myErrors = new LongAdder();
+
+	/**
+	 * Initialize a new LoadGenerator.
+	 *
+	 * @param base the base url of the server, such as http://localhost:8080
+	 * @param names the vertex names to pick queries from
+	 * @param endpoint distance or path
+	 */
+	public LoadGenerator(String base, String[] names, String endpoint) {
+		myBase = base.endsWith("/") ? base.substring(0, base.length() - 1) : base;
+		myNames = names;
+		myEndpoint = endpoint;
+	}
+
+	/**
+	 * Return the names of the vertices of a graph.
+	 *
+	 * @param G the graph
+	 * @return the names
+	 */
+	public static String[] namesOf(IndexedGraph G) {
+		String[] names = new String[G.vertexCount()];
+		for (int v = 0; v < names.length; v++) {
+			names[v] = String.valueOf(G.getVertex(v).getName());
+		}
+		return names;
+	}
+
+	/**
+	 * Send requests from a number of client threads for a length of time, then print a
+	 * report.
+	 *
+	 * @param threads the number of client threads
+	 * @param millis how long to send requests for
+	 */
+	public void run(int threads, long millis) throws InterruptedException {
+		// HttpURLConnection keeps only five idle connections per server unless told more
+		System.setProperty("http.maxConnections", String.valueOf(Math.max(5, threads)));
+		myLatencies.reset();
+		myOk.reset();
+		myRejected.reset();
+		myErrors.reset();
+		final long deadline = System.nanoTime() + millis * 1000000L;
+		ExecutorService executor = ShortestPathService.newFixedExecutor(threads);
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		long begin = System.nanoTime();
+		for (int t = 0; t < threads; t++) {
+			final Random random = new Random(343 + t);
+			futures.add(executor.submit(new Callable<Void>() {
+				public Void call() {
+					byte[] buffer = new byte[READ_BUFFER_BYTES];
+					while (System.nanoTime() < deadline) {
+						request(random, buffer);
+					}
+					return null;
+				}
+			}));
+		}
+		try {
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} catch (ExecutionException e) {
+			e.getCause().printStackTrace();
+		} finally {
+			executor.shutdown();
+		}
+		report(threads, System.nanoTime() - begin);
+	}
+
+	/**
+	 * Send one request between random vertices and record its outcome.
+	 */
+	private void request(Random random, byte[] buffer) {
+		String from = myNames[random.nextInt(myNames.length)];
+		String to = myNames[random.nextInt(myNames.length)];
+		long begin = System.nanoTime();
+		try {
+			URL url = new URL(myBase + "/" + myEndpoint + "?from=" + URLEncoder.encode(from, "UTF-8")
+					+ "&to=" + URLEncoder.encode(to, "UTF-8"));
+			HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+			int status = connection.getResponseCode();
+			// reading each body to the end lets the connection be reused
+			InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+			if (in != null) {
+				while (in.read(buffer) >= 0) {
+					// discard the body
+				}
+				in.close();
+			}
+			if (status == 200) {
+				myOk.increment();
+				myLatencies.record(System.nanoTime() - begin);
+			} else if (status == 503) {
+				myRejected.increment();
+			} else {
+				myErrors.increment();
+			}
+		} catch (IOException e) {
+			myErrors.increment();
+		}
+	}
+
+	/**
+	 * Print the throughput and latencies of the last run.
+	 */
+	private void report(int threads, long nanos) {
+		long ok = myOk.sum();
+		System.out.println(String.format(Locale.ROOT,
+				"%d threads for %.1f s: %d ok (%.1f requests/s), %d refused, %d errors",
+				threads, nanos / 1e9, ok, ok * 1e9 / Math.max(1, nanos), myRejected.sum(),
+				myErrors.sum()));
+		System.out.println("Latency " + myLatencies.snapshot());
+	}
+
+	/**
+	 * Return the number of requests answered with 200 by the last run.
+	 *
+	 * @return the successful requests
+	 */
+	public long getOk() {
+		return myOk.sum();
+	}
+
+	/**
+	 * Return the number of requests refused with 503 by the last run.
+	 *
+	 * @return the refused requests
+	 */
+	public long getRejected() {
+		return myRejected.sum();
+	}
+
+	/**
+	 * Code to load a running server, or with no arguments a server started here.
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length == 1 || (args.length > 0 && args[0].startsWith("-"))) {
+			System.err.println("Usage: LoadGenerator url graph [-threads 16] [-seconds 10] "
+					+ "[-endpoint distance|path]");
+			return;
+		}
+		if (args.length == 0) {
+			selfTest();
+			return;
+		}
+		int threads = 16;
+		int seconds = 10;
+		String endpoint = "distance";
+		for (int i = 2; i + 1 < args.length; i += 2) {
+			if (args[i].equals("-threads")) {
+				threads = Integer.parseInt(args[i + 1]);
+			} else if (args[i].equals("-seconds")) {
+				seconds = Integer.parseInt(args[i + 1]);
+			} else if (args[i].equals("-endpoint")) {
+				endpoint = args[i + 1];
+			} else {
+				System.err.println("Unknown option " + args[i]);
+				return;
+			}
+		}
+		IndexedGraph G = ShortestPathServer.load(args[1]);
+		if (G == null) {
+			System.err.println("Could not load " + args[1]);
+			return;
+		}
+		new LoadGenerator(args[0], namesOf(G), endpoint).run(threads, seconds * 1000L);
+	}
+
+	/**
+	 * Start a server on a generated graph and load it within and beyond its limit.
+	 */
+	private static void selfTest() throws IOException, InterruptedException {
+		ShortestPathServer.useNoDelay();
+		CompactGraph G = GraphGenerator.geometric(20000, 6, 1000,
+				GraphGenerator.Weights.LENGTH, 343).toCompactGraph();
+		String[] names = namesOf(G);
+		ShortestPathServer server = new ShortestPathServer(G, 0, 64);
+		server.start();
+		String base = "http://localhost:" + server.getPort();
+		System.out.println("Server on " + base + " with " + G.vertexCount() + " vertices");
+		try {
+			new LoadGenerator(base, names, "distance").run(8, 3000);
+			new LoadGenerator(base, names, "path").run(8, 2000);
+		} finally {
+			server.stop();
+		}
+
+		// a limit of one request at a time refuses most of what eight clients send
+		server = new ShortestPathServer(G, 0, 1);
+		server.start();
+		base = "http://localhost:" + server.getPort();
+		try {
+			LoadGenerator generator = new LoadGenerator(base, names, "distance");
+			generator.run(8, 2000);
+			System.out.println("Server answered " + server.getServed() + " and refused "
+					+ server.getRejected());
+		} finally {
+			server.stop();
+		}
+	}
+}
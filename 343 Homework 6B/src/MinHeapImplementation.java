@@ -1,161 +1,253 @@
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 
 
 /**
  * This class implements Dijkstra's algorithm using a min heap.
- * 
+ *
+ * The heap is an IndexedMinHeap keyed by vertex id, and distances and predecessors are
+ * kept in a QueryContext that is reused by every run, so a run allocates nothing and
+ * costs time in proportion to the vertices it reaches.
+ *
  * @author Jonah Howard
  * @author Jacob Tillett
  */
 public class MinHeapImplementation implements Algorithm{
-	/** The priority heap for the heap nodes. */
-	private BinaryHeap heap;
-	
+	/** The arity of the heap used when none is given. */
+	public static final int DEFAULT_ARITY = 4;
+
 	/** The current graph being evaluated. */
-	private SimpleGraph g;
-	
-	/** A list of all vertices for current graph. */
-	private LinkedList vertices;
-	
-	/** A list of all the edges for the current graph. */
-	private LinkedList edges;
-	
+	private IndexedGraph g;
+
 	/** The starting vertex. */
 	private Vertex start;
-	
-	/** The ending vertex. */
-	private Vertex end;
-	
-	/** Maps each vertex to its corresponding DijkstraHeapNode. */
-	private Map<Vertex, DijkstraHeapNode> myNodes;
-	
+
+	/** The distances, predecessors and heap reused by every run. */
+	private QueryContext myContext;
+
+	/** The search used for point-to-point queries. */
+	private BidirectionalDijkstra myBidirectional;
+
+	/** The path found by the last point-to-point query, or null. */
+	private int[] myPath;
+
+	/** The length of the path found by the last point-to-point query. */
+	private int myPathDistance;
+
+	/** True if the last run was a point-to-point query. */
+	private boolean myPointMode;
+
+	/** The counters of the last run. */
+	private final SearchStats myStats = new SearchStats();
+
 
 	/**
 	 * Initialize a new MinHeapImplementation.
 	 */
 	public MinHeapImplementation(SimpleGraph G) {
-		heap = new BinaryHeap();
+		this(new CompactGraph(G));
+	}
+
+	/**
+	 * Initialize a new MinHeapImplementation that runs directly on an IndexedGraph.
+	 *
+	 * @param G the graph to evaluate
+	 */
+	public MinHeapImplementation(IndexedGraph G) {
+		this(G, DEFAULT_ARITY);
+	}
+
+	/**
+	 * Initialize a new MinHeapImplementation with a heap of the passed arity.
+	 *
+	 * @param G the graph to evaluate
+	 * @param arity the number of children of each heap node: 2, 4 or 8
+	 */
+	public MinHeapImplementation(IndexedGraph G, int arity) {
 		g = G;
-		vertices = G.vertexList;
-		edges = G.edgeList;
+		myContext = new QueryContext(G.vertexCount(), arity);
+		myBidirectional = new BidirectionalDijkstra(G);
 	}
-	
+
 	/**
 	 * Runs the algorithm with the passed vertex as the starting point city.
-	 * 
+	 *
 	 * @param s the starting city vertex
 	 */
 	public void runAlgorithm(Vertex s) {
 		start = s;
-		myNodes = new HashMap<Vertex, DijkstraHeapNode>();
-		Iterator iter = g.vertices();
-		// Populate the heap
-		while (iter.hasNext()) {
-			Vertex v = (Vertex) iter.next();
-			int path = Integer.MAX_VALUE;
-			DijkstraHeapNode node = new DijkstraHeapNode(v, path);
-			if (v == start)  {
-				node.setDistance(0);
-				node.setPrev(null);
+		myPointMode = false;
+		myPath = null;
+		search(g, myContext, g.getId(s), -1);
+		if (SearchMetrics.ENABLED) {
+			myStats.reset();
+			myStats.add(myContext.getStats());
+			SearchMetrics.record("MinHeapImplementation", myStats);
+		}
+	}
+
+	/**
+	 * Run Dijkstra's algorithm from source in the passed context. Vertices enter the heap
+	 * when they are first reached, so the work done is proportional to the part of the
+	 * graph the search touches.
+	 *
+	 * @param G the graph to search
+	 * @param context the context to search in; its previous contents are discarded
+	 * @param source the id of the starting vertex
+	 * @param target the id of a vertex after whose settling the search stops, or -1 to
+	 *        settle every reachable vertex
+	 */
+	static void search(IndexedGraph G, QueryContext context, int source, int target) {
+		context.begin();
+		context.relax(source, 0, QueryContext.NONE);
+		IndexedMinHeap heap = context.getHeap();
+		try {
+			while (!heap.isEmpty()) {
+				int u = context.settleNext();
+				if (u == target) {
+					break;
+				}
+				int du = context.distance(u);
+				context.scanned(G.endEdge(u) - G.firstEdge(u));
+				for (int e = G.firstEdge(u); e < G.endEdge(u); e++) {
+					int v = G.target(e);
+					int distance = QueryContext.extend(du, G.weight(e));
+					// settled vertices never pass this test since weights are not negative
+					if (distance < context.distance(v)) {
+						context.relax(v, distance, u);
+					}
+				}
 			}
-			myNodes.put(v, node);
-//			nodes.add(node);
-			node.setKnown(false);
-			v.setData(node);
-			heap.insert(node);
+		} catch (EmptyHeapException e) {
+			e.printStackTrace();
 		}
-		
-		while (!heap.isEmpty()) {
-			DijkstraHeapNode u;
-			try {
-				u = (DijkstraHeapNode) heap.deleteMin();
-				u.setKnown(true);
-//				System.out.println(u.toString());
-				Iterator neighbors = g.incidentEdges(u.getVertex());
-				while (neighbors.hasNext()) {
-					Edge e = ((Edge) neighbors.next());
-					DijkstraHeapNode node = (DijkstraHeapNode) g.opposite(u.getVertex(), e).getData();
-//					System.out.println("current neighbor = " + node.toString());
-					if (!node.isKnown()) {
-						int distance = u.getDistance() + ((int) (double) e.getData());
-						int vDistance = node.getDistance();
-						if (distance < vDistance) {
-//							System.out.println("new distance = " + distance);
-							node.setDistance(distance);
-							node.setPrev(u);
-							heap.percolateUp(node);
-						}
+	}
+
+	/**
+	 * Run Dijkstra's algorithm from source in the passed context until every marked
+	 * target has been settled.
+	 *
+	 * @param G the graph to search
+	 * @param context the context to search in; its previous contents are discarded
+	 * @param source the id of the starting vertex
+	 * @param isTarget true at the id of every target
+	 * @param targetCount the number of ids marked in isTarget
+	 */
+	static void search(IndexedGraph G, QueryContext context, int source, boolean[] isTarget,
+			int targetCount) {
+		context.begin();
+		context.relax(source, 0, QueryContext.NONE);
+		IndexedMinHeap heap = context.getHeap();
+		int remaining = targetCount;
+		try {
+			while (!heap.isEmpty() && remaining > 0) {
+				int u = context.settleNext();
+				if (isTarget[u] && --remaining == 0) {
+					break;
+				}
+				int du = context.distance(u);
+				context.scanned(G.endEdge(u) - G.firstEdge(u));
+				for (int e = G.firstEdge(u); e < G.endEdge(u); e++) {
+					int v = G.target(e);
+					int distance = QueryContext.extend(du, G.weight(e));
+					if (distance < context.distance(v)) {
+						context.relax(v, distance, u);
 					}
 				}
-				
-			} catch (EmptyHeapException e) {
-				e.printStackTrace();
 			}
+		} catch (EmptyHeapException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Finds the shortest path from source to target with a bidirectional search.
+	 *
+	 * @param source the starting city vertex
+	 * @param target the ending city vertex
+	 */
+	public void runAlgorithm(Vertex source, Vertex target) {
+		start = source;
+		myPointMode = true;
+		myPathDistance = myBidirectional.search(g.getId(source), g.getId(target));
+		myPath = myBidirectional.getPath();
+		if (SearchMetrics.ENABLED) {
+			myStats.reset();
+			myStats.add(myBidirectional.getStats());
+			SearchMetrics.record("MinHeapImplementation", myStats);
+		}
+	}
+
+	/**
+	 * Return the counters of the last run. They are only kept when SearchMetrics.ENABLED
+	 * is set; the run also adds them to the MinHeapImplementation totals.
+	 *
+	 * @return the counters
+	 */
+	public SearchStats getStats() {
+		return myStats;
+	}
+
+	/**
+	 * Return the distance to the passed vertex found by the last run.
+	 *
+	 * @param v a vertex
+	 * @return the distance to v, or Integer.MAX_VALUE if no path to v is known
+	 */
+	public int getDistance(Vertex v) {
+		if (!myPointMode) {
+			return myContext.distance(g.getId(v));
+		}
+		if (myPath != null && myPath[myPath.length - 1] == g.getId(v)) {
+			return myPathDistance;
 		}
+		return Integer.MAX_VALUE;
 	}
-	
+
 	/**
 	 * Return the shortest path description starting from the starting vertex and ending at
 	 * the last vertex.
-	 * 
-	 * @param first
-	 * @param last
-	 * @return
+	 *
+	 * @param first the starting vertex
+	 * @param last the ending vertex
+	 * @return the path
 	 */
 	public String getPath(Vertex first, Vertex last) {
-		StringBuilder builder = new StringBuilder();
-		DijkstraHeapNode current = myNodes.get(last);
-		DijkstraHeapNode previous = myNodes.get(last).getPrev();
-		builder.append("End => " + current.toString() + "<br>");
-		// Check that the path contains at least two nodes
-		if (current.getPrev() != null) {
-			current = current.getPrev();
-			previous = previous.getPrev();
+		return PathFormat.HTML.format(getPathResult(first, last));
+	}
+
+	/**
+	 * Return the shortest path from the starting vertex to the last vertex.
+	 *
+	 * @param first the starting vertex
+	 * @param last the ending vertex
+	 * @return the path, or null if there is none
+	 */
+	public PathResult getPathResult(Vertex first, Vertex last) {
+		int[] path = myPath;
+		if (!myPointMode) {
+			path = myContext.path(g.getId(last));
 		}
-		while (current.getPrev() != null) {
-			builder.insert(0, " => " + current.toString() + "<br>");
-			current = previous;
-			previous = current.getPrev();
+		if (path == null || path[path.length - 1] != g.getId(last)) {
+			return null;
 		}
-		builder.insert(0, "Start => " + current.toString() + "<br>");
-		builder.insert(0, "<html>");
-		builder.append("</html>");
-		return builder.toString();
+		return PathResult.of(g, path);
 	}
-	
+
 	/**
 	 * Reruns the algorithm with the passed node as the starting city.
-	 * 
+	 *
 	 * @param node the new starting node
 	 */
 	public void reRunAlgorithm(DijkstraHeapNode node) {
 		runAlgorithm(node.getVertex());
 	}
-	
+
 	/**
 	 * Return a set of all the vertices.
-	 * 
+	 *
 	 * @return a set of all the vertices
 	 */
 	public Set<Vertex> getVertices() {
-		return myNodes.keySet();
-	}
-	
-	/**
-	 * Returns the DijkstraHeapNode corresponding to the passed vertex.
-	 * 
-	 * @param v the vertex being searched for
-	 * @return the DijkstraHeapNode corresponding to v
-	 */
-	public DijkstraHeapNode getCorrespondingNode(Vertex v) {
-		return myNodes.get(v);
+		return g.getVertices();
 	}
 }
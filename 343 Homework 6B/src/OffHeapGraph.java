@@ -0,0 +1,480 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * An IndexedGraph whose arrays live outside the Java heap, so the heap stays the same
+ * size however large the graph is.
+ *
+ * The graph is either mapped straight from a GraphSnapshot file, in which case the
+ * operating system pages it in as it is used, or copied into direct buffers. Each array
+ * is split into segments of 2^28 ints, since one buffer cannot hold more than 2 GB.
+ *
+ * No Vertex objects are kept. getVertex makes a new Vertex with the stored name each
+ * time it is called, and getId finds a vertex by its name in a hash table that is also
+ * off the heap, so two Vertex objects with the same name are the same vertex here.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class OffHeapGraph implements IndexedGraph {
+
+	/** The base two logarithm of the number of ints in a segment. */
+	private static final int SEGMENT_SHIFT = 28;
+
+	/** The mask giving the position of an index within its segment. */
+	private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+	/** The most slots in the name table: the largest power of two that is an int. */
+	private static final int MAX_SLOTS = 1 << 30;
+
+	/** The largest number of vertices the name table can index, at two slots each. */
+	private static final int MAX_VERTICES = MAX_SLOTS / 2;
+
+	/** The character set of vertex names. */
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/** The number of vertices. */
+	private final int myN;
+
+	/** The number of arcs. */
+	private final int myM;
+
+	/** The largest arc weight. */
+	private final int myMaxWeight;
+
+	/** The index of the first arc of each vertex, followed by the arc count. */
+	private final IntBuffer[] myOffsets;
+
+	/** The head vertex id of each arc. */
+	private final IntBuffer[] myTargets;
+
+	/** The weight of each arc. */
+	private final IntBuffer[] myWeights;
+
+	/** The end of each vertex name in myNames. */
+	private final IntBuffer[] myNameEnds;
+
+	/** The UTF-8 bytes of the vertex names. */
+	private final ByteBuffer myNames;
+
+	/** An open addressing table from name hash to vertex id plus one, or 0 if empty. */
+	private final IntBuffer[] mySlots;
+
+	/** The number of slots minus one. */
+	private final int mySlotMask;
+
+	/**
+	 * Initialize a new OffHeapGraph around the passed buffers and index its names.
+	 */
+	private OffHeapGraph(int n, int m, int maxWeight, IntBuffer[] offsets, IntBuffer[] targets,
+			IntBuffer[] weights, IntBuffer[] nameEnds, ByteBuffer names) {
+		if (n > MAX_VERTICES) {
+			throw new IllegalArgumentException("Too many vertices to index: " + n);
+		}
+		myN = n;
+		myM = m;
+		myMaxWeight = maxWeight;
+		myOffsets = offsets;
+		myTargets = targets;
+		myWeights = weights;
+		myNameEnds = nameEnds;
+		myNames = names;
+		// two to four slots per vertex; computed in a long since 4n passes the int range
+		int slots = (int) Math.min(Long.highestOneBit(Math.max(2L * n, 1)) << 1, MAX_SLOTS);
+		mySlots = allocate(slots);
+		mySlotMask = slots - 1;
+		for (int v = 0; v < n; v++) {
+			int start = nameStart(v);
+			int slot = spread(hash(start, get(myNameEnds, v) - start)) & mySlotMask;
+			while (get(mySlots, slot) != 0) {
+				slot = (slot + 1) & mySlotMask;
+			}
+			put(mySlots, slot, v + 1);
+		}
+	}
+
+	/**
+	 * Map a snapshot file without reading it into the heap. The checksum is not checked.
+	 *
+	 * @param file a file written by GraphSnapshot
+	 * @return the graph
+	 */
+	public static OffHeapGraph map(File file) throws IOException {
+		return map(file, false);
+	}
+
+	/**
+	 * Map a snapshot file without reading it into the heap.
+	 *
+	 * @param file a file written by GraphSnapshot
+	 * @param verify true to check the checksum, which costs one pass over the file
+	 * @return the graph
+	 */
+	public static OffHeapGraph map(File file, boolean verify) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			GraphSnapshot.Layout layout = GraphSnapshot.readLayout(channel);
+			if (verify) {
+				GraphSnapshot.verify(channel, layout);
+			}
+			// the mappings stay valid after the file is closed
+			return new OffHeapGraph(layout.n, layout.m, layout.maxWeight,
+					map(channel, layout.offsetsAt(), layout.n + 1),
+					map(channel, layout.targetsAt(), layout.m),
+					map(channel, layout.weightsAt(), layout.m),
+					map(channel, layout.nameEndsAt(), layout.n),
+					GraphSnapshot.map(channel, layout.namesAt(), layout.nameBytes));
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Copy a graph into direct buffers.
+	 *
+	 * @param G the graph to copy
+	 * @return the copy
+	 */
+	public static OffHeapGraph copyOf(IndexedGraph G) {
+		int n = G.vertexCount();
+		int m = G.arcCount();
+		IntBuffer[] offsets = allocate(n + 1);
+		IntBuffer[] targets = allocate(m);
+		IntBuffer[] weights = allocate(m);
+		// the arcs of G may not be numbered contiguously, so they are packed as they are copied
+		int arc = 0;
+		for (int v = 0; v < n; v++) {
+			put(offsets, v, arc);
+			for (int e = G.firstEdge(v); e < G.endEdge(v); e++) {
+				put(targets, arc, G.target(e));
+				put(weights, arc, G.weight(e));
+				arc++;
+			}
+		}
+		put(offsets, n, arc);
+		IntBuffer[] nameEnds = allocate(n);
+		long nameBytes = 0;
+		for (int v = 0; v < n; v++) {
+			nameBytes += String.valueOf(G.getVertex(v).getName()).getBytes(UTF8).length;
+			if (nameBytes > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("The vertex names take too many bytes to store");
+			}
+			put(nameEnds, v, (int) nameBytes);
+		}
+		ByteBuffer names = ByteBuffer.allocateDirect((int) nameBytes);
+		for (int v = 0; v < n; v++) {
+			names.put(String.valueOf(G.getVertex(v).getName()).getBytes(UTF8));
+		}
+		return new OffHeapGraph(n, m, G.maxWeight(), offsets, targets, weights, nameEnds, names);
+	}
+
+	/**
+	 * Map count ints starting at a file position in segments.
+	 */
+	private static IntBuffer[] map(FileChannel channel, long position, int count)
+			throws IOException {
+		IntBuffer[] segments = new IntBuffer[segmentCount(count)];
+		for (int i = 0; i < segments.length; i++) {
+			int length = Math.min(1 << SEGMENT_SHIFT, count - (i << SEGMENT_SHIFT));
+			segments[i] = GraphSnapshot.map(channel, position + 4L * (i << SEGMENT_SHIFT),
+					4 * length).asIntBuffer();
+		}
+		return segments;
+	}
+
+	/**
+	 * Allocate count zeroed ints in direct segments.
+	 */
+	private static IntBuffer[] allocate(int count) {
+		IntBuffer[] segments = new IntBuffer[segmentCount(count)];
+		for (int i = 0; i < segments.length; i++) {
+			int length = Math.min(1 << SEGMENT_SHIFT, count - (i << SEGMENT_SHIFT));
+			segments[i] = ByteBuffer.allocateDirect(4 * length).order(ByteOrder.nativeOrder())
+					.asIntBuffer();
+		}
+		return segments;
+	}
+
+	/**
+	 * Return the number of segments needed for count ints.
+	 */
+	private static int segmentCount(int count) {
+		return (int) (((long) count + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+	}
+
+	/**
+	 * Return the int at an index of a segmented array.
+	 */
+	private static int get(IntBuffer[] segments, int index) {
+		return segments[index >>> SEGMENT_SHIFT].get(index & SEGMENT_MASK);
+	}
+
+	/**
+	 * Store an int at an index of a segmented array.
+	 */
+	private static void put(IntBuffer[] segments, int index, int value) {
+		segments[index >>> SEGMENT_SHIFT].put(index & SEGMENT_MASK, value);
+	}
+
+	/**
+	 * Return the position of the first byte of a vertex name.
+	 */
+	private int nameStart(int v) {
+		return v == 0 ? 0 : get(myNameEnds, v - 1);
+	}
+
+	/**
+	 * Return the hash of a range of the name bytes.
+	 */
+	private int hash(int start, int length) {
+		int hash = 0;
+		for (int i = start; i < start + length; i++) {
+			hash = 31 * hash + myNames.get(i);
+		}
+		return hash;
+	}
+
+	/**
+	 * Return the hash of a byte array, computed the same way.
+	 */
+	private static int hash(byte[] bytes) {
+		int hash = 0;
+		for (byte b : bytes) {
+			hash = 31 * hash + b;
+		}
+		return hash;
+	}
+
+	/**
+	 * Scramble a hash so that similar names do not fill neighboring slots.
+	 */
+	private static int spread(int hash) {
+		int h = hash * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Return the number of vertices in this graph.
+	 *
+	 * @return the number of vertices
+	 */
+	public int vertexCount() {
+		return myN;
+	}
+
+	/**
+	 * Return the number of arcs in this graph, which is twice the number of edges.
+	 *
+	 * @return the number of arcs
+	 */
+	public int arcCount() {
+		return myM;
+	}
+
+	/**
+	 * Return the index of the first arc leaving the passed vertex.
+	 *
+	 * @param v a vertex id
+	 * @return the first arc of v
+	 */
+	public int firstEdge(int v) {
+		return get(myOffsets, v);
+	}
+
+	/**
+	 * Return one past the index of the last arc leaving the passed vertex.
+	 *
+	 * @param v a vertex id
+	 * @return the end of the arc range of v
+	 */
+	public int endEdge(int v) {
+		return get(myOffsets, v + 1);
+	}
+
+	/**
+	 * Return the vertex id at the head of the passed arc.
+	 *
+	 * @param e an arc index
+	 * @return the head of e
+	 */
+	public int target(int e) {
+		return get(myTargets, e);
+	}
+
+	/**
+	 * Return the weight of the passed arc.
+	 *
+	 * @param e an arc index
+	 * @return the weight of e
+	 */
+	public int weight(int e) {
+		return get(myWeights, e);
+	}
+
+	/**
+	 * Return the largest arc weight in this graph.
+	 *
+	 * @return the largest weight, or 0 if the graph has no edges
+	 */
+	public int maxWeight() {
+		return myMaxWeight;
+	}
+
+	/**
+	 * Return the version of this graph, which is always 0 since it never changes.
+	 *
+	 * @return 0
+	 */
+	public long getVersion() {
+		return 0;
+	}
+
+	/**
+	 * Return a new Vertex with the name of the passed id.
+	 *
+	 * @param id a vertex id
+	 * @return the vertex
+	 */
+	public Vertex getVertex(int id) {
+		return new Vertex(null, getName(id));
+	}
+
+	/**
+	 * Return the name of the vertex with the passed id.
+	 *
+	 * @param id a vertex id
+	 * @return its name
+	 */
+	public String getName(int id) {
+		int start = nameStart(id);
+		byte[] bytes = new byte[get(myNameEnds, id) - start];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = myNames.get(start + i);
+		}
+		return new String(bytes, UTF8);
+	}
+
+	/**
+	 * Return a new Vertex for vertex 0.
+	 *
+	 * @return some vertex of this graph, or null if the graph is empty
+	 */
+	public Vertex aVertex() {
+		return myN > 0 ? getVertex(0) : null;
+	}
+
+	/**
+	 * Return the id of the vertex with the same name as the passed vertex.
+	 *
+	 * @param v a vertex
+	 * @return the id of the vertex with the name of v, or -1 if there is none
+	 */
+	public int getId(Vertex v) {
+		if (v == null) {
+			return -1;
+		}
+		byte[] name = String.valueOf(v.getName()).getBytes(UTF8);
+		for (int slot = spread(hash(name)) & mySlotMask; ; slot = (slot + 1) & mySlotMask) {
+			int id = get(mySlots, slot) - 1;
+			if (id < 0) {
+				return -1;
+			}
+			if (hasName(id, name)) {
+				return id;
+			}
+		}
+	}
+
+	/**
+	 * Determine whether a vertex has the passed name bytes.
+	 */
+	private boolean hasName(int id, byte[] name) {
+		int start = nameStart(id);
+		if (get(myNameEnds, id) - start != name.length) {
+			return false;
+		}
+		for (int i = 0; i < name.length; i++) {
+			if (myNames.get(start + i) != name[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Return a set of new Vertex objects for all the vertices in id order. The set lives
+	 * on the heap, so it is only meant for small graphs.
+	 *
+	 * @return a set of all the vertices
+	 */
+	public Set<Vertex> getVertices() {
+		Set<Vertex> result = new LinkedHashSet<Vertex>(2 * myN);
+		for (int v = 0; v < myN; v++) {
+			result.add(getVertex(v));
+		}
+		return result;
+	}
+
+	/**
+	 * Code to check an off-heap graph against the same graph on the heap, and to show how
+	 * much heap each takes.
+	 */
+	public static void main(String[] args) throws IOException {
+		String input = args.length > 0 ? args[0] : "./testGraphs/path2.txt";
+		File snapshot = File.createTempFile("graph", ".csr");
+		snapshot.deleteOnExit();
+		GraphSnapshot.write(ParallelGraphLoader.loadCompactGraph(input), snapshot);
+
+		long before = usedHeap();
+		CompactGraph onHeap = GraphSnapshot.read(snapshot);
+		long onHeapBytes = usedHeap() - before;
+		before = usedHeap();
+		long begin = System.nanoTime();
+		OffHeapGraph offHeap = map(snapshot);
+		long mapTime = (System.nanoTime() - begin) / 1000000;
+		long offHeapBytes = usedHeap() - before;
+		System.out.println("Heap used: " + onHeapBytes / 1024 + " KB on the heap, "
+				+ offHeapBytes / 1024 + " KB mapped in " + mapTime + " ms");
+
+		boolean same = onHeap.vertexCount() == offHeap.vertexCount()
+				&& onHeap.arcCount() == offHeap.arcCount();
+		for (int v = 0; same && v < onHeap.vertexCount(); v++) {
+			same = offHeap.getId(onHeap.getVertex(v)) == v
+					&& offHeap.getName(v).equals(onHeap.getVertex(v).getName())
+					&& offHeap.firstEdge(v) == onHeap.firstEdge(v);
+			for (int e = onHeap.firstEdge(v); same && e < onHeap.endEdge(v); e++) {
+				same = offHeap.target(e) == onHeap.target(e) && offHeap.weight(e) == onHeap.weight(e);
+			}
+		}
+		same = same && offHeap.getId(new Vertex(null, "no such vertex")) == -1;
+		OffHeapGraph copy = copyOf(onHeap);
+		MinHeapImplementation a = new MinHeapImplementation(onHeap);
+		MinHeapImplementation b = new MinHeapImplementation(copy);
+		a.runAlgorithm(onHeap.aVertex());
+		b.runAlgorithm(copy.aVertex());
+		for (int v = 0; same && v < onHeap.vertexCount(); v++) {
+			same = a.getDistance(onHeap.getVertex(v)) == b.getDistance(copy.getVertex(v));
+		}
+		System.out.println(same ? "Graphs match" : "Graphs differ");
+	}
+
+	/**
+	 * Return the bytes of heap in use after a garbage collection.
+	 */
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,560 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Loads graph files in the format read by GraphInput, using every core.
+ *
+ * The file is memory mapped and cut into chunks that each end at a newline, and the
+ * chunks are parsed in parallel. A task copies its chunk out of the mapping in one bulk
+ * read and parses the bytes directly. Each chunk keeps its own table of vertex names,
+ * which stores only where a name occurs in the chunk, so a String is made once per
+ * distinct name per chunk rather than once per token. Whole-number weights are parsed
+ * directly from the bytes as well. Afterwards the chunk tables are merged in file order,
+ * so vertex ids follow the order of first appearance exactly as with GraphInput.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class ParallelGraphLoader {
+
+	/** The largest number of bytes in one chunk. */
+	private static final int MAX_CHUNK_BYTES = 1 << 30;
+
+	/** The size chunks are cut to once a file is large enough, to bound the memory in use. */
+	private static final int PREFERRED_CHUNK_BYTES = 1 << 24;
+
+	/** The number of chunks made per thread, so uneven chunks still balance out. */
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	/** The edges read from a file, with their endpoints as ids into names. */
+	private static class EdgeList {
+		String[] names;
+		int n;
+		int[] from;
+		int[] to;
+		double[] weight;
+		int m;
+	}
+
+	/**
+	 * Load a graph file into a CompactGraph using the common fork-join pool.
+	 *
+	 * @param pathandfilename the name of the file, including full path
+	 * @return the loaded graph, or null if the file is malformed
+	 */
+	public static CompactGraph loadCompactGraph(String pathandfilename) throws IOException {
+		return loadCompactGraph(pathandfilename, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Load a graph file into a CompactGraph. Weights are truncated to ints as in
+	 * GraphInput.LoadCompactGraph.
+	 *
+	 * @param pathandfilename the name of the file, including full path
+	 * @param pool the pool to parse on
+	 * @return the loaded graph, or null if the file is malformed
+	 */
+	public static CompactGraph loadCompactGraph(String pathandfilename, ForkJoinPool pool)
+			throws IOException {
+		EdgeList edges = load(pathandfilename, pool);
+		if (edges == null) {
+			return null;
+		}
+		long begin = System.nanoTime();
+		Vertex[] vertices = new Vertex[edges.n];
+		for (int i = 0; i < edges.n; i++) {
+			vertices[i] = new Vertex(null, edges.names[i]);
+		}
+		int[] weight = new int[edges.m];
+		for (int i = 0; i < edges.m; i++) {
+			weight[i] = (int) edges.weight[i];
+		}
+		CompactGraph G = new CompactGraph(vertices, edges.n, edges.from, edges.to, weight, edges.m);
+		System.out.println("Built compact graph in " + millis(begin) + " ms");
+		return G;
+	}
+
+	/**
+	 * Load a graph file into a SimpleGraph, as GraphInput.LoadSimpleGraph does.
+	 *
+	 * @param newgraph a graph to add edges to; it should already be initialized
+	 * @param pathandfilename the name of the file, including full path
+	 * @return a hash table of (String, Vertex) pairs, or null if the file is malformed
+	 */
+	public static Hashtable<String, Vertex> loadSimpleGraph(SimpleGraph newgraph,
+			String pathandfilename) throws IOException {
+		EdgeList edges = load(pathandfilename, ForkJoinPool.commonPool());
+		if (edges == null) {
+			return null;
+		}
+		long begin = System.nanoTime();
+		Hashtable<String, Vertex> table = new Hashtable<String, Vertex>(2 * edges.n + 1);
+		Vertex[] vertices = new Vertex[edges.n];
+		for (int i = 0; i < edges.n; i++) {
+			vertices[i] = newgraph.insertVertex(null, edges.names[i]);
+			table.put(edges.names[i], vertices[i]);
+		}
+		for (int i = 0; i < edges.m; i++) {
+			newgraph.insertEdge(vertices[edges.from[i]], vertices[edges.to[i]],
+					Double.valueOf(edges.weight[i]), null);
+		}
+		System.out.println("Built simple graph in " + millis(begin) + " ms");
+		return table;
+	}
+
+	/**
+	 * Read the edges of a file in parallel.
+	 */
+	private static EdgeList load(String pathandfilename, ForkJoinPool pool) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(pathandfilename, "r");
+		System.out.println("Opened " + pathandfilename + " for input.");
+		try {
+			FileChannel channel = file.getChannel();
+
+			long begin = System.nanoTime();
+			List<Chunk> chunks = split(channel, pool.getParallelism());
+			System.out.println("Split " + channel.size() + " bytes into " + chunks.size()
+					+ " chunks in " + millis(begin) + " ms");
+
+			begin = System.nanoTime();
+			runAll(pool, chunks);
+			int lines = 0;
+			int m = 0;
+			for (Chunk chunk : chunks) {
+				if (chunk.myErrorLine > 0) {
+					System.err.println("Error:" + chunk.myError + " found on line "
+							+ (lines + chunk.myErrorLine) + "!");
+					return null;
+				}
+				chunk.myEdgeOffset = m;
+				lines += chunk.myLines;
+				m += chunk.myM;
+			}
+			System.out.println("Parsed " + lines + " lines in " + millis(begin) + " ms");
+
+			// names are merged in file order so ids follow the order of first appearance
+			begin = System.nanoTime();
+			HashMap<String, Integer> table = new HashMap<String, Integer>();
+			String[] names = new String[16];
+			for (Chunk chunk : chunks) {
+				chunk.myGlobalIds = new int[chunk.myNames];
+				for (int i = 0; i < chunk.myNames; i++) {
+					String name = chunk.myNameStrings[i];
+					Integer id = table.get(name);
+					if (id == null) {
+						id = table.size();
+						if (id == names.length) {
+							names = Arrays.copyOf(names, 2 * id);
+						}
+						names[id] = name;
+						table.put(name, id);
+					}
+					chunk.myGlobalIds[i] = id;
+				}
+				chunk.myNameStrings = null;
+			}
+			System.out.println("Merged " + table.size() + " vertex names in " + millis(begin)
+					+ " ms");
+
+			begin = System.nanoTime();
+			final EdgeList edges = new EdgeList();
+			edges.names = names;
+			edges.n = table.size();
+			edges.from = new int[m];
+			edges.to = new int[m];
+			edges.weight = new double[m];
+			edges.m = m;
+			List<Callable<Void>> copies = new ArrayList<Callable<Void>>();
+			for (final Chunk chunk : chunks) {
+				copies.add(new Callable<Void>() {
+					public Void call() {
+						chunk.copyInto(edges);
+						return null;
+					}
+				});
+			}
+			runAll(pool, copies);
+			System.out.println("Renumbered " + m + " edges in " + millis(begin) + " ms");
+			System.out.println("Successfully loaded " + lines + " lines. ");
+			return edges;
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Cut a file into chunks that end at newlines, with a few chunks per thread.
+	 */
+	private static List<Chunk> split(FileChannel channel, int threads) throws IOException {
+		long size = channel.size();
+		long target = Math.max(1, Math.min(PREFERRED_CHUNK_BYTES,
+				size / ((long) threads * CHUNKS_PER_THREAD) + 1));
+		List<Chunk> chunks = new ArrayList<Chunk>();
+		ByteBuffer probe = ByteBuffer.allocate(4096);
+		long start = 0;
+		while (start < size) {
+			long end = Math.min(size, start + target);
+			// move the end past the next newline so no line is cut in two
+			boolean found = end == size;
+			while (!found) {
+				probe.clear();
+				int read = channel.read(probe, end);
+				if (read <= 0) {
+					end = size;
+					break;
+				}
+				for (int i = 0; i < read && !found; i++) {
+					if (probe.get(i) == '\n') {
+						found = true;
+					}
+					end++;
+				}
+			}
+			if (end - start > MAX_CHUNK_BYTES) {
+				throw new IOException("A line near byte " + start + " is too long");
+			}
+			chunks.add(new Chunk(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start)));
+			start = end;
+		}
+		return chunks;
+	}
+
+	/**
+	 * Run tasks on the pool and wait for them all.
+	 */
+	private static <T> void runAll(ForkJoinPool pool, List<? extends Callable<T>> tasks)
+			throws IOException {
+		try {
+			for (Future<T> future : pool.invokeAll(tasks)) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while loading", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Failed to load", e.getCause());
+		}
+	}
+
+	/**
+	 * Return the milliseconds since a System.nanoTime() reading.
+	 */
+	private static long millis(long begin) {
+		return (System.nanoTime() - begin) / 1000000;
+	}
+
+	/**
+	 * The part of a file parsed by one task, and what was parsed from it.
+	 */
+	private static class Chunk implements Callable<Void> {
+
+		/** Marks an empty slot of the name table. */
+		private static final int EMPTY = -1;
+
+		/** The mapped bytes of the chunk, until it is parsed. */
+		MappedByteBuffer myBuffer;
+
+		/** A copy of the bytes of the chunk while it is parsed. */
+		private byte[] myBytes;
+
+		/** The number of lines in the chunk. */
+		int myLines;
+
+		/** The line within the chunk that could not be parsed, or 0. */
+		int myErrorLine;
+
+		/** What was wrong with myErrorLine. */
+		String myError;
+
+		/** The endpoints of each edge, as ids into the chunk's name table. */
+		int[] myFrom = new int[16];
+		int[] myTo = new int[16];
+
+		/** The weight of each edge. */
+		double[] myWeight = new double[16];
+
+		/** The number of edges. */
+		int myM;
+
+		/** Where each name starts in the buffer, its length and its hash. */
+		int[] myNameStarts = new int[16];
+		int[] myNameLengths = new int[16];
+		int[] myNameHashes = new int[16];
+
+		/** The number of distinct names. */
+		int myNames;
+
+		/** Each name as a String, made once parsing is finished. */
+		String[] myNameStrings;
+
+		/** An open addressing table from hash to name id. */
+		int[] mySlots;
+
+		/** The global id of each name, filled in when the tables are merged. */
+		int[] myGlobalIds;
+
+		/** The position of the chunk's first edge in the merged edge list. */
+		int myEdgeOffset;
+
+		Chunk(MappedByteBuffer buffer) {
+			myBuffer = buffer;
+			mySlots = new int[64];
+			Arrays.fill(mySlots, EMPTY);
+		}
+
+		/**
+		 * Parse every line of the chunk, stopping at the first bad one, and then make the
+		 * Strings of the names found.
+		 */
+		public Void call() {
+			myBytes = new byte[myBuffer.remaining()];
+			myBuffer.get(myBytes);
+			myBuffer = null;
+			parse();
+			myNameStrings = new String[myNames];
+			for (int i = 0; i < myNames; i++) {
+				myNameStrings[i] = text(myNameStarts[i], myNameLengths[i]);
+			}
+			myBytes = null;
+			mySlots = null;
+			return null;
+		}
+
+		/**
+		 * Parse every line of the chunk, stopping at the first bad one.
+		 */
+		private void parse() {
+			byte[] buffer = myBytes;
+			int limit = buffer.length;
+			int pos = 0;
+			while (pos < limit) {
+				myLines++;
+				int tokens = 0;
+				int a = 0;
+				int b = 0;
+				double w = 0;
+				while (true) {
+					while (pos < limit && isBlank(buffer[pos])) {
+						pos++;
+					}
+					if (pos == limit || buffer[pos] == '\n') {
+						break;
+					}
+					int begin = pos;
+					while (pos < limit && !isBlank(buffer[pos]) && buffer[pos] != '\n') {
+						pos++;
+					}
+					tokens++;
+					if (tokens == 1) {
+						a = intern(begin, pos - begin);
+					} else if (tokens == 2) {
+						b = intern(begin, pos - begin);
+					} else if (tokens == 3) {
+						w = parseWeight(begin, pos);
+						if (Double.isNaN(w)) {
+							myErrorLine = myLines;
+							myError = "invalid number of tokens";
+							return;
+						}
+						// the searches assume settled distances are final, which
+						// needs weights of at least 0
+						if (w < 0) {
+							myErrorLine = myLines;
+							myError = "negative edge weight";
+							return;
+						}
+					}
+				}
+				pos++;
+				if (tokens != 3) {
+					myErrorLine = myLines;
+					myError = "invalid number of tokens";
+					return;
+				}
+				if (myM == myFrom.length) {
+					myFrom = Arrays.copyOf(myFrom, 2 * myM);
+					myTo = Arrays.copyOf(myTo, 2 * myM);
+					myWeight = Arrays.copyOf(myWeight, 2 * myM);
+				}
+				myFrom[myM] = a;
+				myTo[myM] = b;
+				myWeight[myM] = w;
+				myM++;
+			}
+			return;
+		}
+
+		/**
+		 * Determine whether a byte separates tokens, as StringTokenizer's default
+		 * delimiters do; newlines are handled separately.
+		 */
+		private static boolean isBlank(byte c) {
+			return c == ' ' || c == '\t' || c == '\r' || c == '\f';
+		}
+
+		/**
+		 * Return the id of the name in the passed bytes, adding it if it is new.
+		 */
+		private int intern(int start, int length) {
+			int hash = 0;
+			for (int i = start; i < start + length; i++) {
+				hash = 31 * hash + myBytes[i];
+			}
+			int mask = mySlots.length - 1;
+			for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+				int id = mySlots[slot];
+				if (id == EMPTY) {
+					return add(slot, start, length, hash);
+				}
+				if (myNameHashes[id] == hash && myNameLengths[id] == length
+						&& sameBytes(myNameStarts[id], start, length)) {
+					return id;
+				}
+			}
+		}
+
+		/**
+		 * Add a new name in the passed empty slot and return its id.
+		 */
+		private int add(int slot, int start, int length, int hash) {
+			int id = myNames++;
+			if (id == myNameStarts.length) {
+				myNameStarts = Arrays.copyOf(myNameStarts, 2 * id);
+				myNameLengths = Arrays.copyOf(myNameLengths, 2 * id);
+				myNameHashes = Arrays.copyOf(myNameHashes, 2 * id);
+			}
+			myNameStarts[id] = start;
+			myNameLengths[id] = length;
+			myNameHashes[id] = hash;
+			mySlots[slot] = id;
+			if (2 * myNames > mySlots.length) {
+				// keep the table at most half full
+				mySlots = new int[2 * mySlots.length];
+				Arrays.fill(mySlots, EMPTY);
+				int mask = mySlots.length - 1;
+				for (int i = 0; i < myNames; i++) {
+					int h = myNameHashes[i];
+					int s = spread(h) & mask;
+					while (mySlots[s] != EMPTY) {
+						s = (s + 1) & mask;
+					}
+					mySlots[s] = i;
+				}
+			}
+			return id;
+		}
+
+		/**
+		 * Scramble a hash so that names differing only in their last characters, whose
+		 * hashes are nearly consecutive, do not fill neighboring slots.
+		 */
+		private static int spread(int hash) {
+			int h = hash * 0x9E3779B9;
+			return h ^ (h >>> 16);
+		}
+
+		/**
+		 * Determine whether two ranges of the buffer hold the same bytes.
+		 */
+		private boolean sameBytes(int first, int second, int length) {
+			for (int i = 0; i < length; i++) {
+				if (myBytes[first + i] != myBytes[second + i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Parse a weight. Whole numbers of up to 15 digits are read from the bytes; any
+		 * other number goes through Double.parseDouble.
+		 *
+		 * @return the weight, or NaN if the bytes are not a number
+		 */
+		private double parseWeight(int start, int end) {
+			int i = start;
+			boolean negative = false;
+			if (myBytes[i] == '-' || myBytes[i] == '+') {
+				negative = myBytes[i] == '-';
+				i++;
+			}
+			if (i < end && end - i <= 15) {
+				long value = 0;
+				while (i < end && myBytes[i] >= '0' && myBytes[i] <= '9') {
+					value = 10 * value + (myBytes[i] - '0');
+					i++;
+				}
+				if (i == end) {
+					return negative ? -value : value;
+				}
+			}
+			try {
+				return Double.parseDouble(text(start, end - start));
+			} catch (NumberFormatException e) {
+				return Double.NaN;
+			}
+		}
+
+		/**
+		 * Return the bytes of a range as a String.
+		 */
+		private String text(int start, int length) {
+			byte[] bytes = new byte[length];
+			for (int i = 0; i < length; i++) {
+				bytes[i] = myBytes[start + i];
+			}
+			return new String(bytes, Charset.defaultCharset());
+		}
+
+		/**
+		 * Copy the edges of the chunk into the merged list, renumbering their endpoints.
+		 */
+		void copyInto(EdgeList edges) {
+			for (int i = 0; i < myM; i++) {
+				edges.from[myEdgeOffset + i] = myGlobalIds[myFrom[i]];
+				edges.to[myEdgeOffset + i] = myGlobalIds[myTo[i]];
+				edges.weight[myEdgeOffset + i] = myWeight[i];
+			}
+		}
+	}
+
+	/**
+	 * Code to check the loader against GraphInput and time both.
+	 */
+	public static void main(String[] args) throws IOException {
+		String path = args.length > 0 ? args[0] : "./testGraphs/path2.txt";
+		long begin = System.nanoTime();
+		CompactGraph expected = GraphInput.LoadCompactGraph(path);
+		System.out.println("GraphInput took " + millis(begin) + " ms");
+		begin = System.nanoTime();
+		CompactGraph G = loadCompactGraph(path);
+		System.out.println("ParallelGraphLoader took " + millis(begin) + " ms");
+		if (G == null || expected == null) {
+			System.out.println(G == expected ? "Both loaders rejected the file" : "Loaders disagree");
+			return;
+		}
+		boolean same = G.vertexCount() == expected.vertexCount()
+				&& G.arcCount() == expected.arcCount();
+		for (int v = 0; same && v < G.vertexCount(); v++) {
+			same = G.getVertex(v).getName().equals(expected.getVertex(v).getName())
+					&& G.firstEdge(v) == expected.firstEdge(v);
+			for (int e = G.firstEdge(v); same && e < G.endEdge(v); e++) {
+				same = G.target(e) == expected.target(e) && G.weight(e) == expected.weight(e);
+			}
+		}
+		System.out.println(same ? "Graphs match" : "Graphs differ");
+	}
+}
@@ -0,0 +1,100 @@
+/**
+ * The ways a PathResult can be written out as text. Every format also has a way of saying
+ * that there is no path, used when it is given null.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public enum PathFormat {
+
+	/** The html shown by the trip planner, one line per vertex. */
+	HTML {
+		public String format(PathResult path) {
+			if (path == null) {
+				return "<html>No path</html>";
+			}
+			StringBuilder builder = new StringBuilder("<html>");
+			builder.append("Start => ").append(path.getName(0)).append("<br>");
+			for (int i = 1; i < path.size() - 1; i++) {
+				builder.append(" => ").append(path.getName(i)).append("<br>");
+			}
+			builder.append("End => ").append(path.getName(path.size() - 1)).append("<br>");
+			builder.append("</html>");
+			return builder.toString();
+		}
+	},
+
+	/** A header line, then one line per vertex with its position, name and distance. */
+	CSV {
+		public String format(PathResult path) {
+			StringBuilder builder = new StringBuilder("hop,vertex,distance\n");
+			for (int i = 0; path != null && i < path.size(); i++) {
+				builder.append(i).append(',');
+				appendCsv(builder, path.getName(i));
+				builder.append(',').append(path.getDistances()[i]).append('\n');
+			}
+			return builder.toString();
+		}
+	},
+
+	/** A JSON object with the total cost and the list of vertices and their distances. */
+	JSON {
+		public String format(PathResult path) {
+			if (path == null) {
+				return "{\"found\":false}";
+			}
+			StringBuilder builder = new StringBuilder("{\"found\":true,\"total\":");
+			builder.append(path.getTotal()).append(",\"hops\":[");
+			for (int i = 0; i < path.size(); i++) {
+				builder.append(i == 0 ? "{\"vertex\":" : ",{\"vertex\":");
+				appendJson(builder, path.getName(i));
+				builder.append(",\"id\":").append(path.getIds()[i]);
+				builder.append(",\"distance\":").append(path.getDistances()[i]).append('}');
+			}
+			return builder.append("]}").toString();
+		}
+	};
+
+	/**
+	 * Return the passed path as text.
+	 *
+	 * @param path a path, or null if there is none
+	 * @return the formatted path
+	 */
+	public abstract String format(PathResult path);
+
+	/**
+	 * Append a CSV field, quoting it if it holds a comma, a quote or a line break.
+	 */
+	private static void appendCsv(StringBuilder builder, String field) {
+		if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0
+				&& field.indexOf('\r') < 0) {
+			builder.append(field);
+			return;
+		}
+		builder.append('"');
+		for (int i = 0; i < field.length(); i++) {
+			char c = field.charAt(i);
+			builder.append(c == '"' ? "\"\"" : String.valueOf(c));
+		}
+		builder.append('"');
+	}
+
+	/**
+	 * Append a JSON string literal.
+	 */
+	static void appendJson(StringBuilder builder, String value) {
+		builder.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				builder.append('\\').append(c);
+			} else if (c < 0x20) {
+				builder.append(String.format("\\u%04x", (int) c));
+			} else {
+				builder.append(c);
+			}
+		}
+		builder.append('"');
+	}
+}
@@ -0,0 +1,146 @@
+/**
+ * A shortest path as the vertex ids along it and the distance from the start to each of
+ * them, ready to be formatted by a PathFormat or used directly.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class PathResult {
+
+	/** The graph the path is in. */
+	private final IndexedGraph myGraph;
+
+	/** The vertex ids along the path, starting at the source. */
+	private final int[] myIds;
+
+	/** The distance from the source to each vertex of the path. */
+	private final int[] myDistances;
+
+	/**
+	 * Initialize a new PathResult that takes ownership of the passed arrays.
+	 *
+	 * @param G the graph the path is in
+	 * @param ids the vertex ids along the path, starting at the source
+	 * @param distances the distance from the source to each vertex of the path
+	 */
+	public PathResult(IndexedGraph G, int[] ids, int[] distances) {
+		if (ids.length == 0 || ids.length != distances.length) {
+			throw new IllegalArgumentException("Expected a distance for every vertex of the path");
+		}
+		myGraph = G;
+		myIds = ids;
+		myDistances = distances;
+	}
+
+	/**
+	 * Return the result for a path of vertex ids, taking the lightest arc between each pair
+	 * of consecutive vertices. This costs one pass over the arcs of the vertices on the path.
+	 *
+	 * @param G the graph the path is in
+	 * @param path the vertex ids along the path, or null if there is none
+	 * @return the result, or null if path is null
+	 */
+	public static PathResult of(IndexedGraph G, int[] path) {
+		if (path == null) {
+			return null;
+		}
+		int[] distances = new int[path.length];
+		for (int i = 1; i < path.length; i++) {
+			int best = Integer.MAX_VALUE;
+			for (int e = G.firstEdge(path[i - 1]); e < G.endEdge(path[i - 1]); e++) {
+				if (G.target(e) == path[i] && G.weight(e) < best) {
+					best = G.weight(e);
+				}
+			}
+			if (best == Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("No edge joins " + path[i - 1] + " and " + path[i]);
+			}
+			distances[i] = QueryContext.extend(distances[i - 1], best);
+		}
+		return new PathResult(G, path, distances);
+	}
+
+	/**
+	 * Return the graph the path is in.
+	 *
+	 * @return the graph
+	 */
+	public IndexedGraph getGraph() {
+		return myGraph;
+	}
+
+	/**
+	 * Return the vertex ids along the path, starting at the source. The array is shared
+	 * and must not be changed.
+	 *
+	 * @return the vertex ids
+	 */
+	public int[] getIds() {
+		return myIds;
+	}
+
+	/**
+	 * Return the distance from the source to each vertex of the path. The array is shared
+	 * and must not be changed.
+	 *
+	 * @return the cumulative distances
+	 */
+	public int[] getDistances() {
+		return myDistances;
+	}
+
+	/**
+	 * Return the number of vertices on the path.
+	 *
+	 * @return the number of vertices
+	 */
+	public int size() {
+		return myIds.length;
+	}
+
+	/**
+	 * Return the number of edges on the path.
+	 *
+	 * @return the number of hops
+	 */
+	public int getHopCount() {
+		return myIds.length - 1;
+	}
+
+	/**
+	 * Return the length of the whole path.
+	 *
+	 * @return the total cost
+	 */
+	public int getTotal() {
+		return myDistances[myDistances.length - 1];
+	}
+
+	/**
+	 * Return the id of the first vertex of the path.
+	 *
+	 * @return the source id
+	 */
+	public int getSource() {
+		return myIds[0];
+	}
+
+	/**
+	 * Return the id of the last vertex of the path.
+	 *
+	 * @return the target id
+	 */
+	public int getTarget() {
+		return myIds[myIds.length - 1];
+	}
+
+	/**
+	 * Return the name of a vertex of the path.
+	 *
+	 * @param i a position on the path
+	 * @return the name of the i-th vertex
+	 */
+	public String getName(int i) {
+		return String.valueOf(myGraph.getVertex(myIds[i]).getName());
+	}
+}
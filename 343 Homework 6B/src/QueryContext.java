@@ -0,0 +1,253 @@
+import java.util.Arrays;
+
+/**
+ * The scratch state of one shortest path search: a distance and a predecessor for every
+ * vertex and the heap of vertices waiting to be settled.
+ *
+ * The arrays are allocated once and reused by every search. Instead of clearing them,
+ * each search gets a new epoch number, and an entry only counts as set if its stamp
+ * matches the current epoch. Starting a search therefore costs time proportional to what
+ * the previous search left in the heap, not to the number of vertices.
+ *
+ * A vertex has been reached once it has a distance in this epoch. It is settled once it
+ * has been reached and is no longer in the heap.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class QueryContext {
+
+	/** Marks a vertex with no predecessor. */
+	public static final int NONE = -1;
+
+	/** The tentative distance of each vertex, valid when its stamp is current. */
+	private final int[] myDistances;
+
+	/** The predecessor of each vertex, valid when its stamp is current. */
+	private final int[] myPreds;
+
+	/** The epoch in which each vertex was last reached. */
+	private final int[] myStamps;
+
+	/** The current epoch. */
+	private int myEpoch;
+
+	/** The heap of reached but unsettled vertices. */
+	private final IndexedMinHeap myHeap;
+
+	/** The number of vertices settled by the current search. */
+	private int mySettled;
+
+	/**
+	 * Return the length of a path extended by one edge. Distances are ints with
+	 * Integer.MAX_VALUE meaning unreached, so a length that does not fit below it would
+	 * wrap around and be taken for a shorter path; this throws instead.
+	 *
+	 * @param distance the length of the path
+	 * @param weight the weight of the edge
+	 * @return the sum
+	 * @throws ArithmeticException if the sum is Integer.MAX_VALUE or more
+	 */
+	public static int extend(int distance, int weight) {
+		return checkedLength((long) distance + weight);
+	}
+
+	/**
+	 * Return a path length as an int distance.
+	 *
+	 * @param length the length of a path that exists
+	 * @return the length
+	 * @throws ArithmeticException if the length is Integer.MAX_VALUE or more
+	 */
+	public static int checkedLength(long length) {
+		if (length >= Integer.MAX_VALUE) {
+			throw new ArithmeticException("A path of length " + length
+					+ " is too long for int distances; the edge weights of this graph are too large");
+		}
+		return (int) length;
+	}
+
+	/**
+	 * Initialize a new QueryContext for graphs with the passed number of vertices.
+	 *
+	 * @param n the number of vertices
+	 */
+	public QueryContext(int n) {
+		this(n, MinHeapImplementation.DEFAULT_ARITY);
+	}
+
+	/**
+	 * Initialize a new QueryContext whose heap has the passed arity.
+	 *
+	 * @param n the number of vertices
+	 * @param arity the number of children of each heap node: 2, 4 or 8
+	 */
+	public QueryContext(int n, int arity) {
+		myDistances = new int[n];
+		myPreds = new int[n];
+		myStamps = new int[n];
+		myHeap = new IndexedMinHeap(n, arity);
+	}
+
+	/**
+	 * Forget the previous search and start a new one.
+	 */
+	public void begin() {
+		myHeap.clear();
+		if (SearchMetrics.ENABLED) {
+			myHeap.getStats().reset();
+		}
+		mySettled = 0;
+		myEpoch++;
+		if (myEpoch == Integer.MAX_VALUE) {
+			// only after two billion searches do the stamps need a real reset
+			Arrays.fill(myStamps, 0);
+			myEpoch = 1;
+		}
+	}
+
+	/**
+	 * Return the number of vertices this context was made for.
+	 *
+	 * @return the number of vertices
+	 */
+	public int capacity() {
+		return myDistances.length;
+	}
+
+	/**
+	 * Determine whether a vertex has been reached by the current search.
+	 *
+	 * @param v a vertex id
+	 * @return true if v has a tentative or final distance
+	 */
+	public boolean isReached(int v) {
+		return myStamps[v] == myEpoch;
+	}
+
+	/**
+	 * Determine whether a vertex has been settled by the current search.
+	 *
+	 * @param v a vertex id
+	 * @return true if the distance of v is final
+	 */
+	public boolean isSettled(int v) {
+		return myStamps[v] == myEpoch && !myHeap.contains(v);
+	}
+
+	/**
+	 * Return the distance of a vertex in the current search.
+	 *
+	 * @param v a vertex id
+	 * @return the distance, or Integer.MAX_VALUE if v has not been reached
+	 */
+	public int distance(int v) {
+		return myStamps[v] == myEpoch ? myDistances[v] : Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Return the predecessor of a vertex in the current search.
+	 *
+	 * @param v a vertex id
+	 * @return the predecessor, or NONE if v is the source or has not been reached
+	 */
+	public int pred(int v) {
+		return myStamps[v] == myEpoch ? myPreds[v] : NONE;
+	}
+
+	/**
+	 * Record a new tentative distance for a vertex and queue it, inserting it into the
+	 * heap if it is reached for the first time.
+	 *
+	 * @param v a vertex id that is not settled
+	 * @param distance its new distance
+	 * @param pred its predecessor, or NONE
+	 */
+	public void relax(int v, int distance, int pred) {
+		if (myStamps[v] != myEpoch) {
+			myStamps[v] = myEpoch;
+			myDistances[v] = distance;
+			myPreds[v] = pred;
+			myHeap.insert(v, distance);
+		} else {
+			myDistances[v] = distance;
+			myPreds[v] = pred;
+			myHeap.decreaseKey(v, distance);
+		}
+	}
+
+	/**
+	 * Return the heap of reached but unsettled vertices.
+	 *
+	 * @return the heap
+	 */
+	public IndexedMinHeap getHeap() {
+		return myHeap;
+	}
+
+	/**
+	 * Remove the closest unsettled vertex from the heap and count it as settled.
+	 *
+	 * @return its id
+	 */
+	public int settleNext() throws EmptyHeapException {
+		int u = myHeap.deleteMin();
+		mySettled++;
+		return u;
+	}
+
+	/**
+	 * Count arcs scanned from a settled vertex in the counters of the current search.
+	 *
+	 * @param arcs the number of arcs scanned
+	 */
+	public void scanned(int arcs) {
+		if (SearchMetrics.ENABLED) {
+			myHeap.getStats().relaxed += arcs;
+		}
+	}
+
+	/**
+	 * Return the counters of the current search. They are only kept when
+	 * SearchMetrics.ENABLED is set, and are reset by begin.
+	 *
+	 * @return the counters
+	 */
+	public SearchStats getStats() {
+		SearchStats stats = myHeap.getStats();
+		if (SearchMetrics.ENABLED) {
+			stats.settled = mySettled;
+		}
+		return stats;
+	}
+
+	/**
+	 * Return the number of vertices settled by the current search.
+	 *
+	 * @return the number of settled vertices
+	 */
+	public int getSettledCount() {
+		return mySettled;
+	}
+
+	/**
+	 * Return the vertex ids on the path to v, starting at the source.
+	 *
+	 * @param v a vertex id
+	 * @return the path, or null if v has not been reached
+	 */
+	public int[] path(int v) {
+		if (myStamps[v] != myEpoch) {
+			return null;
+		}
+		int hops = 0;
+		for (int u = v; myPreds[u] != NONE; u = myPreds[u]) {
+			hops++;
+		}
+		int[] path = new int[hops + 1];
+		for (int u = v; hops >= 0; u = myPreds[u]) {
+			path[hops--] = u;
+		}
+		return path;
+	}
+}
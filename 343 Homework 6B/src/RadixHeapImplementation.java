@@ -0,0 +1,272 @@
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * This class implements Dijkstra's algorithm using a radix heap, the bucket queue to use
+ * when edge weights are too large for a bucket per distance.
+ *
+ * The heap remembers the last distance it removed. A vertex with tentative distance d is
+ * kept in bucket k, where k is the position of the highest bit in which d differs from
+ * that distance, so there are only 33 buckets for any int weights. Removing the minimum
+ * empties the first nonempty bucket into lower buckets relative to its smallest distance,
+ * and each vertex can only move down, which keeps the total work O(m + n log C).
+ * Buckets are linked lists threaded through per-vertex arrays, as in ArrayImplementation.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class RadixHeapImplementation implements Algorithm {
+
+	/** The number of buckets: one per bit of an int distance, plus bucket 0. */
+	private static final int BUCKET_COUNT = 33;
+
+	/** Marks the end of a bucket list. */
+	private static final int NONE = -1;
+
+	/** The graph being used. */
+	private final IndexedGraph myG;
+
+	/** The first vertex of each bucket, or NONE. */
+	private final int[] myBuckets;
+
+	/** The next vertex in the same bucket, or NONE. */
+	private final int[] myNext;
+
+	/** The previous vertex in the same bucket, or NONE. */
+	private final int[] myPrevious;
+
+	/** The bucket each queued vertex is in, or NONE. */
+	private final int[] myBucketOf;
+
+	/** The tentative distance of each vertex. */
+	private final int[] myDistances;
+
+	/** The vertex before each vertex on its shortest path, or NONE. */
+	private final int[] myPred;
+
+	/** The last distance removed from the heap. */
+	private int myLast;
+
+	/** The target of the last point-to-point query, or NONE after a full run. */
+	private int myTarget;
+
+	/**
+	 * Initialize a new RadixHeapImplementation.
+	 *
+	 * @param G the graph to evaluate
+	 */
+	public RadixHeapImplementation(SimpleGraph G) {
+		this(new CompactGraph(G));
+	}
+
+	/**
+	 * Initialize a new RadixHeapImplementation that runs directly on an IndexedGraph.
+	 *
+	 * @param G the graph to evaluate
+	 */
+	public RadixHeapImplementation(IndexedGraph G) {
+		myG = G;
+		int n = G.vertexCount();
+		myBuckets = new int[BUCKET_COUNT];
+		myNext = new int[n];
+		myPrevious = new int[n];
+		myBucketOf = new int[n];
+		myDistances = new int[n];
+		myPred = new int[n];
+		myTarget = NONE;
+	}
+
+	/**
+	 * Runs the algorithm with the passed vertex as the starting point city.
+	 *
+	 * @param s the starting city vertex
+	 */
+	public void runAlgorithm(Vertex s) {
+		myTarget = NONE;
+		run(myG.getId(s), NONE);
+	}
+
+	/**
+	 * Run Dijkstra's algorithm on the radix heap from source, stopping once target has
+	 * been settled.
+	 *
+	 * @param source the id of the starting vertex
+	 * @param target the id of the vertex to stop at, or NONE to settle every reachable vertex
+	 */
+	private void run(int source, int target) {
+		Arrays.fill(myBuckets, NONE);
+		Arrays.fill(myBucketOf, NONE);
+		Arrays.fill(myDistances, Integer.MAX_VALUE);
+		Arrays.fill(myPred, NONE);
+		myLast = 0;
+		myDistances[source] = 0;
+		link(source, 0);
+		int u;
+		while ((u = deleteMin()) != NONE && u != target) {
+			for (int e = myG.firstEdge(u); e < myG.endEdge(u); e++) {
+				int v = myG.target(e);
+				int distance = QueryContext.extend(myDistances[u], myG.weight(e));
+				// settled vertices never pass this test since weights are not negative
+				if (distance < myDistances[v]) {
+					if (myBucketOf[v] != NONE) {
+						unlink(v);
+					}
+					myDistances[v] = distance;
+					myPred[v] = u;
+					link(v, bucketFor(distance));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return the bucket for a distance relative to the last removed distance.
+	 */
+	private int bucketFor(int distance) {
+		return 32 - Integer.numberOfLeadingZeros(distance ^ myLast);
+	}
+
+	/**
+	 * Remove and return the queued vertex with the smallest distance, or NONE.
+	 */
+	private int deleteMin() {
+		if (myBuckets[0] == NONE) {
+			int i = 1;
+			while (i < BUCKET_COUNT && myBuckets[i] == NONE) {
+				i++;
+			}
+			if (i == BUCKET_COUNT) {
+				return NONE;
+			}
+			// find the smallest distance in the bucket and spread the bucket out around it
+			int min = Integer.MAX_VALUE;
+			for (int v = myBuckets[i]; v != NONE; v = myNext[v]) {
+				min = Math.min(min, myDistances[v]);
+			}
+			myLast = min;
+			int v = myBuckets[i];
+			myBuckets[i] = NONE;
+			while (v != NONE) {
+				int next = myNext[v];
+				link(v, bucketFor(myDistances[v]));
+				v = next;
+			}
+		}
+		int u = myBuckets[0];
+		unlink(u);
+		return u;
+	}
+
+	/**
+	 * Add a vertex to the front of a bucket.
+	 */
+	private void link(int v, int bucket) {
+		int head = myBuckets[bucket];
+		myNext[v] = head;
+		myPrevious[v] = NONE;
+		if (head != NONE) {
+			myPrevious[head] = v;
+		}
+		myBuckets[bucket] = v;
+		myBucketOf[v] = bucket;
+	}
+
+	/**
+	 * Remove a vertex from its bucket.
+	 */
+	private void unlink(int v) {
+		if (myPrevious[v] == NONE) {
+			myBuckets[myBucketOf[v]] = myNext[v];
+		} else {
+			myNext[myPrevious[v]] = myNext[v];
+		}
+		if (myNext[v] != NONE) {
+			myPrevious[myNext[v]] = myPrevious[v];
+		}
+		myBucketOf[v] = NONE;
+	}
+
+	/**
+	 * Finds the shortest path from source to target, stopping as soon as target is
+	 * removed from the heap.
+	 *
+	 * @param source the starting city vertex
+	 * @param target the ending city vertex
+	 */
+	public void runAlgorithm(Vertex source, Vertex target) {
+		myTarget = myG.getId(target);
+		run(myG.getId(source), myTarget);
+	}
+
+	/**
+	 * Return the distance to the passed vertex found by the last run.
+	 *
+	 * @param v a vertex
+	 * @return the distance to v, or Integer.MAX_VALUE if no path to v is known
+	 */
+	public int getDistance(Vertex v) {
+		int id = myG.getId(v);
+		if (myTarget != NONE && id != myTarget) {
+			return Integer.MAX_VALUE;
+		}
+		return myDistances[id];
+	}
+
+	/**
+	 * Return the shortest path description starting from the starting vertex and ending at
+	 * the last vertex.
+	 *
+	 * @param first the starting vertex
+	 * @param last the ending vertex
+	 * @return the path
+	 */
+	public String getPath(Vertex first, Vertex last) {
+		return PathFormat.HTML.format(getPathResult(first, last));
+	}
+
+	/**
+	 * Return the shortest path from the starting vertex to the last vertex.
+	 *
+	 * @param first the starting vertex
+	 * @param last the ending vertex
+	 * @return the path, or null if there is none
+	 */
+	public PathResult getPathResult(Vertex first, Vertex last) {
+		int id = myG.getId(last);
+		if (myTarget != NONE && id != myTarget) {
+			return null;
+		}
+		int[] path = predecessorPath(id);
+		if (path == null) {
+			return null;
+		}
+		return PathResult.of(myG, path);
+	}
+
+	/**
+	 * Return the vertex ids from the source to v, or null if v was not reached.
+	 */
+	private int[] predecessorPath(int v) {
+		if (myDistances[v] == Integer.MAX_VALUE) {
+			return null;
+		}
+		int hops = 0;
+		for (int u = v; myPred[u] != NONE; u = myPred[u]) {
+			hops++;
+		}
+		int[] path = new int[hops + 1];
+		for (int u = v; hops >= 0; u = myPred[u]) {
+			path[hops--] = u;
+		}
+		return path;
+	}
+
+	/**
+	 * Return a set of all the vertices.
+	 *
+	 * @return a set of all the vertices
+	 */
+	public Set<Vertex> getVertices() {
+		return myG.getVertices();
+	}
+}
@@ -0,0 +1,246 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The totals of the SearchStats of every search run by one kind of engine, published
+ * as a JMX MBean named ShortestPath:type=SearchMetrics,engine=name.
+ *
+ * Counting is switched on by starting the JVM with -Dshortestpath.metrics=true. The
+ * switch is a constant, so when it is off the JIT removes the counting code from the
+ * searches entirely. When it is on, a search counts into plain fields of its own
+ * SearchStats and adds them here once when it finishes, into LongAdders that many
+ * threads can update without contending.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class SearchMetrics implements SearchMetricsMBean {
+
+	/** True if searches keep counters. */
+	public static final boolean ENABLED = Boolean.getBoolean("shortestpath.metrics");
+
+	/** The domain of the MBean names. */
+	public static final String DOMAIN = "ShortestPath";
+
+	/** The metrics of each engine, by engine name. */
+	private static final ConcurrentHashMap<String, SearchMetrics> ENGINES =
+			new ConcurrentHashMap<String, SearchMetrics>();
+
+	/** Keeps the larger of two values. */
+	private static final LongBinaryOperator MAX = new LongBinaryOperator() {
+		public long applyAsLong(long left, long right) {
+			return Math.max(left, right);
+		}
+	};
+
+	/** The name of the engine. */
+	private final String myEngine;
+
+	/** The searches recorded. */
+	private final LongAdder myRuns = new LongAdder();
+
+	/** The total settled vertices. */
+	private final LongAdder mySettled = new LongAdder();
+
+	/** The total relaxed arcs. */
+	private final LongAdder myRelaxed = new LongAdder();
+
+	/** The total successful decrease-keys. */
+	private final LongAdder myDecreaseKeys = new LongAdder();
+
+	/** The total percolate up moves. */
+	private final LongAdder myUpMoves = new LongAdder();
+
+	/** The total percolate down moves. */
+	private final LongAdder myDownMoves = new LongAdder();
+
+	/** The largest high-water mark. */
+	private final LongAccumulator myHighWater = new LongAccumulator(MAX, 0);
+
+	/** The total bucket scans. */
+	private final LongAdder myBucketScans = new LongAdder();
+
+	/**
+	 * Initialize new SearchMetrics for an engine.
+	 *
+	 * @param engine the name of the engine
+	 */
+	private SearchMetrics(String engine) {
+		myEngine = engine;
+	}
+
+	/**
+	 * Return the metrics of an engine, creating and registering them the first time.
+	 *
+	 * @param engine the name of the engine
+	 * @return its metrics
+	 */
+	public static SearchMetrics forEngine(String engine) {
+		SearchMetrics metrics = ENGINES.get(engine);
+		if (metrics == null) {
+			SearchMetrics created = new SearchMetrics(engine);
+			metrics = ENGINES.putIfAbsent(engine, created);
+			if (metrics == null) {
+				metrics = created;
+				created.register();
+			}
+		}
+		return metrics;
+	}
+
+	/**
+	 * Add the counters of one finished search to the totals of an engine. Nothing
+	 * happens unless counting is enabled.
+	 *
+	 * @param engine the name of the engine
+	 * @param stats the counters of the search
+	 */
+	public static void record(String engine, SearchStats stats) {
+		if (ENABLED) {
+			forEngine(engine).add(stats);
+		}
+	}
+
+	/**
+	 * Add the counters of one search to the totals.
+	 *
+	 * @param stats the counters of the search
+	 */
+	public void add(SearchStats stats) {
+		myRuns.increment();
+		mySettled.add(stats.settled);
+		myRelaxed.add(stats.relaxed);
+		myDecreaseKeys.add(stats.decreaseKeys);
+		myUpMoves.add(stats.upMoves);
+		myDownMoves.add(stats.downMoves);
+		myHighWater.accumulate(stats.highWater);
+		myBucketScans.add(stats.bucketScans);
+	}
+
+	/**
+	 * Return the name under which these metrics are registered.
+	 *
+	 * @return the MBean name
+	 */
+	public ObjectName getObjectName() throws JMException {
+		return new ObjectName(DOMAIN + ":type=SearchMetrics,engine=" + ObjectName.quote(myEngine));
+	}
+
+	/**
+	 * Register these metrics with the platform MBean server.
+	 */
+	private void register() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = getObjectName();
+			if (!server.isRegistered(name)) {
+				server.registerMBean(this, name);
+			}
+		} catch (JMException e) {
+			e.printStackTrace();
+		}
+	}
+
+	public long getRuns() {
+		return myRuns.sum();
+	}
+
+	public long getSettled() {
+		return mySettled.sum();
+	}
+
+	public long getRelaxed() {
+		return myRelaxed.sum();
+	}
+
+	public long getDecreaseKeys() {
+		return myDecreaseKeys.sum();
+	}
+
+	public long getUpMoves() {
+		return myUpMoves.sum();
+	}
+
+	public long getDownMoves() {
+		return myDownMoves.sum();
+	}
+
+	public long getHighWater() {
+		return myHighWater.get();
+	}
+
+	public long getBucketScans() {
+		return myBucketScans.sum();
+	}
+
+	public void reset() {
+		myRuns.reset();
+		mySettled.reset();
+		myRelaxed.reset();
+		myDecreaseKeys.reset();
+		myUpMoves.reset();
+		myDownMoves.reset();
+		myHighWater.reset();
+		myBucketScans.reset();
+	}
+
+	/**
+	 * Return the totals as one line of text.
+	 *
+	 * @return the totals
+	 */
+	public String toString() {
+		return myEngine + ": runs=" + getRuns() + " settled=" + getSettled() + " relaxed="
+				+ getRelaxed() + " decreaseKeys=" + getDecreaseKeys() + " upMoves=" + getUpMoves()
+				+ " downMoves=" + getDownMoves() + " highWater=" + getHighWater()
+				+ " bucketScans=" + getBucketScans();
+	}
+
+	/**
+	 * Code to run a few searches with each instrumented engine and read the totals back
+	 * through JMX. Run it with -Dshortestpath.metrics=true.
+	 */
+	public static void main(String[] args) throws IOException, JMException {
+		if (!ENABLED) {
+			System.out.println("Counting is off; run with -Dshortestpath.metrics=true");
+			return;
+		}
+		CompactGraph G = GraphGenerator.grid(100, 100, 100, GraphGenerator.Weights.UNIFORM, 343)
+				.toCompactGraph();
+		Vertex source = G.getVertex(0);
+		Vertex target = G.getVertex(G.vertexCount() - 1);
+
+		MinHeapImplementation heap = new MinHeapImplementation(G);
+		heap.runAlgorithm(source);
+		System.out.println("MinHeapImplementation full:  " + heap.getStats());
+		heap.runAlgorithm(source, target);
+		System.out.println("MinHeapImplementation point: " + heap.getStats());
+
+		ArrayImplementation array = new ArrayImplementation(G);
+		array.runAlgorithm(source);
+		System.out.println("ArrayImplementation full:    " + array.getStats());
+		array.runAlgorithm(source, target);
+		System.out.println("ArrayImplementation point:   " + array.getStats());
+
+		DijkstraIterator iterator = new DijkstraIterator(G);
+		iterator.nearest(0, 100);
+		System.out.println("DijkstraIterator nearest:    " + iterator.getStats());
+		iterator.start(G.vertexCount() - 1);
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for (ObjectName name : server.queryNames(new ObjectName(DOMAIN + ":*"), null)) {
+			System.out.println(name + " runs=" + server.getAttribute(name, "Runs") + " settled="
+					+ server.getAttribute(name, "Settled") + " upMoves="
+					+ server.getAttribute(name, "UpMoves") + " highWater="
+					+ server.getAttribute(name, "HighWater"));
+		}
+	}
+}
@@ -0,0 +1,70 @@
+/**
+ * The management interface of SearchMetrics, through which JMX clients such as
+ * JConsole read the totals of one engine.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public interface SearchMetricsMBean {
+
+	/**
+	 * Return the number of searches recorded.
+	 *
+	 * @return the searches
+	 */
+	long getRuns();
+
+	/**
+	 * Return the vertices settled by all recorded searches.
+	 *
+	 * @return the settled vertices
+	 */
+	long getSettled();
+
+	/**
+	 * Return the arcs scanned by all recorded searches.
+	 *
+	 * @return the relaxed arcs
+	 */
+	long getRelaxed();
+
+	/**
+	 * Return the successful decrease-keys of all recorded searches.
+	 *
+	 * @return the decrease-keys
+	 */
+	long getDecreaseKeys();
+
+	/**
+	 * Return the heap entries moved up by all recorded searches.
+	 *
+	 * @return the percolate up moves
+	 */
+	long getUpMoves();
+
+	/**
+	 * Return the heap entries moved down by all recorded searches.
+	 *
+	 * @return the percolate down moves
+	 */
+	long getDownMoves();
+
+	/**
+	 * Return the largest high-water mark of any recorded search.
+	 *
+	 * @return the high-water mark
+	 */
+	long getHighWater();
+
+	/**
+	 * Return the buckets visited by all recorded searches.
+	 *
+	 * @return the bucket scans
+	 */
+	long getBucketScans();
+
+	/**
+	 * Set every total to zero.
+	 */
+	void reset();
+}
@@ -0,0 +1,136 @@
+/**
+ * The counters of one shortest path search: how many vertices it settled, how many arcs
+ * it scanned and how hard its heap or buckets worked.
+ *
+ * The counters are only kept when SearchMetrics.ENABLED is set. Otherwise the code that
+ * increments them is compiled away and they stay zero.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class SearchStats {
+
+	/** The vertices settled. */
+	long settled;
+
+	/** The arcs scanned from settled vertices. */
+	long relaxed;
+
+	/** The decrease-key operations that lowered a key. */
+	long decreaseKeys;
+
+	/** The entries moved by percolating up. */
+	long upMoves;
+
+	/** The entries moved by percolating down. */
+	long downMoves;
+
+	/** The most entries the heap or buckets held at once. */
+	long highWater;
+
+	/** The buckets visited by a bucket queue. */
+	long bucketScans;
+
+	/**
+	 * Set every counter to zero.
+	 */
+	public void reset() {
+		settled = 0;
+		relaxed = 0;
+		decreaseKeys = 0;
+		upMoves = 0;
+		downMoves = 0;
+		highWater = 0;
+		bucketScans = 0;
+	}
+
+	/**
+	 * Add the counters of another search to these. The high-water marks are combined by
+	 * taking the larger.
+	 *
+	 * @param other the counters to add
+	 */
+	public void add(SearchStats other) {
+		settled += other.settled;
+		relaxed += other.relaxed;
+		decreaseKeys += other.decreaseKeys;
+		upMoves += other.upMoves;
+		downMoves += other.downMoves;
+		highWater = Math.max(highWater, other.highWater);
+		bucketScans += other.bucketScans;
+	}
+
+	/**
+	 * Return the number of vertices settled.
+	 *
+	 * @return the settled vertices
+	 */
+	public long getSettled() {
+		return settled;
+	}
+
+	/**
+	 * Return the number of arcs scanned from settled vertices.
+	 *
+	 * @return the relaxed arcs
+	 */
+	public long getRelaxed() {
+		return relaxed;
+	}
+
+	/**
+	 * Return the number of decrease-key operations that lowered a key.
+	 *
+	 * @return the successful decrease-keys
+	 */
+	public long getDecreaseKeys() {
+		return decreaseKeys;
+	}
+
+	/**
+	 * Return the number of entries moved up the heap.
+	 *
+	 * @return the percolate up moves
+	 */
+	public long getUpMoves() {
+		return upMoves;
+	}
+
+	/**
+	 * Return the number of entries moved down the heap.
+	 *
+	 * @return the percolate down moves
+	 */
+	public long getDownMoves() {
+		return downMoves;
+	}
+
+	/**
+	 * Return the most entries the heap or buckets held at once.
+	 *
+	 * @return the high-water mark
+	 */
+	public long getHighWater() {
+		return highWater;
+	}
+
+	/**
+	 * Return the number of buckets visited by a bucket queue.
+	 *
+	 * @return the bucket scans
+	 */
+	public long getBucketScans() {
+		return bucketScans;
+	}
+
+	/**
+	 * Return the counters as one line of text.
+	 *
+	 * @return the counters
+	 */
+	public String toString() {
+		return "settled=" + settled + " relaxed=" + relaxed + " decreaseKeys=" + decreaseKeys
+				+ " upMoves=" + upMoves + " downMoves=" + downMoves + " highWater=" + highWater
+				+ " bucketScans=" + bucketScans;
+	}
+}
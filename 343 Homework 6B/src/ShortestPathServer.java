@@ -0,0 +1,484 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * An HTTP server that answers shortest path queries on one graph held in memory. It
+ * uses the HTTP server built into the JDK and has these endpoints:
+ *
+ * <pre>
+ * GET  /distance?from=A&amp;to=B   {"from":"A","to":"B","found":true,"distance":6}
+ * GET  /path?from=A&amp;to=B       the path in PathFormat.JSON
+ * POST /batch                  one "A B" pair per line in the body; one "A,B,distance"
+ *                              line per pair back, as BatchQueryProcessor writes them
+ * GET  /stats                  the requests served, rejected and in flight
+ * </pre>
+ *
+ * Each request runs on its own virtual thread where the runtime has them, and on a fixed
+ * pool of threads otherwise. A request borrows a search from the pool of a
+ * ShortestPathService for as long as it runs, so concurrent requests never share scratch
+ * state. At most a fixed number of requests are answered at once; a request beyond that
+ * is refused at once with 503 and a Retry-After header rather than queued, so a flood
+ * of requests cannot build an unbounded backlog. Every response has a known length, so
+ * clients can keep their connections alive between requests.
+ *
+ * Small responses are held back by Nagle's algorithm until the client's delayed
+ * acknowledgement arrives, which adds tens of milliseconds to every request. The JDK
+ * server only turns it off when run with -Dsun.net.httpserver.nodelay=true, and that
+ * setting applies to every HttpServer in the process. So it is left to the program:
+ * main sets it, and other programs should pass the flag or call useNoDelay.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class ShortestPathServer {
+
+	/** The number of requests answered at once when no limit is given. */
+	public static final int DEFAULT_MAX_IN_FLIGHT = 256;
+
+	/** The most pairs a batch request may hold. */
+	public static final int MAX_BATCH = 100000;
+
+	/** The character set of requests and responses. */
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/** The graph being searched. */
+	private final IndexedGraph myGraph;
+
+	/** The pool of searches the requests borrow from. */
+	private final ShortestPathService myService;
+
+	/** The id of each vertex name. */
+	private final Map<String, Integer> myIds;
+
+	/** The HTTP server. */
+	private final HttpServer myServer;
+
+	/** The threads the requests run on. */
+	private final ExecutorService myExecutor;
+
+	/** A permit for each request that may be answered at once. */
+	private final Semaphore myPermits;
+
+	/** The most requests answered at once. */
+	private final int myMaxInFlight;
+
+	/** The timed requests answered. */
+	private final LongAdder myServed = new LongAdder();
+
+	/** The requests refused because too many were in flight. */
+	private final LongAdder myRejected = new LongAdder();
+
+	/**
+	 * Initialize a new ShortestPathServer listening on the loopback address. It does not
+	 * answer requests until it is started.
+	 *
+	 * @param G the graph
+	 * @param port the port, or 0 to pick a free one
+	 * @param maxInFlight the most requests answered at once
+	 */
+	public ShortestPathServer(IndexedGraph G, int port, int maxInFlight) throws IOException {
+		this(G, new InetSocketAddress(InetAddress.getLoopbackAddress(), port), maxInFlight);
+	}
+
+	/**
+	 * Initialize a new ShortestPathServer. It does not answer requests until it is
+	 * started.
+	 *
+	 * @param G the graph
+	 * @param address the address to listen on
+	 * @param maxInFlight the most requests answered at once
+	 */
+	public ShortestPathServer(IndexedGraph G, InetSocketAddress address, int maxInFlight)
+			throws IOException {
+		myGraph = G;
+		// without virtual threads, a thread for every permit keeps requests from queueing
+		// in the executor, where the limit cannot see them; one more answers /stats
+		myExecutor = ShortestPathService.newVirtualThreadExecutor(maxInFlight + 1);
+		myService = new ShortestPathService(G, myExecutor);
+		myIds = new HashMap<String, Integer>(2 * G.vertexCount());
+		for (int v = 0; v < G.vertexCount(); v++) {
+			myIds.put(String.valueOf(G.getVertex(v).getName()), v);
+		}
+		myMaxInFlight = maxInFlight;
+		myPermits = new Semaphore(maxInFlight);
+		myServer = HttpServer.create(address, 0);
+		myServer.setExecutor(myExecutor);
+		myServer.createContext("/distance", new Handler("GET", "distance") {
+			Response answer(HttpExchange exchange) throws IOException {
+				return distance(exchange);
+			}
+		});
+		myServer.createContext("/path", new Handler("GET", "path") {
+			Response answer(HttpExchange exchange) throws IOException {
+				return path(exchange);
+			}
+		});
+		myServer.createContext("/batch", new Handler("POST", "batch") {
+			Response answer(HttpExchange exchange) throws IOException {
+				return batch(exchange);
+			}
+		});
+		myServer.createContext("/stats", new Handler("GET", null) {
+			Response answer(HttpExchange exchange) {
+				return stats();
+			}
+		});
+	}
+
+	/**
+	 * Start answering requests.
+	 */
+	public void start() {
+		myServer.start();
+	}
+
+	/**
+	 * Stop answering requests, waiting up to a second for those in flight, and stop the
+	 * threads.
+	 */
+	public void stop() {
+		myServer.stop(1);
+		myService.close();
+	}
+
+	/**
+	 * Return the port the server listens on.
+	 *
+	 * @return the port
+	 */
+	public int getPort() {
+		return myServer.getAddress().getPort();
+	}
+
+	/**
+	 * Return the service whose searches answer the requests, for example to give it a
+	 * ShortestPathTreeCache.
+	 *
+	 * @return the service
+	 */
+	public ShortestPathService getService() {
+		return myService;
+	}
+
+	/**
+	 * Return the number of queries answered, not counting refused requests or /stats.
+	 *
+	 * @return the requests served
+	 */
+	public long getServed() {
+		return myServed.sum();
+	}
+
+	/**
+	 * Return the number of requests refused because too many were in flight.
+	 *
+	 * @return the requests rejected
+	 */
+	public long getRejected() {
+		return myRejected.sum();
+	}
+
+	/**
+	 * A status code, content type and body to send back.
+	 */
+	private static class Response {
+		final int myStatus;
+		final String myType;
+		final String myBody;
+
+		Response(int status, String type, String body) {
+			myStatus = status;
+			myType = type;
+			myBody = body;
+		}
+
+		static Response json(int status, String body) {
+			return new Response(status, "application/json", body);
+		}
+
+		static Response error(int status, String message) {
+			StringBuilder builder = new StringBuilder("{\"error\":");
+			PathFormat.appendJson(builder, message);
+			return json(status, builder.append('}').toString());
+		}
+	}
+
+	/**
+	 * Handles one endpoint: checks the method, applies the in-flight limit, times the
+	 * request and sends the response. Endpoints that are not timed, such as /stats, are
+	 * cheap and answered even when the limit is reached.
+	 */
+	private abstract class Handler implements HttpHandler {
+		private final String myMethod;
+		private final LatencyMetrics myLatency;
+
+		/**
+		 * @param method the HTTP method the endpoint accepts
+		 * @param query the kind of query to time the requests as, or null not to
+		 */
+		Handler(String method, String query) {
+			myMethod = method;
+			myLatency = query == null ? null
+					: LatencyMetrics.forQuery("ShortestPathServer", query);
+		}
+
+		abstract Response answer(HttpExchange exchange) throws IOException;
+
+		public void handle(HttpExchange exchange) throws IOException {
+			long begin = System.nanoTime();
+			Response response;
+			boolean permitted = false;
+			try {
+				if (!exchange.getRequestMethod().equalsIgnoreCase(myMethod)) {
+					exchange.getResponseHeaders().set("Allow", myMethod);
+					response = Response.error(405, "Use " + myMethod);
+				} else if (myLatency != null && !(permitted = myPermits.tryAcquire())) {
+					myRejected.increment();
+					exchange.getResponseHeaders().set("Retry-After", "1");
+					response = Response.error(503, "Too many requests in flight");
+				} else {
+					response = answer(exchange);
+				}
+			} catch (RuntimeException e) {
+				response = Response.error(500, String.valueOf(e));
+			} finally {
+				if (permitted) {
+					myPermits.release();
+				}
+			}
+			try {
+				send(exchange, response);
+			} finally {
+				if (permitted) {
+					myServed.increment();
+					myLatency.record(System.nanoTime() - begin);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Answer a /distance request.
+	 */
+	private Response distance(HttpExchange exchange) throws IOException {
+		Map<String, String> parameters = parameters(exchange);
+		if (parameters == null) {
+			return Response.error(400, "Malformed query string");
+		}
+		String from = parameters.get("from");
+		String to = parameters.get("to");
+		if (from == null || to == null) {
+			return Response.error(400, "Give from and to");
+		}
+		Integer source = myIds.get(from);
+		Integer target = myIds.get(to);
+		if (source == null || target == null) {
+			return Response.error(404, "Unknown vertex " + (source == null ? from : to));
+		}
+		int distance = myService.distance(source, target);
+		StringBuilder builder = new StringBuilder("{\"from\":");
+		PathFormat.appendJson(builder, from);
+		builder.append(",\"to\":");
+		PathFormat.appendJson(builder, to);
+		if (distance == Integer.MAX_VALUE) {
+			builder.append(",\"found\":false}");
+		} else {
+			builder.append(",\"found\":true,\"distance\":").append(distance).append('}');
+		}
+		return Response.json(200, builder.toString());
+	}
+
+	/**
+	 * Answer a /path request.
+	 */
+	private Response path(HttpExchange exchange) throws IOException {
+		Map<String, String> parameters = parameters(exchange);
+		if (parameters == null) {
+			return Response.error(400, "Malformed query string");
+		}
+		String from = parameters.get("from");
+		String to = parameters.get("to");
+		if (from == null || to == null) {
+			return Response.error(400, "Give from and to");
+		}
+		Integer source = myIds.get(from);
+		Integer target = myIds.get(to);
+		if (source == null || target == null) {
+			return Response.error(404, "Unknown vertex " + (source == null ? from : to));
+		}
+		int[] ids = myService.path(source, target);
+		return Response.json(200, PathFormat.JSON.format(ids == null ? null
+				: PathResult.of(myGraph, ids)));
+	}
+
+	/**
+	 * Answer a /batch request.
+	 */
+	private Response batch(HttpExchange exchange) throws IOException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(exchange.getRequestBody(),
+				UTF8));
+		StringBuilder builder = new StringBuilder();
+		int count = 0;
+		for (String line = in.readLine(); line != null; line = in.readLine()) {
+			String[] pair = line.trim().split("[\\s,]+");
+			if (pair.length < 2) {
+				continue;
+			}
+			if (++count > MAX_BATCH) {
+				return Response.error(413, "A batch may hold at most " + MAX_BATCH + " pairs");
+			}
+			Integer source = myIds.get(pair[0]);
+			Integer target = myIds.get(pair[1]);
+			String answer = "unknown";
+			if (source != null && target != null) {
+				int distance = myService.distance(source, target);
+				answer = distance == Integer.MAX_VALUE ? "none" : String.valueOf(distance);
+			}
+			builder.append(pair[0]).append(',').append(pair[1]).append(',').append(answer)
+					.append('\n');
+		}
+		return new Response(200, "text/plain; charset=utf-8", builder.toString());
+	}
+
+	/**
+	 * Answer a /stats request.
+	 */
+	private Response stats() {
+		return Response.json(200, "{\"served\":" + getServed() + ",\"rejected\":"
+				+ getRejected() + ",\"inFlight\":" + (myMaxInFlight - myPermits.availablePermits())
+				+ ",\"maxInFlight\":" + myMaxInFlight + ",\"searches\":"
+				+ myService.getPoolSize() + "}");
+	}
+
+	/**
+	 * Return the decoded query parameters of a request, or null if the query string is
+	 * not validly percent-encoded.
+	 */
+	private static Map<String, String> parameters(HttpExchange exchange)
+			throws UnsupportedEncodingException {
+		Map<String, String> parameters = new HashMap<String, String>();
+		String query = exchange.getRequestURI().getRawQuery();
+		if (query == null) {
+			return parameters;
+		}
+		try {
+			for (String part : query.split("&")) {
+				int equals = part.indexOf('=');
+				if (equals > 0) {
+					parameters.put(URLDecoder.decode(part.substring(0, equals), "UTF-8"),
+							URLDecoder.decode(part.substring(equals + 1), "UTF-8"));
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			// URLDecoder rejects a % that is not followed by two hex digits
+			return null;
+		}
+		return parameters;
+	}
+
+	/**
+	 * Send a response with its length, first reading whatever is left of the request so
+	 * the connection can be kept alive.
+	 */
+	private static void send(HttpExchange exchange, Response response) throws IOException {
+		try {
+			InputStream in = exchange.getRequestBody();
+			byte[] skip = new byte[4096];
+			while (in.read(skip) >= 0) {
+				// discard the rest of the body
+			}
+			byte[] body = response.myBody.getBytes(UTF8);
+			exchange.getResponseHeaders().set("Content-Type", response.myType);
+			exchange.sendResponseHeaders(response.myStatus, body.length);
+			OutputStream out = exchange.getResponseBody();
+			out.write(body);
+			out.flush();
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Turn off Nagle's algorithm for every HttpServer this process creates from now on,
+	 * unless sun.net.httpserver.nodelay was set on the command line. The JDK reads the
+	 * setting when its first server is created, so call this before that.
+	 */
+	public static void useNoDelay() {
+		if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+		}
+	}
+
+	/**
+	 * Code to serve a graph until the process is stopped. Usage:
+	 *
+	 * java ShortestPathServer graph [-port 8080] [-max-in-flight 256] [-cache trees]
+	 *
+	 * With -cache, queries are answered from an LRU cache of that many shortest path
+	 * trees, which suits traffic that keeps asking about the same sources.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.err.println("Usage: ShortestPathServer graph [-port 8080] "
+					+ "[-max-in-flight 256] [-cache trees]");
+			return;
+		}
+		useNoDelay();
+		int port = 8080;
+		int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+		int cache = 0;
+		for (int i = 1; i + 1 < args.length; i += 2) {
+			if (args[i].equals("-port")) {
+				port = Integer.parseInt(args[i + 1]);
+			} else if (args[i].equals("-max-in-flight")) {
+				maxInFlight = Integer.parseInt(args[i + 1]);
+			} else if (args[i].equals("-cache")) {
+				cache = Integer.parseInt(args[i + 1]);
+			} else {
+				System.err.println("Unknown option " + args[i]);
+				return;
+			}
+		}
+		IndexedGraph G = load(args[0]);
+		if (G == null) {
+			System.err.println("Could not load " + args[0]);
+			return;
+		}
+		ShortestPathServer server = new ShortestPathServer(G, port, maxInFlight);
+		if (cache > 0) {
+			server.getService().setTreeCache(new ShortestPathTreeCache(G, cache));
+		}
+		server.start();
+		System.out.println("Serving " + G.vertexCount() + " vertices on http://localhost:"
+				+ server.getPort() + "/");
+	}
+
+	/**
+	 * Load a graph from a snapshot or a text file, or return null if it is malformed.
+	 */
+	static IndexedGraph load(String graph) throws IOException {
+		File file = new File(graph);
+		if (GraphSnapshot.isSnapshot(file)) {
+			return GraphSnapshot.read(file);
+		}
+		return GraphInput.LoadCompactGraph(graph);
+	}
+}
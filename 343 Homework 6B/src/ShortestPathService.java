@@ -0,0 +1,320 @@
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers independent shortest path queries in parallel.
+ *
+ * The graph is never written to after it is built, so every thread can read it at once.
+ * All the scratch state of a query lives in a BidirectionalDijkstra, and the service keeps
+ * a pool of them: a query borrows one, runs, and hands it back. The pool only grows to
+ * the number of queries that have ever run at the same time, so a fixed pool of threads
+ * needs one search per thread while virtual threads share however many are in use.
+ *
+ * A service may also be given a ShortestPathTreeCache, in which case each query is
+ * answered from the cached tree of its source, and a source without one is searched once
+ * and its tree kept for the queries that follow.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class ShortestPathService implements AutoCloseable {
+
+	/** The graph being searched. */
+	private final IndexedGraph myGraph;
+
+	/** The executor that runs the queries. */
+	private final ExecutorService myExecutor;
+
+	/** The searches that are not in use. */
+	private final ConcurrentLinkedQueue<BidirectionalDijkstra> myIdle;
+
+	/** The cache of trees queries are answered from, or null to search every query. */
+	private volatile ShortestPathTreeCache myTrees;
+
+	/**
+	 * Initialize a new ShortestPathService with a thread for every processor.
+	 *
+	 * @param G the graph to search
+	 */
+	public ShortestPathService(IndexedGraph G) {
+		this(G, newFixedExecutor(Runtime.getRuntime().availableProcessors()));
+	}
+
+	/**
+	 * Initialize a new ShortestPathService that runs its queries on the passed executor.
+	 * Closing the service shuts the executor down.
+	 *
+	 * @param G the graph to search
+	 * @param executor the executor to run queries on
+	 */
+	public ShortestPathService(IndexedGraph G, ExecutorService executor) {
+		myGraph = G;
+		myExecutor = executor;
+		myIdle = new ConcurrentLinkedQueue<BidirectionalDijkstra>();
+	}
+
+	/**
+	 * Answer queries from a cache of shortest path trees, or search every query again.
+	 *
+	 * @param cache a cache over the graph of this service, or null to stop using one
+	 */
+	public void setTreeCache(ShortestPathTreeCache cache) {
+		if (cache != null && cache.getGraph() != myGraph) {
+			throw new IllegalArgumentException("The cache is for a different graph");
+		}
+		myTrees = cache;
+	}
+
+	/**
+	 * Return the cache of shortest path trees queries are answered from.
+	 *
+	 * @return the cache, or null if every query is searched
+	 */
+	public ShortestPathTreeCache getTreeCache() {
+		return myTrees;
+	}
+
+	/**
+	 * Return an executor with the passed number of threads.
+	 *
+	 * @param threads the number of threads
+	 * @return the executor
+	 */
+	public static ExecutorService newFixedExecutor(int threads) {
+		return Executors.newFixedThreadPool(threads);
+	}
+
+	/**
+	 * Return an executor that starts a virtual thread for every query. On a Java runtime
+	 * without virtual threads, return a fixed executor with a thread for every processor.
+	 *
+	 * @return the executor
+	 */
+	public static ExecutorService newVirtualThreadExecutor() {
+		return newVirtualThreadExecutor(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Return an executor that starts a virtual thread for every task. On a Java runtime
+	 * without virtual threads, return a fixed executor with the passed number of threads.
+	 *
+	 * @param fallbackThreads the number of threads to use without virtual threads
+	 * @return the executor
+	 */
+	public static ExecutorService newVirtualThreadExecutor(int fallbackThreads) {
+		try {
+			// looked up by name so the code still compiles and runs on older runtimes
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return newFixedExecutor(fallbackThreads);
+		}
+	}
+
+	/**
+	 * Return the graph being searched.
+	 *
+	 * @return the graph
+	 */
+	public IndexedGraph getGraph() {
+		return myGraph;
+	}
+
+	/**
+	 * Find the length of a shortest path on the calling thread.
+	 *
+	 * @param source the id of the starting vertex
+	 * @param target the id of the ending vertex
+	 * @return the length, or Integer.MAX_VALUE if there is no path
+	 */
+	public int distance(int source, int target) {
+		ShortestPathTreeCache trees = myTrees;
+		if (trees != null) {
+			return trees.distance(source, target);
+		}
+		BidirectionalDijkstra search = borrow();
+		try {
+			return search.search(source, target);
+		} finally {
+			myIdle.offer(search);
+		}
+	}
+
+	/**
+	 * Find a shortest path on the calling thread.
+	 *
+	 * @param source the id of the starting vertex
+	 * @param target the id of the ending vertex
+	 * @return the vertex ids along the path, or null if there is none
+	 */
+	public int[] path(int source, int target) {
+		ShortestPathTreeCache trees = myTrees;
+		if (trees != null) {
+			return trees.path(source, target);
+		}
+		BidirectionalDijkstra search = borrow();
+		try {
+			search.search(source, target);
+			return search.getPath();
+		} finally {
+			myIdle.offer(search);
+		}
+	}
+
+	/**
+	 * Queue a query for the length of a shortest path.
+	 *
+	 * @param source the starting vertex
+	 * @param target the ending vertex
+	 * @return the length, or Integer.MAX_VALUE if there is no path
+	 */
+	public Future<Integer> submitDistance(Vertex source, Vertex target) {
+		final int s = idOf(source);
+		final int t = idOf(target);
+		return myExecutor.submit(new Callable<Integer>() {
+			public Integer call() {
+				return distance(s, t);
+			}
+		});
+	}
+
+	/**
+	 * Queue a query for a shortest path.
+	 *
+	 * @param source the starting vertex
+	 * @param target the ending vertex
+	 * @return the vertex ids along the path, or null if there is none
+	 */
+	public Future<int[]> submitPath(Vertex source, Vertex target) {
+		final int s = idOf(source);
+		final int t = idOf(target);
+		return myExecutor.submit(new Callable<int[]>() {
+			public int[] call() {
+				return path(s, t);
+			}
+		});
+	}
+
+	/**
+	 * Find the lengths of many shortest paths in parallel and wait for all of them.
+	 *
+	 * @param sources the id of the starting vertex of each query
+	 * @param targets the id of the ending vertex of each query
+	 * @return the length of each path, in the order of the queries
+	 */
+	public int[] distances(final int[] sources, final int[] targets)
+			throws InterruptedException, ExecutionException {
+		if (sources.length != targets.length) {
+			throw new IllegalArgumentException("Expected as many targets as sources");
+		}
+		List<Future<Integer>> futures = new ArrayList<Future<Integer>>(sources.length);
+		for (int i = 0; i < sources.length; i++) {
+			final int s = sources[i];
+			final int t = targets[i];
+			futures.add(myExecutor.submit(new Callable<Integer>() {
+				public Integer call() {
+					return distance(s, t);
+				}
+			}));
+		}
+		int[] result = new int[sources.length];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = futures.get(i).get();
+		}
+		return result;
+	}
+
+	/**
+	 * Return the number of idle searches in the pool. When no query is running this is
+	 * the number of searches the service has created.
+	 *
+	 * @return the number of idle searches
+	 */
+	public int getPoolSize() {
+		return myIdle.size();
+	}
+
+	/**
+	 * Shut down the executor after the queued queries have finished.
+	 */
+	public void close() {
+		myExecutor.shutdown();
+	}
+
+	/**
+	 * Take an idle search from the pool, or make one if none is idle.
+	 */
+	private BidirectionalDijkstra borrow() {
+		BidirectionalDijkstra search = myIdle.poll();
+		return search != null ? search : new BidirectionalDijkstra(myGraph);
+	}
+
+	/**
+	 * Return the id of a vertex, checking that it belongs to the graph.
+	 */
+	private int idOf(Vertex v) {
+		int id = myGraph.getId(v);
+		if (id < 0) {
+			throw new IllegalArgumentException("Vertex " + v + " is not in the graph");
+		}
+		return id;
+	}
+
+	/**
+	 * Code to measure query throughput with different numbers of threads.
+	 */
+	public static void main(String[] args) throws Exception {
+		CompactGraph G = GraphInput.LoadCompactGraph(
+				args.length > 0 ? args[0] : "./testGraphs/path2.txt");
+		int queries = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+		Random random = new Random(343);
+		int[] sources = new int[queries];
+		int[] targets = new int[queries];
+		for (int i = 0; i < queries; i++) {
+			sources[i] = random.nextInt(G.vertexCount());
+			targets[i] = random.nextInt(G.vertexCount());
+		}
+		int[] expected = new int[queries];
+		BidirectionalDijkstra single = new BidirectionalDijkstra(G);
+		for (int i = 0; i < queries; i++) {
+			expected[i] = single.search(sources[i], targets[i]);
+		}
+		int processors = Runtime.getRuntime().availableProcessors();
+		for (int threads = 1; threads <= processors; threads *= 2) {
+			time(new ShortestPathService(G, newFixedExecutor(threads)), threads + " threads",
+					sources, targets, expected);
+		}
+		time(new ShortestPathService(G, newVirtualThreadExecutor()), "virtual threads",
+				sources, targets, expected);
+	}
+
+	/**
+	 * Run the queries twice on a service, check the answers, and print the throughput of
+	 * the second run.
+	 */
+	private static void time(ShortestPathService service, String label, int[] sources,
+			int[] targets, int[] expected) throws Exception {
+		service.distances(sources, targets);
+		long begin = System.nanoTime();
+		int[] result = service.distances(sources, targets);
+		long elapsed = System.nanoTime() - begin;
+		service.close();
+		service.myExecutor.awaitTermination(1, TimeUnit.MINUTES);
+		for (int i = 0; i < result.length; i++) {
+			if (result[i] != expected[i]) {
+				System.out.println("Mismatch from " + sources[i] + " to " + targets[i]);
+			}
+		}
+		System.out.println(label + ": " + (long) (sources.length * 1e9 / elapsed)
+				+ " queries/s using " + service.getPoolSize() + " searches");
+	}
+}
@@ -0,0 +1,129 @@
+/**
+ * The distances and predecessors of every vertex from one source, copied out of a finished
+ * search so they can be kept after the search state is reused. A tree never changes, so
+ * any number of threads may read it at once.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class ShortestPathTree {
+
+	/** The predecessor of the source and of unreached vertices. */
+	public static final int NONE = QueryContext.NONE;
+
+	/** The id of the source. */
+	private final int mySource;
+
+	/** The version of the graph the tree was computed on. */
+	private final long myVersion;
+
+	/** The distance of each vertex from the source. */
+	private final int[] myDistances;
+
+	/** The predecessor of each vertex. */
+	private final int[] myPreds;
+
+	/**
+	 * Initialize a new ShortestPathTree that takes ownership of the passed arrays.
+	 *
+	 * @param source the id of the source
+	 * @param version the version of the graph the arrays were computed on
+	 * @param distances the distance of each vertex, Integer.MAX_VALUE if unreached
+	 * @param preds the predecessor of each vertex, NONE for the source and unreached ones
+	 */
+	public ShortestPathTree(int source, long version, int[] distances, int[] preds) {
+		mySource = source;
+		myVersion = version;
+		myDistances = distances;
+		myPreds = preds;
+	}
+
+	/**
+	 * Search the whole graph from source and return the resulting tree.
+	 *
+	 * @param G the graph to search
+	 * @param context the context to search in; its previous contents are discarded
+	 * @param source the id of the source
+	 * @return the tree
+	 */
+	public static ShortestPathTree compute(IndexedGraph G, QueryContext context, int source) {
+		long version = G.getVersion();
+		MinHeapImplementation.search(G, context, source, -1);
+		int n = G.vertexCount();
+		int[] distances = new int[n];
+		int[] preds = new int[n];
+		for (int v = 0; v < n; v++) {
+			distances[v] = context.distance(v);
+			preds[v] = context.pred(v);
+		}
+		return new ShortestPathTree(source, version, distances, preds);
+	}
+
+	/**
+	 * Return the id of the source.
+	 *
+	 * @return the source
+	 */
+	public int getSource() {
+		return mySource;
+	}
+
+	/**
+	 * Return the version of the graph this tree was computed on.
+	 *
+	 * @return the graph version
+	 */
+	public long getVersion() {
+		return myVersion;
+	}
+
+	/**
+	 * Return the distance of a vertex from the source.
+	 *
+	 * @param v a vertex id
+	 * @return the distance, or Integer.MAX_VALUE if v cannot be reached
+	 */
+	public int distance(int v) {
+		return myDistances[v];
+	}
+
+	/**
+	 * Return the predecessor of a vertex.
+	 *
+	 * @param v a vertex id
+	 * @return the predecessor, or NONE if v is the source or cannot be reached
+	 */
+	public int pred(int v) {
+		return myPreds[v];
+	}
+
+	/**
+	 * Return the vertex ids on the path to v, starting at the source.
+	 *
+	 * @param v a vertex id
+	 * @return the path, or null if v cannot be reached
+	 */
+	public int[] path(int v) {
+		if (myDistances[v] == Integer.MAX_VALUE) {
+			return null;
+		}
+		int hops = 0;
+		for (int u = v; myPreds[u] != NONE; u = myPreds[u]) {
+			hops++;
+		}
+		int[] path = new int[hops + 1];
+		for (int u = v; hops >= 0; u = myPreds[u]) {
+			path[hops--] = u;
+		}
+		return path;
+	}
+
+	/**
+	 * Return roughly how many bytes of memory this tree holds.
+	 *
+	 * @return the size of the arrays in bytes
+	 */
+	public long getByteSize() {
+		return 8L * myDistances.length + 64;
+	}
+}
@@ -0,0 +1,318 @@
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A bounded cache of shortest path trees keyed by source, so queries from a source that was
+ * searched recently are answered without any search.
+ *
+ * The trees are kept in least recently used order and the oldest ones are dropped when the
+ * cache holds more trees or more bytes than its limits allow. Every tree remembers the
+ * version of the graph it was computed on, and the whole cache is emptied the first time it
+ * is used after the version changes, so a stale tree is never returned. The cache may be
+ * shared by many threads; a tree that is missing is computed outside the lock, so two
+ * threads missing the same source at once may both search.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class ShortestPathTreeCache {
+
+	/** The graph the trees are computed on. */
+	private final IndexedGraph myGraph;
+
+	/** The cached trees by source id, least recently used first. */
+	private final LinkedHashMap<Integer, ShortestPathTree> myTrees;
+
+	/** The most trees kept. */
+	private final int myMaxTrees;
+
+	/** The most bytes of trees kept. */
+	private final long myMaxBytes;
+
+	/** The bytes held by the cached trees. */
+	private long myBytes;
+
+	/** The graph version of the cached trees. */
+	private long myVersion;
+
+	/** The number of lookups answered from the cache. */
+	private long myHits;
+
+	/** The number of lookups that needed a search. */
+	private long myMisses;
+
+	/** The number of trees dropped to stay within the limits. */
+	private long myEvictions;
+
+	/** The number of times the cache was emptied because the graph changed. */
+	private long myInvalidations;
+
+	/** Search contexts that are not in use. */
+	private final ConcurrentLinkedQueue<QueryContext> myIdle;
+
+	/**
+	 * Initialize a new ShortestPathTreeCache.
+	 *
+	 * @param G the graph to search
+	 * @param maxTrees the most trees to keep
+	 * @param maxBytes the most bytes of trees to keep
+	 */
+	public ShortestPathTreeCache(IndexedGraph G, int maxTrees, long maxBytes) {
+		if (maxTrees < 1 || maxBytes < 1) {
+			throw new IllegalArgumentException("The cache limits must be positive");
+		}
+		myGraph = G;
+		myMaxTrees = maxTrees;
+		myMaxBytes = maxBytes;
+		myTrees = new LinkedHashMap<Integer, ShortestPathTree>(16, 0.75f, true);
+		myVersion = G.getVersion();
+		myIdle = new ConcurrentLinkedQueue<QueryContext>();
+	}
+
+	/**
+	 * Initialize a new ShortestPathTreeCache limited only by the number of trees.
+	 *
+	 * @param G the graph to search
+	 * @param maxTrees the most trees to keep
+	 */
+	public ShortestPathTreeCache(IndexedGraph G, int maxTrees) {
+		this(G, maxTrees, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Return the shortest path tree of a source, searching the graph if it is not cached.
+	 *
+	 * @param source the id of the source
+	 * @return the tree
+	 */
+	public ShortestPathTree get(int source) {
+		ShortestPathTree tree = peek(source);
+		if (tree != null) {
+			return tree;
+		}
+		QueryContext context = myIdle.poll();
+		if (context == null) {
+			context = new QueryContext(myGraph.vertexCount());
+		}
+		try {
+			tree = ShortestPathTree.compute(myGraph, context, source);
+		} finally {
+			myIdle.offer(context);
+		}
+		put(tree);
+		return tree;
+	}
+
+	/**
+	 * Return the cached tree of a source and count the lookup.
+	 *
+	 * @param source the id of the source
+	 * @return the tree, or null if it is not cached
+	 */
+	private synchronized ShortestPathTree peek(int source) {
+		checkVersion();
+		ShortestPathTree tree = myTrees.get(source);
+		if (tree != null) {
+			myHits++;
+		} else {
+			myMisses++;
+		}
+		return tree;
+	}
+
+	/**
+	 * Add a tree unless it is stale or too big, then drop the least recently used trees
+	 * until the cache is within its limits.
+	 *
+	 * @param tree a newly computed tree
+	 */
+	private synchronized void put(ShortestPathTree tree) {
+		checkVersion();
+		if (tree.getVersion() != myVersion || tree.getByteSize() > myMaxBytes) {
+			return;
+		}
+		ShortestPathTree old = myTrees.put(tree.getSource(), tree);
+		if (old != null) {
+			myBytes -= old.getByteSize();
+		}
+		myBytes += tree.getByteSize();
+		Iterator<Map.Entry<Integer, ShortestPathTree>> iter = myTrees.entrySet().iterator();
+		while (myTrees.size() > myMaxTrees || myBytes > myMaxBytes) {
+			myBytes -= iter.next().getValue().getByteSize();
+			iter.remove();
+			myEvictions++;
+		}
+	}
+
+	/**
+	 * Empty the cache if the graph has changed since the trees were computed.
+	 */
+	private void checkVersion() {
+		long version = myGraph.getVersion();
+		if (version != myVersion) {
+			myTrees.clear();
+			myBytes = 0;
+			myVersion = version;
+			myInvalidations++;
+		}
+	}
+
+	/**
+	 * Return the length of a shortest path.
+	 *
+	 * @param source the id of the starting vertex
+	 * @param target the id of the ending vertex
+	 * @return the length, or Integer.MAX_VALUE if there is no path
+	 */
+	public int distance(int source, int target) {
+		return get(source).distance(target);
+	}
+
+	/**
+	 * Return a shortest path.
+	 *
+	 * @param source the id of the starting vertex
+	 * @param target the id of the ending vertex
+	 * @return the vertex ids along the path, or null if there is none
+	 */
+	public int[] path(int source, int target) {
+		return get(source).path(target);
+	}
+
+	/**
+	 * Drop every cached tree. The counters are kept.
+	 */
+	public synchronized void clear() {
+		myTrees.clear();
+		myBytes = 0;
+	}
+
+	/**
+	 * Return the graph the trees are computed on.
+	 *
+	 * @return the graph
+	 */
+	public IndexedGraph getGraph() {
+		return myGraph;
+	}
+
+	/**
+	 * Return the number of cached trees.
+	 *
+	 * @return the number of trees
+	 */
+	public synchronized int size() {
+		return myTrees.size();
+	}
+
+	/**
+	 * Return the bytes held by the cached trees.
+	 *
+	 * @return the size in bytes
+	 */
+	public synchronized long getByteSize() {
+		return myBytes;
+	}
+
+	/**
+	 * Return the number of lookups answered from the cache.
+	 *
+	 * @return the hit count
+	 */
+	public synchronized long getHitCount() {
+		return myHits;
+	}
+
+	/**
+	 * Return the number of lookups that needed a search.
+	 *
+	 * @return the miss count
+	 */
+	public synchronized long getMissCount() {
+		return myMisses;
+	}
+
+	/**
+	 * Return the fraction of lookups answered from the cache.
+	 *
+	 * @return the hit rate, or 0 if there have been no lookups
+	 */
+	public synchronized double getHitRate() {
+		long lookups = myHits + myMisses;
+		return lookups == 0 ? 0 : (double) myHits / lookups;
+	}
+
+	/**
+	 * Return the number of trees dropped to stay within the limits.
+	 *
+	 * @return the eviction count
+	 */
+	public synchronized long getEvictionCount() {
+		return myEvictions;
+	}
+
+	/**
+	 * Return the number of times the cache was emptied because the graph changed.
+	 *
+	 * @return the invalidation count
+	 */
+	public synchronized long getInvalidationCount() {
+		return myInvalidations;
+	}
+
+	/**
+	 * Return a summary of the counters.
+	 *
+	 * @return the counters as text
+	 */
+	public synchronized String toString() {
+		return "trees=" + myTrees.size() + " bytes=" + myBytes + " hits=" + myHits
+				+ " misses=" + myMisses + " evictions=" + myEvictions
+				+ " invalidations=" + myInvalidations;
+	}
+
+	/**
+	 * Code to replay skewed query traffic through the cache and compare it with searching
+	 * every query.
+	 */
+	public static void main(String[] args) throws IOException {
+		String file = args.length > 0 ? args[0] : "./testGraphs/path2.txt";
+		int queries = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+		int capacity = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+		DynamicGraph G = new DynamicGraph(ParallelGraphLoader.loadCompactGraph(file));
+		int n = G.vertexCount();
+		ShortestPathTreeCache cache = new ShortestPathTreeCache(G, capacity);
+		QueryContext context = new QueryContext(n);
+		Random random = new Random(42);
+		int hubs = Math.max(1, Math.min(n, capacity / 2));
+		long cached = 0;
+		long searched = 0;
+		int mismatches = 0;
+		for (int i = 0; i < queries; i++) {
+			// most queries start at a few hubs, the rest anywhere
+			int source = random.nextInt(10) < 8 ? random.nextInt(hubs) : random.nextInt(n);
+			int target = random.nextInt(n);
+			if (i == queries / 2 && G.arcCount() > 0) {
+				G.setWeight(0, G.weight(0) + 1);
+			}
+			long begin = System.nanoTime();
+			int distance = cache.distance(source, target);
+			cached += System.nanoTime() - begin;
+			begin = System.nanoTime();
+			MinHeapImplementation.search(G, context, source, target);
+			searched += System.nanoTime() - begin;
+			if (distance != context.distance(target)) {
+				mismatches++;
+			}
+		}
+		System.out.println(queries + " queries, " + mismatches + " mismatches");
+		System.out.println("Cache: " + cache + ", hit rate " + Math.round(100 * cache.getHitRate())
+				+ "%");
+		System.out.println("Cached queries took " + cached / 1000000 + " ms, searches "
+				+ searched / 1000000 + " ms");
+	}
+}
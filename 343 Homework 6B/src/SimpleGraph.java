@@ -89,6 +89,35 @@ public class SimpleGraph {
         return e;
     }
 
+    /**
+     * Remove an edge from this graph.
+     * @param e  an edge of this graph
+     * @returns  true if e was in this graph
+     */
+    public boolean removeEdge(Edge e) {
+        if (!edgeList.remove(e))
+            return false;
+        e.getFirstEndpoint().incidentEdgeList.remove(e);
+        e.getSecondEndpoint().incidentEdgeList.remove(e);
+        return true;
+    }
+
+    /**
+     * Return an edge joining two vertices.
+     * @param v  a vertex
+     * @param w  another vertex
+     * @returns  an edge between v and w, or null if there is none
+     */
+    public Edge findEdge(Vertex v, Vertex w) {
+        Iterator<?> i = incidentEdges(v);
+        while (i.hasNext()) {
+            Edge e = (Edge) i.next();
+            if (opposite(v, e) == w)
+                return e;
+        }
+        return null;
+    }
+
     /**
      * Given a vertex and an edge, if the vertex is one of the endpoints
      * of the edge, return the other endpoint of the edge.  Otherwise,
@@ -0,0 +1,133 @@
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Random;
+
+/**
+ * An Algorithm that passes every call to another and records how long each run takes in
+ * the LatencyMetrics of that engine, split into full runs and point-to-point queries.
+ * Timing a run costs two reads of System.nanoTime and one histogram update, little
+ * enough to leave on all the time.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class TimedAlgorithm implements Algorithm {
+
+	/** The kind of query that settles every vertex from a source. */
+	public static final String FULL = "full";
+
+	/** The kind of query that finds one path. */
+	public static final String POINT = "point";
+
+	/** The engine being timed. */
+	private final Algorithm myEngine;
+
+	/** The latencies of full runs. */
+	private final LatencyMetrics myFull;
+
+	/** The latencies of point-to-point queries. */
+	private final LatencyMetrics myPoint;
+
+	/**
+	 * Initialize a new TimedAlgorithm that files its latencies under the class name of
+	 * the engine.
+	 *
+	 * @param engine the engine to time
+	 */
+	public TimedAlgorithm(Algorithm engine) {
+		this(engine, engine.getClass().getSimpleName());
+	}
+
+	/**
+	 * Initialize a new TimedAlgorithm.
+	 *
+	 * @param engine the engine to time
+	 * @param name the name to file its latencies under
+	 */
+	public TimedAlgorithm(Algorithm engine, String name) {
+		myEngine = engine;
+		myFull = LatencyMetrics.forQuery(name, FULL);
+		myPoint = LatencyMetrics.forQuery(name, POINT);
+	}
+
+	/**
+	 * Return the engine being timed.
+	 *
+	 * @return the engine
+	 */
+	public Algorithm getEngine() {
+		return myEngine;
+	}
+
+	/**
+	 * Runs the engine from the passed vertex and records how long it took.
+	 *
+	 * @param v the starting vertex
+	 */
+	public void runAlgorithm(Vertex v) {
+		long begin = System.nanoTime();
+		try {
+			myEngine.runAlgorithm(v);
+		} finally {
+			myFull.record(System.nanoTime() - begin);
+		}
+	}
+
+	/**
+	 * Runs a point-to-point query on the engine and records how long it took.
+	 *
+	 * @param source the starting vertex
+	 * @param target the ending vertex
+	 */
+	public void runAlgorithm(Vertex source, Vertex target) {
+		long begin = System.nanoTime();
+		try {
+			myEngine.runAlgorithm(source, target);
+		} finally {
+			myPoint.record(System.nanoTime() - begin);
+		}
+	}
+
+	public int getDistance(Vertex v) {
+		return myEngine.getDistance(v);
+	}
+
+	public String getPath(Vertex v, Vertex u) {
+		return myEngine.getPath(v, u);
+	}
+
+	public PathResult getPathResult(Vertex first, Vertex last) {
+		return myEngine.getPathResult(first, last);
+	}
+
+	/**
+	 * Code to time random queries on a generated grid with the heap and bucket engines
+	 * and print the report.
+	 */
+	public static void main(String[] args) throws IOException {
+		int side = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		CompactGraph G = GraphGenerator.grid(side, side, 100, GraphGenerator.Weights.UNIFORM, 343)
+				.toCompactGraph();
+		Algorithm[] engines = {new TimedAlgorithm(new MinHeapImplementation(G)),
+				new TimedAlgorithm(ArrayImplementation.forGraph(G))};
+		Random random = new Random(343);
+		for (int i = 0; i < 2000; i++) {
+			Vertex source = G.getVertex(random.nextInt(G.vertexCount()));
+			Vertex target = G.getVertex(random.nextInt(G.vertexCount()));
+			for (Algorithm engine : engines) {
+				if (i % 10 == 0) {
+					engine.runAlgorithm(source);
+				}
+				engine.runAlgorithm(source, target);
+			}
+		}
+		for (LatencyMetrics metrics : LatencyMetrics.getAll()) {
+			System.out.println(metrics);
+		}
+		Writer out = new OutputStreamWriter(System.out);
+		out.write(LatencyMetrics.REPORT_HEADER + System.lineSeparator());
+		LatencyMetrics.writeReport(out, true);
+		System.out.println("Count after reset: " + LatencyMetrics.getAll().get(0).getCount());
+	}
+}
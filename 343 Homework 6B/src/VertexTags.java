@@ -0,0 +1,174 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Labels such as "depot" or "hospital" attached to the vertices of a graph, with one
+ * BitSet per tag marking the ids of the vertices that carry it.
+ *
+ * Tags are read from a sidecar file next to the graph file. Each line holds a vertex name
+ * followed by one or more tags, separated by white space; blank lines and lines starting
+ * with # are skipped.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class VertexTags {
+
+	/** The graph the tags belong to. */
+	private final IndexedGraph myGraph;
+
+	/** The vertices carrying each tag, by tag name. */
+	private final Map<String, BitSet> myTags;
+
+	/**
+	 * Initialize a new VertexTags with no tags.
+	 *
+	 * @param G the graph the tags belong to
+	 */
+	public VertexTags(IndexedGraph G) {
+		myGraph = G;
+		myTags = new TreeMap<String, BitSet>();
+	}
+
+	/**
+	 * Load the tags of a graph from a sidecar file.
+	 *
+	 * @param G the graph the tags belong to
+	 * @param file the name of the sidecar file
+	 * @return the tags
+	 */
+	public static VertexTags load(IndexedGraph G, String file) throws IOException {
+		Map<String, Integer> ids = new HashMap<String, Integer>(2 * G.vertexCount());
+		for (int v = 0; v < G.vertexCount(); v++) {
+			ids.put(String.valueOf(G.getVertex(v).getName()), v);
+		}
+		VertexTags tags = new VertexTags(G);
+		BufferedReader in = new BufferedReader(new FileReader(file));
+		try {
+			int lineNumber = 0;
+			for (String line = in.readLine(); line != null; line = in.readLine()) {
+				lineNumber++;
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				String[] fields = line.split("\\s+");
+				Integer id = ids.get(fields[0]);
+				if (id == null || fields.length < 2) {
+					throw new IOException(file + " line " + lineNumber + ": expected a vertex name "
+							+ "of the graph followed by tags");
+				}
+				for (int i = 1; i < fields.length; i++) {
+					tags.add(fields[i], id);
+				}
+			}
+		} finally {
+			in.close();
+		}
+		return tags;
+	}
+
+	/**
+	 * Attach a tag to a vertex.
+	 *
+	 * @param tag the tag
+	 * @param v a vertex id
+	 */
+	public void add(String tag, int v) {
+		BitSet vertices = myTags.get(tag);
+		if (vertices == null) {
+			vertices = new BitSet(myGraph.vertexCount());
+			myTags.put(tag, vertices);
+		}
+		vertices.set(v);
+	}
+
+	/**
+	 * Determine whether a vertex carries a tag.
+	 *
+	 * @param tag the tag
+	 * @param v a vertex id
+	 * @return true if v carries tag
+	 */
+	public boolean has(String tag, int v) {
+		BitSet vertices = myTags.get(tag);
+		return vertices != null && vertices.get(v);
+	}
+
+	/**
+	 * Return the vertices carrying a tag. The set is shared and must not be changed.
+	 *
+	 * @param tag the tag
+	 * @return the ids of the tagged vertices, empty if no vertex carries tag
+	 */
+	public BitSet getVertices(String tag) {
+		BitSet vertices = myTags.get(tag);
+		return vertices != null ? vertices : new BitSet(0);
+	}
+
+	/**
+	 * Return the number of vertices carrying a tag.
+	 *
+	 * @param tag the tag
+	 * @return the number of tagged vertices
+	 */
+	public int count(String tag) {
+		return getVertices(tag).cardinality();
+	}
+
+	/**
+	 * Return every tag, in alphabetical order.
+	 *
+	 * @return the tags
+	 */
+	public Set<String> getTags() {
+		return myTags.keySet();
+	}
+
+	/**
+	 * Return the graph the tags belong to.
+	 *
+	 * @return the graph
+	 */
+	public IndexedGraph getGraph() {
+		return myGraph;
+	}
+
+	/**
+	 * Return the k vertices carrying a tag that are nearest a source, nearest first, or
+	 * fewer if fewer can be reached. The search stops as soon as the k-th one is settled.
+	 *
+	 * @param search the search to run, over the graph of these tags
+	 * @param tag the tag
+	 * @param source the id of the starting vertex
+	 * @param k the number of vertices to find
+	 * @return the nodes of the tagged vertices, holding their distances and paths
+	 */
+	public List<DijkstraHeapNode> nearest(DijkstraIterator search, String tag, int source, int k) {
+		BitSet tagged = getVertices(tag);
+		int remaining = Math.min(k, tagged.cardinality());
+		List<DijkstraHeapNode> result = new ArrayList<DijkstraHeapNode>(remaining);
+		if (remaining == 0) {
+			return result;
+		}
+		search.start(source);
+		while (search.hasNext()) {
+			DijkstraHeapNode node = search.next();
+			if (tagged.get(node.getVertexId())) {
+				result.add(node);
+				if (--remaining == 0) {
+					break;
+				}
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,211 @@
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The nearest facility of every vertex of a graph, found by one Dijkstra run that starts
+ * from all the facilities at once. Each vertex is claimed by the facility whose search
+ * settles it first, which splits the graph into one region per facility.
+ *
+ * Owners are stored as facility numbers, the position of the facility in id order, in a
+ * char per vertex when there are fewer than 65535 facilities and an int per vertex
+ * otherwise. With the distances this costs 6 bytes per vertex in the common case.
+ *
+ * @author Jonah Howard
+ * @author Jacob Tillett
+ */
+public class VoronoiPartition {
+
+	/** The owner of a vertex no facility can reach. */
+	public static final int NONE = -1;
+
+	/** The facility number stored for unreached vertices in the narrow form. */
+	private static final char NO_OWNER = Character.MAX_VALUE;
+
+	/** The id of each facility, in increasing order. */
+	private final int[] myFacilities;
+
+	/** The facility number of the owner of each vertex, or null if myWideOwners is used. */
+	private final char[] myOwners;
+
+	/** The facility number of the owner of each vertex when there are many facilities. */
+	private final int[] myWideOwners;
+
+	/** The distance from each vertex to its nearest facility. */
+	private final int[] myDistances;
+
+	/**
+	 * Compute the partition of a graph among a set of facilities.
+	 *
+	 * @param G the graph
+	 * @param facilities the ids of the facility vertices
+	 */
+	public VoronoiPartition(IndexedGraph G, BitSet facilities) {
+		int n = G.vertexCount();
+		myFacilities = new int[facilities.cardinality()];
+		boolean narrow = myFacilities.length < NO_OWNER;
+		myOwners = narrow ? new char[n] : null;
+		myWideOwners = narrow ? null : new int[n];
+		myDistances = new int[n];
+		QueryContext context = new QueryContext(n);
+		context.begin();
+		int count = 0;
+		for (int f = facilities.nextSetBit(0); f >= 0 && f < n; f = facilities.nextSetBit(f + 1)) {
+			myFacilities[count++] = f;
+			context.relax(f, 0, QueryContext.NONE);
+		}
+		int[] rank = new int[n];
+		for (int i = 0; i < count; i++) {
+			rank[myFacilities[i]] = i;
+		}
+		IndexedMinHeap heap = context.getHeap();
+		try {
+			while (!heap.isEmpty()) {
+				int u = context.settleNext();
+				int pred = context.pred(u);
+				// a vertex belongs to the facility its predecessor, settled earlier, belongs to
+				setOwner(u, pred == QueryContext.NONE ? rank[u] : owner(pred));
+				int du = context.distance(u);
+				for (int e = G.firstEdge(u); e < G.endEdge(u); e++) {
+					int v = G.target(e);
+					int distance = QueryContext.extend(du, G.weight(e));
+					if (distance < context.distance(v)) {
+						context.relax(v, distance, u);
+					}
+				}
+			}
+		} catch (EmptyHeapException e) {
+			e.printStackTrace();
+		}
+		for (int v = 0; v < n; v++) {
+			myDistances[v] = context.distance(v);
+			if (!context.isReached(v)) {
+				setOwner(v, NONE);
+			}
+		}
+	}
+
+	/**
+	 * Store the facility number of the owner of a vertex.
+	 */
+	private void setOwner(int v, int facility) {
+		if (myOwners != null) {
+			myOwners[v] = facility == NONE ? NO_OWNER : (char) facility;
+		} else {
+			myWideOwners[v] = facility;
+		}
+	}
+
+	/**
+	 * Return the facility number of the owner of a vertex.
+	 */
+	private int owner(int v) {
+		if (myOwners != null) {
+			return myOwners[v] == NO_OWNER ? NONE : myOwners[v];
+		}
+		return myWideOwners[v];
+	}
+
+	/**
+	 * Return the id of the facility nearest a vertex.
+	 *
+	 * @param v a vertex id
+	 * @return the id of the nearest facility, or NONE if no facility can be reached
+	 */
+	public int nearestFacility(int v) {
+		int facility = owner(v);
+		return facility == NONE ? NONE : myFacilities[facility];
+	}
+
+	/**
+	 * Return the distance from a vertex to its nearest facility.
+	 *
+	 * @param v a vertex id
+	 * @return the distance, or Integer.MAX_VALUE if no facility can be reached
+	 */
+	public int distance(int v) {
+		return myDistances[v];
+	}
+
+	/**
+	 * Return the ids of the facilities, in increasing order. The array is shared and must
+	 * not be changed.
+	 *
+	 * @return the facility ids
+	 */
+	public int[] getFacilities() {
+		return myFacilities;
+	}
+
+	/**
+	 * Return the number of vertices each facility owns.
+	 *
+	 * @return the region size of each facility, in the order of getFacilities
+	 */
+	public int[] regionSizes() {
+		int[] sizes = new int[myFacilities.length];
+		for (int v = 0; v < myDistances.length; v++) {
+			int facility = owner(v);
+			if (facility != NONE) {
+				sizes[facility]++;
+			}
+		}
+		return sizes;
+	}
+
+	/**
+	 * Code to tag random facilities, answer nearest facility queries and check the
+	 * partition against single-source searches.
+	 */
+	public static void main(String[] args) throws IOException {
+		CompactGraph G = ParallelGraphLoader.loadCompactGraph(
+				args.length > 0 ? args[0] : "./testGraphs/path2.txt");
+		int n = G.vertexCount();
+		VertexTags tags = args.length > 1 ? VertexTags.load(G, args[1]) : new VertexTags(G);
+		String tag = args.length > 2 ? args[2] : "depot";
+		if (tags.count(tag) == 0) {
+			Random random = new Random(343);
+			for (int i = 0; i < Math.max(1, n / 100); i++) {
+				tags.add(tag, random.nextInt(n));
+			}
+		}
+		BitSet facilities = tags.getVertices(tag);
+		long begin = System.nanoTime();
+		VoronoiPartition partition = new VoronoiPartition(G, facilities);
+		System.out.println("Partition among " + facilities.cardinality() + " " + tag + " took "
+				+ (System.nanoTime() - begin) / 1000000 + " ms");
+
+		DijkstraIterator search = new DijkstraIterator(G);
+		int mismatches = 0;
+		long settled = 0;
+		int samples = Math.min(n, 200);
+		for (int i = 0; i < samples; i++) {
+			int v = (int) ((long) i * n / samples);
+			List<DijkstraHeapNode> nearest = tags.nearest(search, tag, v, 3);
+			settled += search.getSettledCount();
+			int expected = nearest.isEmpty() ? Integer.MAX_VALUE : nearest.get(0).getDistance();
+			if (partition.distance(v) != expected) {
+				mismatches++;
+			}
+			int owner = partition.nearestFacility(v);
+			if (owner != NONE) {
+				search.start(owner);
+				while (search.hasNext() && search.peekDistance() <= expected) {
+					DijkstraHeapNode node = search.next();
+					if (node.getVertexId() == v && node.getDistance() != expected) {
+						mismatches++;
+					}
+				}
+			}
+		}
+		System.out.println(samples + " vertices checked, " + mismatches + " mismatches, "
+				+ settled / samples + " of " + n + " vertices settled per 3-nearest query");
+		int[] sizes = partition.regionSizes();
+		int largest = 0;
+		for (int size : sizes) {
+			largest = Math.max(largest, size);
+		}
+		System.out.println("Largest region has " + largest + " vertices");
+	}
+}